@@ -0,0 +1,124 @@
+package com.example.musicbpm.data.database;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteProgram;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.musicbpm.utils.PlatformDetector;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the unbounded library queries stay index-backed, on the schema Room builds from
+ * the entities. Fails on any EXPLAIN QUERY PLAN step that scans music_tracks without an index
+ * or sorts in a temp B-tree, so a dropped index or a new ORDER BY breaks the build.
+ * Queries bounded by a BPM range or a tag list are left out: sorting their matches is expected.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryPlanTest {
+
+    // Same SQL as the MusicTrackDao methods of the same name
+    private static final String[][] DAO_QUERIES = {
+            {"getTracksAfter", "SELECT * FROM music_tracks WHERE id > 0 ORDER BY id ASC LIMIT 100"},
+            {"getTrackIdByExternalId", "SELECT id FROM music_tracks WHERE platform = 'spotify' AND external_id = ''"},
+            {"getTrack", "SELECT * FROM music_tracks WHERE id = 1"},
+            {"getTracksByDateBefore", "SELECT " + TrackListItem.COLUMNS + " FROM music_tracks WHERE created_at <= 0 AND (created_at < 0 OR id < 0) " +
+                    "ORDER BY created_at DESC, id DESC LIMIT 500"},
+            {"getTracksByTitleAfter", "SELECT " + TrackListItem.COLUMNS + " FROM music_tracks WHERE title >= '' AND (title > '' OR id > 0) " +
+                    "ORDER BY title ASC, id ASC LIMIT 500"},
+            {"getTracksWithoutArtistAfter", "SELECT " + TrackListItem.COLUMNS + " FROM music_tracks WHERE artist IS NULL AND id > 0 " +
+                    "ORDER BY id ASC LIMIT 500"},
+            {"getTracksByArtistAfter", "SELECT " + TrackListItem.COLUMNS + " FROM music_tracks WHERE artist >= '' AND (artist > '' OR id > 0) " +
+                    "ORDER BY artist ASC, id ASC LIMIT 500"},
+            {"getTracksByBpmAfter", "SELECT " + TrackListItem.COLUMNS + " FROM music_tracks WHERE bpm >= 0 AND (bpm > 0 OR id > 0) " +
+                    "ORDER BY bpm ASC, id ASC LIMIT 500"},
+            {"getBpmIndexCursor", "SELECT bpm, id FROM music_tracks ORDER BY bpm ASC, id ASC"}
+    };
+
+    private static final String[] SORTS = {
+            TrackListQuery.SORT_DATE, TrackListQuery.SORT_TITLE, TrackListQuery.SORT_BPM, TrackListQuery.SORT_ARTIST
+    };
+
+    private AppDatabase database;
+    private SupportSQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        db = database.getOpenHelper().getReadableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void listQueriesReadAnIndexInOrder() {
+        List<String> problems = new ArrayList<>();
+        for (String sort : SORTS) {
+            TrackListQuery list = new TrackListQuery().withSort(sort);
+            check("list by " + sort, list.toListQuery(), problems);
+            check("list by " + sort + " on one platform",
+                    list.withPlatform(PlatformDetector.PLATFORM_SPOTIFY).toListQuery(), problems);
+        }
+        assertTrue(String.join("\n", problems), problems.isEmpty());
+    }
+
+    @Test
+    public void daoQueriesReadAnIndexInOrder() {
+        List<String> problems = new ArrayList<>();
+        for (String[] query : DAO_QUERIES) {
+            check(query[0], new SimpleSQLiteQuery(query[1]), problems);
+        }
+        assertTrue(String.join("\n", problems), problems.isEmpty());
+    }
+
+    private void check(String name, SupportSQLiteQuery query, List<String> problems) {
+        try (Cursor plan = db.query(explain(query))) {
+            // Columns: id, parent, notused, detail
+            while (plan.moveToNext()) {
+                String detail = plan.getString(3);
+                boolean fullScan = detail.startsWith("SCAN") && !detail.contains(" USING ");
+                if (fullScan || detail.contains("TEMP B-TREE")) {
+                    problems.add(name + ": " + detail + " in " + query.getSql());
+                }
+            }
+        }
+    }
+
+    private static SupportSQLiteQuery explain(SupportSQLiteQuery query) {
+        return new SupportSQLiteQuery() {
+            @Override
+            public String getSql() {
+                return "EXPLAIN QUERY PLAN " + query.getSql();
+            }
+
+            @Override
+            public void bindTo(SupportSQLiteProgram statement) {
+                query.bindTo(statement);
+            }
+
+            @Override
+            public int getArgCount() {
+                return query.getArgCount();
+            }
+        };
+    }
+}
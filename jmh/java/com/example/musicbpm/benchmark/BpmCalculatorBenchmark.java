@@ -0,0 +1,56 @@
+package com.example.musicbpm.benchmark;
+
+import com.example.musicbpm.utils.BpmCalculator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one tap through {@link BpmCalculator#onTap(long)} with the default estimator.
+ * Taps come from a precomputed jittered 120 BPM stream so the benchmark measures the
+ * calculator, not the clock; the stream wraps by shifting time forward, never backwards.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BpmCalculatorBenchmark {
+
+    private BpmCalculator calculator;
+    private long[] taps;
+    private long offset;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        calculator = new BpmCalculator();
+        taps = TapStreams.jittered(120, 15, 1024, 42);
+    }
+
+    @Benchmark
+    public int onTap() {
+        if (index == taps.length) {
+            index = 0;
+            offset += taps[taps.length - 1] - taps[0] + TapStreams.periodNanos(120);
+        }
+        return calculator.onTap(offset + taps[index++]);
+    }
+
+    @Benchmark
+    public double onTapAndReadRaw() {
+        onTap();
+        return calculator.getRawBpm();
+    }
+}
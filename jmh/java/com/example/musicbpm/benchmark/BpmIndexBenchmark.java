@@ -0,0 +1,88 @@
+package com.example.musicbpm.benchmark;
+
+import com.example.musicbpm.data.repository.BpmIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BpmIndex lookups a BPM slider makes on every move: a count and the ids of a range about
+ * 10 BPM wide, and the 20 tracks nearest a tempo. Each call picks the next of 1024 random
+ * ranges so the branch predictor cannot learn one. Also the patch a single-track edit costs,
+ * which MusicRepository pays on every commit instead of reading the table again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BpmIndexBenchmark {
+
+    private static final int RANGES = 1024;
+
+    @Param({"10000", "100000"})
+    public int tracks;
+
+    private BpmIndex index;
+    private final int[] minBpms = new int[RANGES];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        // bpm in the high bits and id in the low ones, so one sort gives the (bpm, id) order
+        long[] entries = new long[tracks];
+        for (int i = 0; i < tracks; i++) {
+            entries[i] = (long) (6000 + random.nextInt(12000)) << 32 | (i + 1);
+        }
+        Arrays.sort(entries);
+        int[] bpms = new int[tracks];
+        int[] ids = new int[tracks];
+        for (int i = 0; i < tracks; i++) {
+            bpms[i] = (int) (entries[i] >>> 32);
+            ids[i] = (int) entries[i];
+        }
+        index = new BpmIndex(bpms, ids);
+        for (int i = 0; i < RANGES; i++) {
+            minBpms[i] = 6000 + random.nextInt(12000);
+        }
+    }
+
+    @Benchmark
+    public int count() {
+        int min = minBpms[next++ & (RANGES - 1)];
+        return index.count(min, min + 1000);
+    }
+
+    @Benchmark
+    public int[] ids() {
+        int min = minBpms[next++ & (RANGES - 1)];
+        return index.ids(min, min + 1000);
+    }
+
+    @Benchmark
+    public int[] nearest() {
+        return index.nearest(minBpms[next++ & (RANGES - 1)], 20);
+    }
+
+    @Benchmark
+    public BpmIndex editOneTrack() {
+        // Track 1 keeps its entry and a new one is added beside it, the work of moving a track
+        int bpm = minBpms[next++ & (RANGES - 1)];
+        return index.withChanges(new long[] {BpmIndex.entry(bpm, 1)}, new long[] {BpmIndex.entry(bpm, tracks + 1)});
+    }
+}
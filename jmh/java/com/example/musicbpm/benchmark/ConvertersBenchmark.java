@@ -0,0 +1,57 @@
+package com.example.musicbpm.benchmark;
+
+import com.example.musicbpm.data.database.Converters;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tag string splitting and normalization, done once per track written (see TagDao#setTrackTags).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConvertersBenchmark {
+
+    @Param({"0", "3", "20"})
+    public int tagCount;
+
+    private List<String> tags;
+    private String joined;
+
+    @Setup
+    public void setUp() {
+        String[] genres = {"house", "deep house", "techno", "drum and bass", "hip hop", "pop", "kizomba"};
+        tags = new ArrayList<>(tagCount);
+        for (int i = 0; i < tagCount; i++) {
+            tags.add(genres[i % genres.length]);
+        }
+        joined = Converters.fromList(tags);
+    }
+
+    @Benchmark
+    public String fromList() {
+        return Converters.fromList(tags);
+    }
+
+    @Benchmark
+    public List<String> toList() {
+        return Converters.toList(joined);
+    }
+}
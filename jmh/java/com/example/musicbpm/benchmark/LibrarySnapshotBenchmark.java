@@ -0,0 +1,199 @@
+package com.example.musicbpm.benchmark;
+
+import com.example.musicbpm.data.backup.LibraryBackup;
+import com.example.musicbpm.data.backup.SnapshotReader;
+import com.example.musicbpm.data.backup.SnapshotWriter;
+import com.example.musicbpm.data.backup.TrackReader;
+import com.example.musicbpm.data.backup.TrackWriter;
+import com.example.musicbpm.data.database.MusicTrack;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Library backup in the binary snapshot format against the text backup: file size (printed
+ * at setup), export, decode and a full restore into SQLite through JDBC in one transaction.
+ * The text side is the CSV path: the JSON one goes through android.util.JsonReader/JsonWriter,
+ * which only exist on a device, and writes the same values with a field name on each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LibrarySnapshotBenchmark {
+
+    private static final String[] WORDS = {
+            "love", "night", "dance", "fire", "heart", "summer", "dream", "city", "light", "rain",
+            "gold", "wild", "river", "shadow", "echo", "midnight", "sunset", "ocean", "storm", "velvet"
+    };
+    private static final String[] ARTISTS = {
+            "Daft Punk", "Ana Moura", "Kaytranada", "Burna Boy", "Bonobo", "Disclosure", "Calema", "Rosalía"
+    };
+    private static final String[] TAGS = {
+            "house", "deep house", "techno", "drum and bass", "hip hop", "pop", "kizomba", "funk", "disco"
+    };
+    private static final String[] PLATFORMS = {"Spotify", "YouTube", "SoundCloud", "Deezer"};
+    private static final String ID_CHARS = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    @Param({"10000", "50000"})
+    public int tracks;
+
+    @Param({"snapshot", "csv"})
+    public String format;
+
+    private List<MusicTrack> library;
+    private byte[] file;
+    private Connection connection;
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        Random random = new Random(42);
+        library = new ArrayList<>(tracks);
+        long createdAt = 1_700_000_000_000L;
+        for (int i = 1; i <= tracks; i++) {
+            String platform = PLATFORMS[random.nextInt(PLATFORMS.length)];
+            String externalId = "track:" + randomId(random);
+            createdAt += random.nextInt(3_600_000);
+            MusicTrack track = new MusicTrack(words(random, 1 + random.nextInt(4)),
+                    ARTISTS[random.nextInt(ARTISTS.length)] + " " + random.nextInt(tracks / 10 + 1),
+                    6000 + random.nextInt(12000), "https://open.spotify.com/" + externalId.replace(':', '/'),
+                    platform, random.nextInt(4) == 0 ? words(random, 6) : null,
+                    TAGS[random.nextInt(TAGS.length)] + "," + TAGS[random.nextInt(TAGS.length)], createdAt);
+            track.setId(i);
+            track.setExternalId(externalId);
+            library.add(track);
+        }
+        file = export().toByteArray();
+        System.out.printf("%n%s, %d tracks: %d bytes (%.1f per track)%n",
+                format, tracks, file.length, (double) file.length / tracks);
+
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE music_tracks (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "title TEXT NOT NULL, artist TEXT, bpm INTEGER NOT NULL, " +
+                    "alt_bpm_low INTEGER NOT NULL DEFAULT 0, alt_bpm_high INTEGER NOT NULL DEFAULT 0, " +
+                    "link TEXT NOT NULL, platform TEXT, external_id TEXT, notes TEXT, tags TEXT, " +
+                    "created_at INTEGER NOT NULL, album_art_url TEXT)");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream export() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TrackWriter writer = format.equals("snapshot")
+                ? new SnapshotWriter(Channels.newChannel(out), library.size())
+                : LibraryBackup.openWriter(out, LibraryBackup.FORMAT_CSV)) {
+            for (MusicTrack track : library) {
+                writer.write(track);
+            }
+            writer.finish();
+        }
+        return out;
+    }
+
+    @Benchmark
+    public int decode() throws IOException {
+        int count = 0;
+        try (TrackReader source = open()) {
+            while (source.next() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Replace the table with the file's tracks in one transaction, as MusicRepository#restoreSnapshot does
+     */
+    @Benchmark
+    public int restore() throws IOException, SQLException {
+        connection.setAutoCommit(false);
+        int count = 0;
+        try (TrackReader source = open();
+             Statement delete = connection.createStatement();
+             PreparedStatement insert = connection.prepareStatement("INSERT INTO music_tracks " +
+                     "(title, artist, bpm, alt_bpm_low, alt_bpm_high, link, platform, external_id, notes, tags, " +
+                     "created_at, album_art_url) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            delete.execute("DELETE FROM music_tracks");
+            MusicTrack track;
+            while ((track = source.next()) != null) {
+                insert.setString(1, track.getTitle());
+                insert.setString(2, track.getArtist());
+                insert.setInt(3, track.getBpmCenti());
+                insert.setInt(4, track.getAltBpmLowCenti());
+                insert.setInt(5, track.getAltBpmHighCenti());
+                insert.setString(6, track.getLink());
+                insert.setString(7, track.getPlatform());
+                insert.setString(8, track.getExternalId());
+                insert.setString(9, track.getNotes());
+                insert.setString(10, track.getTags());
+                insert.setLong(11, track.getCreatedAt());
+                insert.setString(12, track.getAlbumArtUrl());
+                insert.executeUpdate();
+                count++;
+            }
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        return count;
+    }
+
+    private TrackReader open() throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(file);
+        return format.equals("snapshot")
+                ? new SnapshotReader(Channels.newChannel(in)) : LibraryBackup.openReader(in);
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    // Spotify ids: 22 base-62 characters, which is what makes links barely compressible
+    private static String randomId(Random random) {
+        char[] id = new char[22];
+        for (int i = 0; i < id.length; i++) {
+            id[i] = ID_CHARS.charAt(random.nextInt(ID_CHARS.length()));
+        }
+        return new String(id);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.musicbpm.benchmark;
+
+import com.example.musicbpm.utils.PlatformDetector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PlatformDetector#detectPlatform(String)} for a link matched early (YouTube),
+ * late (Deezer) and never (other), since every check scans the lowercased URL again.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlatformDetectorBenchmark {
+
+    @Param({
+            "https://www.youtube.com/watch?v=dQw4w9WgXcQ",
+            "https://open.spotify.com/track/4uLU6hMCjMI75M1A2tKUQC?si=1a2b3c4d5e6f",
+            "https://www.deezer.com/en/track/3135556",
+            "https://example.org/some/very/long/path/to/a/song/that/matches/no/platform?ref=abc"
+    })
+    public String url;
+
+    @Benchmark
+    public String detectPlatform() {
+        return PlatformDetector.detectPlatform(url);
+    }
+}
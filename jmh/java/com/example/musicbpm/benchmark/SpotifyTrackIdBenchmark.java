@@ -0,0 +1,40 @@
+package com.example.musicbpm.benchmark;
+
+import com.example.musicbpm.data.spotify.SpotifyService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spotify track-ID extraction from shared links, with and without a query string.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpotifyTrackIdBenchmark {
+
+    @Param({
+            "https://open.spotify.com/track/4uLU6hMCjMI75M1A2tKUQC",
+            "https://open.spotify.com/intl-pt/track/4uLU6hMCjMI75M1A2tKUQC?si=1a2b3c4d5e6f7a8b",
+            "https://open.spotify.com/album/1DFixLWuPkv3KT3TnV35m3"
+    })
+    public String url;
+
+    @Benchmark
+    public String extractTrackId() {
+        return SpotifyService.extractTrackId(url);
+    }
+}
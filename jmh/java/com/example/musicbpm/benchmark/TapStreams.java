@@ -0,0 +1,33 @@
+package com.example.musicbpm.benchmark;
+
+import java.util.Random;
+
+/**
+ * Precomputed tap timestamps shared by the tempo benchmarks.
+ */
+final class TapStreams {
+
+    private TapStreams() {
+    }
+
+    static long periodNanos(double bpm) {
+        return (long) (60e9 / bpm);
+    }
+
+    /**
+     * A steady tempo with Gaussian timing jitter
+     * @param jitterMs Standard deviation of each tap's timing error
+     */
+    static long[] jittered(double bpm, double jitterMs, int taps, long seed) {
+        Random random = new Random(seed);
+        long period = periodNanos(bpm);
+        long[] stream = new long[taps];
+        long previous = Long.MIN_VALUE;
+        for (int i = 0; i < taps; i++) {
+            long time = i * period + (long) (random.nextGaussian() * jitterMs * 1e6);
+            stream[i] = Math.max(time, previous + 1);
+            previous = stream[i];
+        }
+        return stream;
+    }
+}
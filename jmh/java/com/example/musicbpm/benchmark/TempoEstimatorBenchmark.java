@@ -0,0 +1,80 @@
+package com.example.musicbpm.benchmark;
+
+import com.example.musicbpm.utils.BpmCalculator;
+import com.example.musicbpm.utils.tempo.KalmanTempoEstimator;
+import com.example.musicbpm.utils.tempo.LinearFitTempoEstimator;
+import com.example.musicbpm.utils.tempo.MedianTempoEstimator;
+import com.example.musicbpm.utils.tempo.TempoEstimator;
+import com.example.musicbpm.utils.tempo.TrimmedMeanTempoEstimator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one tap plus reading the estimate, for every {@link TempoEstimator}.
+ * New estimators only need a case in {@link #create(String)} and a {@code @Param} value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TempoEstimatorBenchmark {
+
+    @Param({"median", "trimmed_mean", "linear_fit", "kalman"})
+    public String estimatorName;
+
+    private TempoEstimator estimator;
+    private long[] taps;
+    private long offset;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        estimator = create(estimatorName);
+        taps = TapStreams.jittered(120, 15, 1024, 42);
+    }
+
+    static TempoEstimator create(String name) {
+        int window = BpmCalculator.DEFAULT_MAX_TAPS - 1;
+        switch (name) {
+            case "median":
+                return new MedianTempoEstimator(window);
+            case "trimmed_mean":
+                return new TrimmedMeanTempoEstimator(window);
+            case "linear_fit":
+                return new LinearFitTempoEstimator(window + 1);
+            case "kalman":
+                return new KalmanTempoEstimator();
+            default:
+                throw new IllegalArgumentException("Unknown estimator: " + name);
+        }
+    }
+
+    @Benchmark
+    public double addTapAndEstimate() {
+        if (index == taps.length) {
+            index = 0;
+            offset += taps[taps.length - 1] - taps[0] + TapStreams.periodNanos(120);
+        }
+        estimator.addTap(offset + taps[index++]);
+        return estimator.getBpm();
+    }
+
+    @Benchmark
+    public double confidence() {
+        return estimator.getConfidence();
+    }
+}
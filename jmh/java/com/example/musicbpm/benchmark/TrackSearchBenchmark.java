@@ -0,0 +1,169 @@
+package com.example.musicbpm.benchmark;
+
+import com.example.musicbpm.data.database.TrackSearch;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Library search as typed in the search box: the old {@code LIKE '%query%'} scan against the
+ * full-text index (prefix MATCH, then BM25 ranking from matchinfo as MusicRepository does).
+ * Runs on an in-memory SQLite through JDBC (org.xerial:sqlite-jdbc on the benchmark classpath),
+ * with the music_tracks columns search touches and the same FTS statements as the migration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackSearchBenchmark {
+
+    private static final String LIKE_QUERY = "SELECT * FROM music_tracks WHERE " +
+            "title LIKE '%' || ? || '%' OR " +
+            "artist LIKE '%' || ? || '%' OR " +
+            "tags LIKE '%' || ? || '%' " +
+            "ORDER BY created_at DESC";
+
+    private static final String FTS_QUERY = "SELECT music_tracks.*, " +
+            "matchinfo(music_tracks_fts, '" + TrackSearch.MATCHINFO_FORMAT + "') AS match_info " +
+            "FROM music_tracks JOIN music_tracks_fts ON music_tracks.id = music_tracks_fts.docid " +
+            "WHERE music_tracks_fts MATCH ?";
+
+    private static final String[] WORDS = {
+            "love", "night", "dance", "fire", "heart", "summer", "dream", "city", "light", "rain",
+            "gold", "wild", "river", "shadow", "echo", "midnight", "sunset", "ocean", "storm", "velvet"
+    };
+    private static final String[] ARTISTS = {
+            "Daft Punk", "Ana Moura", "Kaytranada", "Burna Boy", "Bonobo", "Disclosure", "Calema", "Rosalía"
+    };
+    private static final String[] TAGS = {
+            "house", "deep house", "techno", "drum and bass", "hip hop", "pop", "kizomba", "funk", "disco"
+    };
+
+    @Param({"10000", "100000"})
+    public int rows;
+
+    // A common word, a rare artist prefix and a two-word query
+    @Param({"love", "kaytr", "night dance"})
+    public String query;
+
+    private Connection connection;
+    private PreparedStatement like;
+    private PreparedStatement fts;
+    private String match;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE music_tracks (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "title TEXT NOT NULL, artist TEXT, bpm INTEGER NOT NULL, " +
+                    "tags TEXT, notes TEXT, created_at INTEGER NOT NULL)");
+            statement.execute("CREATE INDEX index_music_tracks_title ON music_tracks (title)");
+        }
+
+        connection.setAutoCommit(false);
+        Random random = new Random(42);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO music_tracks (title, artist, bpm, tags, notes, created_at) VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                insert.setString(1, words(random, 1 + random.nextInt(4)));
+                insert.setString(2, ARTISTS[random.nextInt(ARTISTS.length)] + " " + random.nextInt(rows / 10 + 1));
+                insert.setInt(3, 6000 + random.nextInt(12000));
+                insert.setString(4, TAGS[random.nextInt(TAGS.length)] + ", " + TAGS[random.nextInt(TAGS.length)]);
+                insert.setString(5, random.nextInt(4) == 0 ? words(random, 6) : null);
+                insert.setLong(6, i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        // Index the existing rows the way MIGRATION_5_6 does
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(TrackSearch.CREATE_TABLE);
+            for (String trigger : TrackSearch.CREATE_TRIGGERS) {
+                statement.execute(trigger);
+            }
+            statement.execute(TrackSearch.REBUILD);
+        }
+
+        like = connection.prepareStatement(LIKE_QUERY);
+        fts = connection.prepareStatement(FTS_QUERY);
+        match = TrackSearch.toMatchQuery(query);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public int like() throws SQLException {
+        like.setString(1, query);
+        like.setString(2, query);
+        like.setString(3, query);
+        int count = 0;
+        try (ResultSet results = like.executeQuery()) {
+            while (results.next()) {
+                count += results.getInt("id");
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int ftsRanked() throws SQLException {
+        fts.setString(1, match);
+        List<Integer> ids = new ArrayList<>();
+        List<Double> scores = new ArrayList<>();
+        try (ResultSet results = fts.executeQuery()) {
+            while (results.next()) {
+                ids.add(results.getInt("id"));
+                scores.add(TrackSearch.bm25(results.getBytes("match_info")));
+            }
+        }
+        Integer[] order = new Integer[ids.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores.get(b), scores.get(a)));
+        return order.length > 0 ? ids.get(order[0]) : 0;
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.musicbpm.utils.tempo.replay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates tap sessions with a known tempo and human-like faults:
+ * Gaussian timing jitter, dropped taps (a missed beat) and double taps (a bounce).
+ */
+public class SyntheticTapSessions {
+
+    private static final double NANOS_PER_MS = 1e6;
+
+    private final Random random;
+    private double minBpm = 60;
+    private double maxBpm = 180;
+    private int minTaps = 8;
+    private int maxTaps = 24;
+    private double jitterMs = 15;
+    private double dropProbability = 0.03;
+    private double doubleTapProbability = 0.02;
+
+    public SyntheticTapSessions(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public SyntheticTapSessions setTempoRange(double minBpm, double maxBpm) {
+        this.minBpm = minBpm;
+        this.maxBpm = maxBpm;
+        return this;
+    }
+
+    public SyntheticTapSessions setTapCountRange(int minTaps, int maxTaps) {
+        this.minTaps = minTaps;
+        this.maxTaps = maxTaps;
+        return this;
+    }
+
+    /**
+     * @param jitterMs Standard deviation of each tap's timing error
+     */
+    public SyntheticTapSessions setJitter(double jitterMs) {
+        this.jitterMs = jitterMs;
+        return this;
+    }
+
+    /**
+     * @param dropProbability Chance that a beat is not tapped
+     */
+    public SyntheticTapSessions setDropProbability(double dropProbability) {
+        this.dropProbability = dropProbability;
+        return this;
+    }
+
+    /**
+     * @param doubleTapProbability Chance that a tap registers twice, 20 to 80 ms apart
+     */
+    public SyntheticTapSessions setDoubleTapProbability(double doubleTapProbability) {
+        this.doubleTapProbability = doubleTapProbability;
+        return this;
+    }
+
+    /**
+     * Generate one session; its final and reference BPM is the true tempo
+     */
+    public TapSession next(long id) {
+        double bpm = minBpm + random.nextDouble() * (maxBpm - minBpm);
+        double periodNanos = 60e9 / bpm;
+        int beats = minTaps + random.nextInt(maxTaps - minTaps + 1);
+        // Arbitrary monotonic clock origin, as on a device
+        long origin = (long) (random.nextDouble() * 1e13);
+
+        long[] taps = new long[beats * 2];
+        int count = 0;
+        for (int beat = 0; beat < beats; beat++) {
+            // Never drop the first tap, so every session starts on a beat
+            if (beat > 0 && random.nextDouble() < dropProbability) {
+                continue;
+            }
+            long time = origin + (long) (beat * periodNanos + random.nextGaussian() * jitterMs * NANOS_PER_MS);
+            if (count > 0 && time <= taps[count - 1]) {
+                time = taps[count - 1] + 1;
+            }
+            taps[count++] = time;
+            if (random.nextDouble() < doubleTapProbability) {
+                taps[count++] = time + (long) ((20 + random.nextDouble() * 60) * NANOS_PER_MS);
+            }
+        }
+        return new TapSession(id, Arrays.copyOf(taps, count), bpm);
+    }
+
+    public List<TapSession> generate(int sessions) {
+        List<TapSession> result = new ArrayList<>(sessions);
+        for (int i = 0; i < sessions; i++) {
+            result.add(next(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,311 @@
+package com.example.musicbpm.utils.tempo.replay;
+
+import com.example.musicbpm.utils.BpmCalculator;
+import com.example.musicbpm.utils.tempo.KalmanTempoEstimator;
+import com.example.musicbpm.utils.tempo.LinearFitTempoEstimator;
+import com.example.musicbpm.utils.tempo.MedianTempoEstimator;
+import com.example.musicbpm.utils.tempo.TempoEstimator;
+import com.example.musicbpm.utils.tempo.TrimmedMeanTempoEstimator;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Replays tap sessions through {@link BpmCalculator} and alternative estimators on the JVM
+ * and reports how fast each converges, how far off it ends up and what a tap costs.
+ *
+ * <pre>
+ * java ...TapReplayHarness [sessions.bin] [--sessions N] [--jitter MS] [--drop P] [--double P]
+ *                          [--seed N] [--tolerance BPM]
+ * </pre>
+ * Without a file, synthetic sessions are generated with the given faults.
+ */
+public class TapReplayHarness {
+
+    /** Default distance from the reference tempo that counts as converged */
+    public static final double DEFAULT_TOLERANCE_BPM = 1.0;
+    // A final error above this fraction of the tempo counts as a gross (e.g. octave) error
+    private static final double GROSS_ERROR_FRACTION = 0.05;
+
+    private final List<String> names = new ArrayList<>();
+    private final List<Supplier<Subject>> subjects = new ArrayList<>();
+    private double toleranceBpm = DEFAULT_TOLERANCE_BPM;
+
+    public TapReplayHarness setTolerance(double toleranceBpm) {
+        this.toleranceBpm = toleranceBpm;
+        return this;
+    }
+
+    public TapReplayHarness addEstimator(String name, Supplier<TempoEstimator> factory) {
+        names.add(name);
+        subjects.add(() -> {
+            TempoEstimator estimator = factory.get();
+            return new Subject() {
+                @Override
+                public void reset() {
+                    estimator.reset();
+                }
+
+                @Override
+                public double onTap(long timestampNanos) {
+                    estimator.addTap(timestampNanos);
+                    return estimator.getBpm();
+                }
+            };
+        });
+        return this;
+    }
+
+    public TapReplayHarness addBpmCalculator(String name, Supplier<BpmCalculator> factory) {
+        names.add(name);
+        subjects.add(() -> {
+            BpmCalculator calculator = factory.get();
+            return new Subject() {
+                @Override
+                public void reset() {
+                    calculator.reset();
+                }
+
+                @Override
+                public double onTap(long timestampNanos) {
+                    calculator.onTap(timestampNanos);
+                    return calculator.getRawBpm();
+                }
+            };
+        });
+        return this;
+    }
+
+    /**
+     * Replay every session through every registered estimator
+     */
+    public List<Result> run(List<TapSession> sessions) {
+        int maxTaps = 0;
+        for (TapSession session : sessions) {
+            maxTaps = Math.max(maxTaps, session.getTapCount());
+        }
+
+        List<Result> results = new ArrayList<>(subjects.size());
+        for (int s = 0; s < subjects.size(); s++) {
+            Subject subject = subjects.get(s).get();
+            double[] estimates = new double[maxTaps];
+
+            // Warm-up pass so the timed pass measures compiled code
+            for (TapSession session : sessions) {
+                replay(subject, session, estimates);
+            }
+
+            Result result = new Result(names.get(s), sessions.size());
+            long elapsed = 0;
+            for (TapSession session : sessions) {
+                long start = System.nanoTime();
+                replay(subject, session, estimates);
+                elapsed += System.nanoTime() - start;
+                result.add(session, estimates, toleranceBpm);
+            }
+            result.finish(elapsed);
+            results.add(result);
+        }
+        return results;
+    }
+
+    private static void replay(Subject subject, TapSession session, double[] estimates) {
+        subject.reset();
+        long[] timestamps = session.getTimestamps();
+        for (int i = 0; i < timestamps.length; i++) {
+            estimates[i] = subject.onTap(timestamps[i]);
+        }
+    }
+
+    /**
+     * Format results as a plain-text table
+     */
+    public static String format(List<Result> results) {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%-22s %8s %9s %9s %8s %8s %8s %8s %7s %8s%n",
+                "estimator", "sessions", "converged", "taps p50", "taps p90",
+                "err p50", "err p90", "err p99", "gross", "ns/tap"));
+        for (Result r : results) {
+            out.append(String.format(Locale.ROOT, "%-22s %8d %8.1f%% %9.0f %8.0f %8.2f %8.2f %8.2f %6.1f%% %8.0f%n",
+                    r.getName(), r.getSessions(), 100 * r.getConvergedFraction(),
+                    r.getConvergenceTaps(0.5), r.getConvergenceTaps(0.9),
+                    r.getError(0.5), r.getError(0.9), r.getError(0.99),
+                    100 * r.getGrossErrorFraction(), r.getNanosPerTap()));
+        }
+        return out.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        String file = null;
+        int sessions = 5000;
+        double jitterMs = 15;
+        double drop = 0.03;
+        double doubleTap = 0.02;
+        long seed = 1;
+        double tolerance = DEFAULT_TOLERANCE_BPM;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sessions":
+                    sessions = Integer.parseInt(args[++i]);
+                    break;
+                case "--jitter":
+                    jitterMs = Double.parseDouble(args[++i]);
+                    break;
+                case "--drop":
+                    drop = Double.parseDouble(args[++i]);
+                    break;
+                case "--double":
+                    doubleTap = Double.parseDouble(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--tolerance":
+                    tolerance = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    file = args[i];
+            }
+        }
+
+        List<TapSession> data;
+        if (file != null) {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+                data = TapSessionFile.read(in);
+            }
+            System.out.println("Replaying " + data.size() + " recorded sessions from " + file);
+        } else {
+            data = new SyntheticTapSessions(seed)
+                    .setJitter(jitterMs)
+                    .setDropProbability(drop)
+                    .setDoubleTapProbability(doubleTap)
+                    .generate(sessions);
+            System.out.printf(Locale.ROOT, "Replaying %d synthetic sessions (jitter %.1f ms, drop %.2f, double %.2f)%n",
+                    sessions, jitterMs, drop, doubleTap);
+        }
+
+        int window = BpmCalculator.DEFAULT_MAX_TAPS - 1;
+        List<Result> results = new TapReplayHarness()
+                .setTolerance(tolerance)
+                .addBpmCalculator("BpmCalculator", BpmCalculator::new)
+                .addEstimator("Median", () -> new MedianTempoEstimator(window))
+                .addEstimator("TrimmedMean", () -> new TrimmedMeanTempoEstimator(window))
+                .addEstimator("LinearFit", () -> new LinearFitTempoEstimator(window + 1))
+                .addEstimator("Kalman", KalmanTempoEstimator::new)
+                .run(data);
+        System.out.print(format(results));
+    }
+
+    /**
+     * Something that turns taps into a running BPM estimate
+     */
+    public interface Subject {
+        void reset();
+
+        /**
+         * @return Current estimate after this tap, 0 if none yet
+         */
+        double onTap(long timestampNanos);
+    }
+
+    /**
+     * Aggregated metrics of one estimator over all sessions
+     */
+    public static class Result {
+        private final String name;
+        private final int sessions;
+        private final double[] errors;
+        private final int[] convergenceTaps;
+        private int errorCount;
+        private int convergedCount;
+        private int grossErrors;
+        private long taps;
+        private double nanosPerTap;
+
+        Result(String name, int sessions) {
+            this.name = name;
+            this.sessions = sessions;
+            this.errors = new double[sessions];
+            this.convergenceTaps = new int[sessions];
+        }
+
+        void add(TapSession session, double[] estimates, double toleranceBpm) {
+            int count = session.getTapCount();
+            taps += count;
+            double reference = session.getReferenceBpm();
+            if (count == 0 || reference <= 0) {
+                return;
+            }
+
+            double error = Math.abs(estimates[count - 1] - reference);
+            errors[errorCount++] = error;
+            if (error > GROSS_ERROR_FRACTION * reference) {
+                grossErrors++;
+            }
+
+            // Converged at the first tap after which the estimate never leaves the tolerance
+            int first = count;
+            while (first > 0 && Math.abs(estimates[first - 1] - reference) <= toleranceBpm) {
+                first--;
+            }
+            if (first < count) {
+                convergenceTaps[convergedCount++] = first + 1;
+            }
+        }
+
+        void finish(long elapsedNanos) {
+            Arrays.sort(errors, 0, errorCount);
+            Arrays.sort(convergenceTaps, 0, convergedCount);
+            nanosPerTap = taps > 0 ? (double) elapsedNanos / taps : 0;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getSessions() {
+            return sessions;
+        }
+
+        /**
+         * Get the fraction of sessions whose estimate ended within the tolerance
+         */
+        public double getConvergedFraction() {
+            return errorCount > 0 ? (double) convergedCount / errorCount : 0;
+        }
+
+        /**
+         * Get a quantile of the number of taps needed to converge, over converged sessions
+         */
+        public double getConvergenceTaps(double quantile) {
+            return convergedCount > 0 ? convergenceTaps[index(quantile, convergedCount)] : Double.NaN;
+        }
+
+        /**
+         * Get a quantile of the absolute final error in BPM
+         */
+        public double getError(double quantile) {
+            return errorCount > 0 ? errors[index(quantile, errorCount)] : Double.NaN;
+        }
+
+        public double getGrossErrorFraction() {
+            return errorCount > 0 ? (double) grossErrors / errorCount : 0;
+        }
+
+        public double getNanosPerTap() {
+            return nanosPerTap;
+        }
+
+        private static int index(double quantile, int size) {
+            return Math.min(size - 1, (int) Math.floor(quantile * size));
+        }
+    }
+}
@@ -7,6 +7,7 @@ import androidx.navigation.NavController;
 import androidx.navigation.fragment.NavHostFragment;
 import androidx.navigation.ui.NavigationUI;
 
+import com.example.musicbpm.jobs.AnalysisScheduler;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 
 /**
@@ -24,6 +25,11 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
 
         setupNavigation();
+
+        if (savedInstanceState == null) {
+            // Batch jobs interrupted by a killed process carry on from their checkpoint
+            new AnalysisScheduler(this).resumeUnfinished();
+        }
     }
 
     private void setupNavigation() {
@@ -0,0 +1,100 @@
+package com.example.musicbpm.analysis;
+
+import com.example.musicbpm.utils.FixedBpm;
+import com.example.musicbpm.utils.tempo.TempoOctaveResolver;
+
+import java.io.IOException;
+
+/**
+ * Detects the tempo of a decoded audio stream.
+ * Streams the audio through a spectral-flux onset detector into an autocorrelation
+ * tempo tracker using one fixed-size buffer, so memory does not grow with track length.
+ */
+public class AudioBpmAnalyzer {
+
+    private static final int BUFFER_SIZE = 4096;
+    // Analysis frames of roughly 23 ms whatever the sample rate
+    private static final int FRAMES_PER_SECOND = 43;
+
+    private final float[] buffer = new float[BUFFER_SIZE];
+
+    /**
+     * Analyze the whole source. The source is not closed.
+     * @param source Decoded audio
+     * @return Detected tempo
+     */
+    public Result analyze(PcmSource source) throws IOException {
+        int sampleRate = source.getSampleRate();
+        int frameSize = Math.max(256, Integer.highestOneBit(sampleRate / FRAMES_PER_SECOND));
+        SpectralFluxOnsetDetector detector = new SpectralFluxOnsetDetector(frameSize, frameSize / 2);
+        AutocorrelationTempoTracker tracker =
+                new AutocorrelationTempoTracker((double) sampleRate / detector.getHopSize());
+
+        long samples = 0;
+        int read;
+        while ((read = source.read(buffer, 0, BUFFER_SIZE)) >= 0) {
+            detector.process(buffer, 0, read, tracker);
+            samples += read;
+        }
+
+        return new Result(tracker.getBpm(), tracker.getConfidence(), (double) samples / sampleRate,
+                tracker.getNormalizedAutocorrelation(), tracker.getFrameRate());
+    }
+
+    /**
+     * Outcome of an analysis. Keeps the onset autocorrelation so the tempo octave
+     * can be checked against the audio afterwards.
+     */
+    public static class Result implements TempoOctaveResolver.OnsetSalience {
+        private final double bpm;
+        private final double confidence;
+        private final double durationSeconds;
+        private final double[] autocorrelation;
+        private final double frameRate;
+
+        public Result(double bpm, double confidence, double durationSeconds) {
+            this(bpm, confidence, durationSeconds, new double[1], 1);
+        }
+
+        Result(double bpm, double confidence, double durationSeconds,
+               double[] autocorrelation, double frameRate) {
+            this.bpm = bpm;
+            this.confidence = confidence;
+            this.durationSeconds = durationSeconds;
+            this.autocorrelation = autocorrelation;
+            this.frameRate = frameRate;
+        }
+
+        public double getBpm() {
+            return bpm;
+        }
+
+        /**
+         * Get the BPM in hundredths, as stored in {@code MusicTrack} (see FixedBpm)
+         */
+        public int getBpmCenti() {
+            return FixedBpm.fromDouble(bpm);
+        }
+
+        public double getConfidence() {
+            return confidence;
+        }
+
+        public double getDurationSeconds() {
+            return durationSeconds;
+        }
+
+        @Override
+        public double getSalience(double bpm) {
+            return AutocorrelationTempoTracker.salience(autocorrelation, frameRate, bpm);
+        }
+    }
+
+    /**
+     * Callback interface for async analysis
+     */
+    public interface OnAnalysisCompleteListener {
+        void onSuccess(Result result);
+        void onError(String error);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.musicbpm.analysis;
+
+import android.Manifest;
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.os.Process;
+
+import androidx.annotation.RequiresPermission;
+
+import java.io.IOException;
+
+/**
+ * Captures microphone audio as mono float PCM with AudioRecord.
+ * Reads block until audio is available and write straight into the caller's buffer.
+ */
+public class AudioRecordPcmSource implements PcmSource {
+
+    public static final int DEFAULT_SAMPLE_RATE = 44100;
+
+    private final AudioRecord audioRecord;
+    private final int sampleRate;
+    private boolean priorityRaised;
+
+    @RequiresPermission(Manifest.permission.RECORD_AUDIO)
+    public AudioRecordPcmSource() throws IOException {
+        this(DEFAULT_SAMPLE_RATE);
+    }
+
+    @RequiresPermission(Manifest.permission.RECORD_AUDIO)
+    public AudioRecordPcmSource(int sampleRate) throws IOException {
+        int minBufferSize = AudioRecord.getMinBufferSize(sampleRate,
+                AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_FLOAT);
+        if (minBufferSize <= 0) {
+            throw new IOException("Unsupported recording format");
+        }
+
+        audioRecord = new AudioRecord(MediaRecorder.AudioSource.MIC, sampleRate,
+                AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_FLOAT, minBufferSize * 4);
+        if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
+            audioRecord.release();
+            throw new IOException("Microphone not available");
+        }
+        this.sampleRate = audioRecord.getSampleRate();
+        audioRecord.startRecording();
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int read(float[] buffer, int offset, int length) throws IOException {
+        if (!priorityRaised) {
+            // The capture thread is the one calling read
+            Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+            priorityRaised = true;
+        }
+        int read = audioRecord.read(buffer, offset, length, AudioRecord.READ_BLOCKING);
+        if (read < 0) {
+            throw new IOException("AudioRecord error " + read);
+        }
+        return read;
+    }
+
+    @Override
+    public void close() {
+        if (audioRecord.getRecordingState() == AudioRecord.RECORDSTATE_RECORDING) {
+            audioRecord.stop();
+        }
+        audioRecord.release();
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.musicbpm.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Estimates the tempo of an onset-strength envelope by autocorrelation.
+ * The autocorrelation is accumulated incrementally over a ring buffer of the most
+ * recent envelope values, so memory is fixed regardless of how long the track is.
+ * The envelope is lightly smoothed first so beat periods that fall between two
+ * lags still correlate. Candidate beat periods are scored together with their double period (a simple comb)
+ * and weighted by a log-normal tempo prior centred on 120 BPM to reduce octave errors.
+ */
+public class AutocorrelationTempoTracker implements SpectralFluxOnsetDetector.OnsetSink {
+
+    public static final double DEFAULT_MIN_BPM = 40;
+    public static final double DEFAULT_MAX_BPM = 220;
+
+    private static final double PRIOR_CENTER_BPM = 120;
+    // Width of the tempo prior, in octaves
+    private static final double PRIOR_WIDTH_OCTAVES = 1.0;
+    // Weight of the double-period lag in the comb score
+    private static final double SECOND_HARMONIC_WEIGHT = 0.5;
+    // Time constant of the running mean removed from the envelope, in seconds
+    private static final double MEAN_TIME_CONSTANT = 1.5;
+
+    private final double frameRate;
+    private final int minLag;
+    private final int maxLag;
+    private final float[] history;
+    private final double[] autocorrelation;
+    private final double meanAlpha;
+    // Per-frame decay of the accumulated autocorrelation (1 = remember everything)
+    private double decay = 1.0;
+    private double mean;
+    private float previous;
+    private float beforePrevious;
+    private int writeIndex;
+    private long count;
+
+    /**
+     * @param frameRate Onset values per second
+     */
+    public AutocorrelationTempoTracker(double frameRate) {
+        this(frameRate, DEFAULT_MIN_BPM, DEFAULT_MAX_BPM);
+    }
+
+    /**
+     * @param frameRate Onset values per second
+     * @param minBpm Slowest tempo considered
+     * @param maxBpm Fastest tempo considered
+     */
+    public AutocorrelationTempoTracker(double frameRate, double minBpm, double maxBpm) {
+        if (frameRate <= 0 || minBpm <= 0 || maxBpm <= minBpm) {
+            throw new IllegalArgumentException("Invalid frame rate or tempo range");
+        }
+        this.frameRate = frameRate;
+        this.minLag = Math.max(1, (int) Math.floor(frameRate * 60.0 / maxBpm));
+        this.maxLag = (int) Math.ceil(frameRate * 60.0 / minBpm);
+        // Room for the second harmonic of the longest lag plus one neighbour for interpolation
+        int lags = 2 * (maxLag + 1) + 1;
+        this.history = new float[lags];
+        this.autocorrelation = new double[lags];
+        this.meanAlpha = 1.0 / (MEAN_TIME_CONSTANT * frameRate);
+    }
+
+    @Override
+    public void onOnset(float strength) {
+        if (count == 0) {
+            mean = strength;
+        } else {
+            mean += meanAlpha * (strength - mean);
+        }
+        float centered = (float) (strength - mean);
+
+        // [1 2 1] / 4 smoothing spreads single-frame onset peaks over their neighbours
+        float value = 0.25f * beforePrevious + 0.5f * previous + 0.25f * centered;
+        beforePrevious = previous;
+        previous = centered;
+
+        int size = history.length;
+        history[writeIndex] = value;
+        int lags = (int) Math.min(count + 1, size);
+        if (decay < 1.0) {
+            for (int lag = 0; lag < lags; lag++) {
+                autocorrelation[lag] *= decay;
+            }
+        }
+        for (int lag = 0; lag < lags; lag++) {
+            int index = writeIndex - lag;
+            if (index < 0) {
+                index += size;
+            }
+            autocorrelation[lag] += value * history[index];
+        }
+        writeIndex = (writeIndex + 1) % size;
+        count++;
+    }
+
+    /**
+     * Let older onsets fade out so that a live stream can follow tempo changes
+     * @param seconds Time constant of the fade; 0 or less keeps the whole history
+     */
+    public void setMemory(double seconds) {
+        decay = seconds > 0 ? Math.exp(-1.0 / (seconds * frameRate)) : 1.0;
+    }
+
+    private double score(int lag) {
+        double bpm = 60.0 * frameRate / lag;
+        double octaves = Math.log(bpm / PRIOR_CENTER_BPM) / Math.log(2);
+        double prior = Math.exp(-0.5 * (octaves / PRIOR_WIDTH_OCTAVES) * (octaves / PRIOR_WIDTH_OCTAVES));
+        return prior * (autocorrelation[lag] + SECOND_HARMONIC_WEIGHT * autocorrelation[2 * lag]);
+    }
+
+    private int bestLag() {
+        int best = -1;
+        double bestScore = 0;
+        for (int lag = minLag; lag <= maxLag; lag++) {
+            double score = score(lag);
+            if (score > bestScore) {
+                bestScore = score;
+                best = lag;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the estimated tempo
+     * @return BPM value with sub-frame precision, or 0 if no periodicity was found
+     */
+    public double getBpm() {
+        int lag = bestLag();
+        if (lag < 0) {
+            return 0;
+        }
+
+        // Parabolic interpolation around the peak for a fractional lag
+        double refined = lag;
+        if (lag > minLag && lag < maxLag + 1) {
+            double left = score(lag - 1);
+            double center = score(lag);
+            double right = score(lag + 1);
+            double denominator = left - 2 * center + right;
+            if (denominator < 0) {
+                refined += 0.5 * (left - right) / denominator;
+            }
+        }
+        return 60.0 * frameRate / refined;
+    }
+
+    /**
+     * Get the normalized autocorrelation at the chosen beat period
+     * @return Value between 0 (no periodicity) and 1
+     */
+    public double getConfidence() {
+        int lag = bestLag();
+        if (lag < 0 || autocorrelation[0] <= 0) {
+            return 0;
+        }
+        return Math.max(0, Math.min(1, autocorrelation[lag] / autocorrelation[0]));
+    }
+
+    /**
+     * Get the normalized autocorrelation at the beat period of any tempo,
+     * used to tell a tempo from its half or double
+     * @return Value between 0 (no periodicity) and 1, or 0 outside the analysed lags
+     */
+    public double getSalience(double bpm) {
+        return salience(autocorrelation, frameRate, bpm);
+    }
+
+    /**
+     * Copy of the autocorrelation normalized by its zero lag, for {@link #salience}
+     */
+    double[] getNormalizedAutocorrelation() {
+        double[] normalized = new double[autocorrelation.length];
+        if (autocorrelation[0] > 0) {
+            for (int lag = 0; lag < normalized.length; lag++) {
+                normalized[lag] = autocorrelation[lag] / autocorrelation[0];
+            }
+        }
+        return normalized;
+    }
+
+    static double salience(double[] autocorrelation, double frameRate, double bpm) {
+        if (bpm <= 0 || autocorrelation[0] <= 0) {
+            return 0;
+        }
+        double lag = 60.0 * frameRate / bpm;
+        int lower = (int) Math.floor(lag);
+        if (lower < 1 || lower + 1 >= autocorrelation.length) {
+            return 0;
+        }
+        double fraction = lag - lower;
+        double value = (1 - fraction) * autocorrelation[lower] + fraction * autocorrelation[lower + 1];
+        return Math.max(0, Math.min(1, value / autocorrelation[0]));
+    }
+
+    public double getFrameRate() {
+        return frameRate;
+    }
+
+    /**
+     * Get the number of onset values processed so far
+     */
+    public long getFrameCount() {
+        return count;
+    }
+
+    public void reset() {
+        Arrays.fill(history, 0f);
+        Arrays.fill(autocorrelation, 0);
+        mean = 0;
+        previous = 0;
+        beforePrevious = 0;
+        writeIndex = 0;
+        count = 0;
+    }
+}
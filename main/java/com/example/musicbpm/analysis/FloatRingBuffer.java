@@ -0,0 +1,77 @@
+package com.example.musicbpm.analysis;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer single-consumer ring buffer of samples.
+ * One thread may write and one other thread may read concurrently; neither call
+ * blocks or allocates, which makes it safe to use from an audio capture thread.
+ */
+final class FloatRingBuffer {
+
+    private final float[] data;
+    private final int mask;
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+
+    /**
+     * @param capacity Number of samples, rounded up to a power of two
+     */
+    FloatRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.data = new float[size];
+        this.mask = size - 1;
+    }
+
+    int capacity() {
+        return data.length;
+    }
+
+    int available() {
+        return (int) (writePosition.get() - readPosition.get());
+    }
+
+    /**
+     * Write as many samples as fit (producer thread only)
+     * @return Number of samples written
+     */
+    int write(float[] source, int offset, int length) {
+        long write = writePosition.get();
+        long read = readPosition.get();
+        int count = Math.min(length, data.length - (int) (write - read));
+        if (count <= 0) {
+            return 0;
+        }
+
+        int start = (int) (write & mask);
+        int first = Math.min(count, data.length - start);
+        System.arraycopy(source, offset, data, start, first);
+        System.arraycopy(source, offset + first, data, 0, count - first);
+
+        // Publish the samples only after they are copied
+        writePosition.lazySet(write + count);
+        return count;
+    }
+
+    /**
+     * Read up to length samples (consumer thread only)
+     * @return Number of samples read
+     */
+    int read(float[] destination, int offset, int length) {
+        long read = readPosition.get();
+        long write = writePosition.get();
+        int count = Math.min(length, (int) (write - read));
+        if (count <= 0) {
+            return 0;
+        }
+
+        int start = (int) (read & mask);
+        int first = Math.min(count, data.length - start);
+        System.arraycopy(data, start, destination, offset, first);
+        System.arraycopy(data, 0, destination, offset + first, count - first);
+
+        // Hand the space back to the producer only after the samples are copied
+        readPosition.lazySet(read + count);
+        return count;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.musicbpm.analysis;
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Detects the tempo of a live audio stream in real time.
+ * A capture thread reads the {@link PcmSource} into a preallocated lock-free ring buffer;
+ * an analysis thread drains it through the onset detector and tempo tracker and reports
+ * the current estimate a few times per second. The capture path never allocates or locks,
+ * and if analysis falls behind, samples are dropped rather than stalling the capture.
+ *
+ * On a device the source is an {@link AudioRecordPcmSource}; on the JVM a
+ * {@link WavPcmSource} wrapped in a {@link PacedPcmSource} replays a file through the same path.
+ */
+public class LiveBpmDetector {
+
+    private static final int CAPTURE_BUFFER_SIZE = 1024;
+    // About 1.5 s of audio at 44.1 kHz
+    private static final int RING_BUFFER_SIZE = 1 << 16;
+    private static final int ANALYSIS_BUFFER_SIZE = 4096;
+    private static final int UPDATES_PER_SECOND = 4;
+    // Older onsets fade out of the autocorrelation so tempo changes are followed
+    private static final double MEMORY_SECONDS = 8.0;
+    private static final long IDLE_PARK_NANOS = 5_000_000L;
+    private static final int FRAMES_PER_SECOND = 43;
+
+    private final PcmSource source;
+    private final OnTempoListener listener;
+    private final FloatRingBuffer ringBuffer = new FloatRingBuffer(RING_BUFFER_SIZE);
+    private final float[] captureBuffer = new float[CAPTURE_BUFFER_SIZE];
+    private final float[] analysisBuffer = new float[ANALYSIS_BUFFER_SIZE];
+
+    private volatile boolean running;
+    private volatile boolean captureFinished;
+    private volatile long droppedSamples;
+    private Thread captureThread;
+    private Thread analysisThread;
+
+    public LiveBpmDetector(PcmSource source, OnTempoListener listener) {
+        this.source = source;
+        this.listener = listener;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        captureFinished = false;
+
+        captureThread = new Thread(this::captureLoop, "LiveBpmCapture");
+        captureThread.setPriority(Thread.MAX_PRIORITY);
+        analysisThread = new Thread(this::analysisLoop, "LiveBpmAnalysis");
+        captureThread.start();
+        analysisThread.start();
+    }
+
+    /**
+     * Stop both threads and close the source
+     */
+    public synchronized void stop() {
+        if (captureThread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(analysisThread);
+        try {
+            captureThread.join();
+            analysisThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        captureThread = null;
+        analysisThread = null;
+        try {
+            source.close();
+        } catch (IOException e) {
+            // Nothing left to do with a source that fails to close
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Get the number of samples lost because analysis could not keep up
+     */
+    public long getDroppedSamples() {
+        return droppedSamples;
+    }
+
+    private void captureLoop() {
+        try {
+            while (running) {
+                int read = source.read(captureBuffer, 0, CAPTURE_BUFFER_SIZE);
+                if (read < 0) {
+                    break;
+                }
+                int written = ringBuffer.write(captureBuffer, 0, read);
+                if (written < read) {
+                    droppedSamples += read - written;
+                }
+                LockSupport.unpark(analysisThread);
+            }
+        } catch (IOException e) {
+            listener.onError(e.getMessage());
+        } finally {
+            captureFinished = true;
+            LockSupport.unpark(analysisThread);
+        }
+    }
+
+    private void analysisLoop() {
+        int sampleRate = source.getSampleRate();
+        int frameSize = Math.max(256, Integer.highestOneBit(sampleRate / FRAMES_PER_SECOND));
+        SpectralFluxOnsetDetector detector = new SpectralFluxOnsetDetector(frameSize, frameSize / 2);
+        AutocorrelationTempoTracker tracker =
+                new AutocorrelationTempoTracker((double) sampleRate / detector.getHopSize());
+        tracker.setMemory(MEMORY_SECONDS);
+
+        int samplesPerUpdate = sampleRate / UPDATES_PER_SECOND;
+        int samplesSinceUpdate = 0;
+
+        while (true) {
+            int read = ringBuffer.read(analysisBuffer, 0, ANALYSIS_BUFFER_SIZE);
+            if (read > 0) {
+                detector.process(analysisBuffer, 0, read, tracker);
+                samplesSinceUpdate += read;
+                if (samplesSinceUpdate >= samplesPerUpdate) {
+                    samplesSinceUpdate = 0;
+                    listener.onTempo(tracker.getBpm(), tracker.getConfidence());
+                }
+            } else if (captureFinished || !running) {
+                break;
+            } else {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+
+        if (samplesSinceUpdate > 0) {
+            listener.onTempo(tracker.getBpm(), tracker.getConfidence());
+        }
+        running = false;
+    }
+
+    /**
+     * Callback interface for live tempo updates, called on the analysis thread
+     */
+    public interface OnTempoListener {
+        void onTempo(double bpm, double confidence);
+        void onError(String error);
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.musicbpm.analysis;
+
+import android.content.Context;
+import android.media.AudioFormat;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.net.Uri;
+import android.os.Build;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Decodes any audio file supported by the device (MP3, AAC, FLAC, Ogg...) to mono PCM
+ * with MediaExtractor and MediaCodec. Decoded buffers are consumed as they are produced,
+ * so only a few codec buffers are in memory at any time.
+ */
+public class MediaCodecPcmSource implements PcmSource {
+
+    private static final long DEQUEUE_TIMEOUT_US = 10000;
+
+    private final MediaExtractor extractor;
+    private final MediaCodec codec;
+    private final MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+
+    private int sampleRate;
+    private int channels;
+    private boolean floatOutput;
+
+    private ByteBuffer currentOutput;
+    private int currentOutputIndex = -1;
+    private boolean inputDone;
+    private boolean outputDone;
+
+    public MediaCodecPcmSource(Context context, Uri uri) throws IOException {
+        extractor = new MediaExtractor();
+        extractor.setDataSource(context, uri, null);
+
+        MediaFormat format = null;
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            MediaFormat trackFormat = extractor.getTrackFormat(i);
+            String mime = trackFormat.getString(MediaFormat.KEY_MIME);
+            if (mime != null && mime.startsWith("audio/")) {
+                extractor.selectTrack(i);
+                format = trackFormat;
+                break;
+            }
+        }
+        if (format == null) {
+            extractor.release();
+            throw new IOException("No audio track found");
+        }
+
+        sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+        channels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+
+        try {
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+        } catch (IOException | RuntimeException e) {
+            extractor.release();
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+
+        // Decode up to the first output so the real output sample rate is known
+        // (e.g. HE-AAC decodes to twice the rate declared by the container)
+        nextOutputBuffer();
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int read(float[] buffer, int offset, int length) throws IOException {
+        while (currentOutput == null || !currentOutput.hasRemaining()) {
+            releaseCurrentOutput();
+            if (!nextOutputBuffer()) {
+                return -1;
+            }
+        }
+
+        int bytesPerSample = floatOutput ? 4 : 2;
+        int frames = Math.min(length, currentOutput.remaining() / (bytesPerSample * channels));
+        float scale = 1f / channels;
+        for (int frame = 0; frame < frames; frame++) {
+            float sum = 0f;
+            for (int channel = 0; channel < channels; channel++) {
+                sum += floatOutput ? currentOutput.getFloat() : currentOutput.getShort() / 32768f;
+            }
+            buffer[offset + frame] = sum * scale;
+        }
+        return frames;
+    }
+
+    /**
+     * Run the codec until a decoded buffer is available
+     * @return false at the end of the stream
+     */
+    private boolean nextOutputBuffer() throws IOException {
+        while (!outputDone) {
+            if (!inputDone) {
+                queueInput();
+            }
+
+            int index;
+            try {
+                index = codec.dequeueOutputBuffer(bufferInfo, DEQUEUE_TIMEOUT_US);
+            } catch (IllegalStateException e) {
+                throw new IOException("Audio decoder failed", e);
+            }
+
+            if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                readOutputFormat(codec.getOutputFormat());
+            } else if (index >= 0) {
+                if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                    outputDone = true;
+                }
+                if (bufferInfo.size == 0) {
+                    codec.releaseOutputBuffer(index, false);
+                    continue;
+                }
+                ByteBuffer output = codec.getOutputBuffer(index);
+                output.position(bufferInfo.offset);
+                output.limit(bufferInfo.offset + bufferInfo.size);
+                currentOutput = output.slice().order(ByteOrder.nativeOrder());
+                currentOutputIndex = index;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void queueInput() {
+        int index = codec.dequeueInputBuffer(DEQUEUE_TIMEOUT_US);
+        if (index < 0) {
+            return;
+        }
+        ByteBuffer input = codec.getInputBuffer(index);
+        int size = extractor.readSampleData(input, 0);
+        if (size < 0) {
+            codec.queueInputBuffer(index, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+            inputDone = true;
+        } else {
+            codec.queueInputBuffer(index, 0, size, extractor.getSampleTime(), 0);
+            extractor.advance();
+        }
+    }
+
+    private void readOutputFormat(MediaFormat format) {
+        sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+        channels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+        floatOutput = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                && format.containsKey(MediaFormat.KEY_PCM_ENCODING)
+                && format.getInteger(MediaFormat.KEY_PCM_ENCODING) == AudioFormat.ENCODING_PCM_FLOAT;
+    }
+
+    private void releaseCurrentOutput() {
+        if (currentOutputIndex >= 0) {
+            codec.releaseOutputBuffer(currentOutputIndex, false);
+            currentOutputIndex = -1;
+            currentOutput = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        releaseCurrentOutput();
+        try {
+            codec.stop();
+        } catch (IllegalStateException e) {
+            // Codec already in error state, release anyway
+        }
+        codec.release();
+        extractor.release();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.musicbpm.analysis;
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Wraps a source so that it delivers samples at a real-time pace, like a microphone.
+ * Used to replay WAV files through {@link LiveBpmDetector} off the device.
+ */
+public class PacedPcmSource implements PcmSource {
+
+    private final PcmSource delegate;
+    private final double speed;
+    private long startNanos;
+    private long samplesDelivered;
+
+    /**
+     * @param delegate Source to pace
+     * @param speed Playback speed; 1 is real time
+     */
+    public PacedPcmSource(PcmSource delegate, double speed) {
+        if (speed <= 0) {
+            throw new IllegalArgumentException("speed must be positive");
+        }
+        this.delegate = delegate;
+        this.speed = speed;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return delegate.getSampleRate();
+    }
+
+    @Override
+    public int read(float[] buffer, int offset, int length) throws IOException {
+        if (samplesDelivered == 0) {
+            startNanos = System.nanoTime();
+        }
+        int read = delegate.read(buffer, offset, length);
+        if (read <= 0) {
+            return read;
+        }
+        samplesDelivered += read;
+
+        // Wait until the wall clock catches up with the audio delivered so far
+        long dueNanos = startNanos + (long) (samplesDelivered * 1e9 / (getSampleRate() * speed));
+        long waitNanos;
+        while ((waitNanos = dueNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, waitNanos);
+        }
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
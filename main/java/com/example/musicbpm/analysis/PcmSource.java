@@ -0,0 +1,27 @@
+package com.example.musicbpm.analysis;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Source of decoded audio for the analysis engine.
+ * Implementations decode incrementally and mix all channels down to mono,
+ * so a whole track never has to be held in memory.
+ */
+public interface PcmSource extends Closeable {
+
+    /**
+     * Get the sample rate of the decoded audio
+     * @return Samples per second
+     */
+    int getSampleRate();
+
+    /**
+     * Read the next mono samples, scaled to [-1, 1]
+     * @param buffer Destination buffer
+     * @param offset First index to write
+     * @param length Maximum number of samples to read
+     * @return Number of samples read, or -1 at the end of the stream
+     */
+    int read(float[] buffer, int offset, int length) throws IOException;
+}
@@ -0,0 +1,113 @@
+package com.example.musicbpm.analysis;
+
+/**
+ * Computes an onset-strength envelope from streaming audio using spectral flux.
+ * Audio is cut into overlapping Hann-windowed frames; each frame's log-compressed
+ * magnitude spectrum is compared with the previous one and the summed increase is
+ * emitted as one onset value per hop. All buffers are allocated up front.
+ */
+public class SpectralFluxOnsetDetector {
+
+    public static final int DEFAULT_FRAME_SIZE = 1024;
+    public static final int DEFAULT_HOP_SIZE = 512;
+
+    // Compression factor of log(1 + gamma * magnitude)
+    private static final float LOG_COMPRESSION = 100f;
+
+    private final Fft fft;
+    private final int frameSize;
+    private final int hopSize;
+    private final float[] window;
+    private final float[] frame;
+    private final float[] re;
+    private final float[] im;
+    private final float[] previousMagnitudes;
+    private int frameFill;
+    private boolean hasPrevious;
+
+    public SpectralFluxOnsetDetector() {
+        this(DEFAULT_FRAME_SIZE, DEFAULT_HOP_SIZE);
+    }
+
+    /**
+     * @param frameSize FFT size in samples (power of two)
+     * @param hopSize Samples between consecutive frames
+     */
+    public SpectralFluxOnsetDetector(int frameSize, int hopSize) {
+        if (hopSize <= 0 || hopSize > frameSize) {
+            throw new IllegalArgumentException("hopSize must be in (0, frameSize]");
+        }
+        this.fft = new Fft(frameSize);
+        this.frameSize = frameSize;
+        this.hopSize = hopSize;
+        this.window = new float[frameSize];
+        this.frame = new float[frameSize];
+        this.re = new float[frameSize];
+        this.im = new float[frameSize];
+        this.previousMagnitudes = new float[frameSize / 2 + 1];
+
+        for (int i = 0; i < frameSize; i++) {
+            window[i] = (float) (0.5 - 0.5 * Math.cos(2.0 * Math.PI * i / frameSize));
+        }
+    }
+
+    public int getHopSize() {
+        return hopSize;
+    }
+
+    /**
+     * Feed mono samples; an onset value is passed to the sink for every completed hop
+     */
+    public void process(float[] samples, int offset, int length, OnsetSink sink) {
+        int end = offset + length;
+        int position = offset;
+        while (position < end) {
+            int count = Math.min(end - position, frameSize - frameFill);
+            System.arraycopy(samples, position, frame, frameFill, count);
+            frameFill += count;
+            position += count;
+
+            if (frameFill == frameSize) {
+                sink.onOnset(computeFlux());
+                // Keep the overlapping part for the next frame
+                System.arraycopy(frame, hopSize, frame, 0, frameSize - hopSize);
+                frameFill = frameSize - hopSize;
+            }
+        }
+    }
+
+    private float computeFlux() {
+        for (int i = 0; i < frameSize; i++) {
+            re[i] = frame[i] * window[i];
+            im[i] = 0f;
+        }
+        fft.transform(re, im);
+
+        float flux = 0f;
+        int bins = frameSize / 2 + 1;
+        for (int k = 0; k < bins; k++) {
+            float magnitude = (float) Math.log1p(LOG_COMPRESSION * Math.sqrt(re[k] * re[k] + im[k] * im[k]));
+            if (hasPrevious) {
+                float increase = magnitude - previousMagnitudes[k];
+                if (increase > 0f) {
+                    flux += increase;
+                }
+            }
+            previousMagnitudes[k] = magnitude;
+        }
+        hasPrevious = true;
+        return flux;
+    }
+
+    public void reset() {
+        frameFill = 0;
+        hasPrevious = false;
+    }
+
+    /**
+     * Receiver of onset-strength values
+     */
+    public interface OnsetSink {
+        void onOnset(float strength);
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.musicbpm.analysis;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads uncompressed WAV files (8/16/24/32-bit integer PCM or 32-bit float).
+ * Pure Java, so the analysis engine can run on the JVM without Android.
+ */
+public class WavPcmSource implements PcmSource {
+
+    private static final int FORMAT_PCM = 1;
+    private static final int FORMAT_FLOAT = 3;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+    private static final int READ_BUFFER_FRAMES = 4096;
+
+    private final InputStream input;
+    private final int sampleRate;
+    private final int channels;
+    private final int bitsPerSample;
+    private final boolean isFloat;
+    private final int blockAlign;
+    private final byte[] readBuffer;
+    private long remainingBytes;
+
+    public WavPcmSource(File file) throws IOException {
+        this(new FileInputStream(file));
+    }
+
+    public WavPcmSource(InputStream stream) throws IOException {
+        this.input = stream instanceof BufferedInputStream ? stream : new BufferedInputStream(stream);
+
+        byte[] header = new byte[12];
+        readFully(header, 12);
+        if (!chunkIdEquals(header, 0, "RIFF") || !chunkIdEquals(header, 8, "WAVE")) {
+            throw new IOException("Not a WAV file");
+        }
+
+        int format = -1;
+        int rate = 0;
+        int channelCount = 0;
+        int bits = 0;
+        int align = 0;
+        byte[] chunkHeader = new byte[8];
+        while (true) {
+            readFully(chunkHeader, 8);
+            long chunkSize = readUInt32(chunkHeader, 4);
+
+            if (chunkIdEquals(chunkHeader, 0, "fmt ")) {
+                if (chunkSize < 16) {
+                    throw new IOException("Invalid WAV header");
+                }
+                byte[] fmt = new byte[(int) chunkSize];
+                readFully(fmt, fmt.length);
+                format = readUInt16(fmt, 0);
+                channelCount = readUInt16(fmt, 2);
+                rate = (int) readUInt32(fmt, 4);
+                align = readUInt16(fmt, 12);
+                bits = readUInt16(fmt, 14);
+                if (format == FORMAT_EXTENSIBLE && fmt.length >= 26) {
+                    // The actual format is the first two bytes of the sub-format GUID
+                    format = readUInt16(fmt, 24);
+                }
+                skipPadding(chunkSize);
+            } else if (chunkIdEquals(chunkHeader, 0, "data")) {
+                remainingBytes = chunkSize;
+                break;
+            } else {
+                skipFully(chunkSize);
+                skipPadding(chunkSize);
+            }
+        }
+
+        if (format != FORMAT_PCM && format != FORMAT_FLOAT) {
+            throw new IOException("Unsupported WAV format: " + format);
+        }
+        if (format == FORMAT_FLOAT && bits != 32) {
+            throw new IOException("Unsupported float sample size: " + bits);
+        }
+        if (bits != 8 && bits != 16 && bits != 24 && bits != 32) {
+            throw new IOException("Unsupported sample size: " + bits);
+        }
+        if (channelCount < 1 || rate <= 0 || align != channelCount * (bits / 8)) {
+            throw new IOException("Invalid WAV header");
+        }
+
+        this.sampleRate = rate;
+        this.channels = channelCount;
+        this.bitsPerSample = bits;
+        this.isFloat = format == FORMAT_FLOAT;
+        this.blockAlign = align;
+        this.readBuffer = new byte[READ_BUFFER_FRAMES * align];
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannelCount() {
+        return channels;
+    }
+
+    @Override
+    public int read(float[] buffer, int offset, int length) throws IOException {
+        if (remainingBytes < blockAlign) {
+            return -1;
+        }
+
+        int frames = (int) Math.min(Math.min(length, READ_BUFFER_FRAMES), remainingBytes / blockAlign);
+        int bytes = frames * blockAlign;
+        int filled = 0;
+        while (filled < bytes) {
+            int n = input.read(readBuffer, filled, bytes - filled);
+            if (n < 0) {
+                break;
+            }
+            filled += n;
+        }
+        frames = filled / blockAlign;
+        remainingBytes -= filled;
+        if (frames == 0) {
+            remainingBytes = 0;
+            return -1;
+        }
+
+        int bytesPerSample = bitsPerSample / 8;
+        float scale = 1f / channels;
+        int position = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            float sum = 0f;
+            for (int channel = 0; channel < channels; channel++) {
+                sum += decodeSample(position);
+                position += bytesPerSample;
+            }
+            buffer[offset + frame] = sum * scale;
+        }
+        return frames;
+    }
+
+    private float decodeSample(int position) {
+        byte[] b = readBuffer;
+        switch (bitsPerSample) {
+            case 8:
+                return ((b[position] & 0xFF) - 128) / 128f;
+            case 16:
+                return (short) ((b[position] & 0xFF) | (b[position + 1] << 8)) / 32768f;
+            case 24:
+                return ((b[position] & 0xFF) | ((b[position + 1] & 0xFF) << 8)
+                        | (b[position + 2] << 16)) / 8388608f;
+            default:
+                int bits = (b[position] & 0xFF) | ((b[position + 1] & 0xFF) << 8)
+                        | ((b[position + 2] & 0xFF) << 16) | (b[position + 3] << 24);
+                return isFloat ? Float.intBitsToFloat(bits) : bits / 2147483648f;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private void readFully(byte[] buffer, int length) throws IOException {
+        int filled = 0;
+        while (filled < length) {
+            int n = input.read(buffer, filled, length - filled);
+            if (n < 0) {
+                throw new EOFException("Truncated WAV file");
+            }
+            filled += n;
+        }
+    }
+
+    private void skipFully(long bytes) throws IOException {
+        while (bytes > 0) {
+            long skipped = input.skip(bytes);
+            if (skipped <= 0) {
+                if (input.read() < 0) {
+                    throw new EOFException("Truncated WAV file");
+                }
+                skipped = 1;
+            }
+            bytes -= skipped;
+        }
+    }
+
+    private void skipPadding(long chunkSize) throws IOException {
+        // RIFF chunks are word aligned
+        if ((chunkSize & 1) != 0) {
+            skipFully(1);
+        }
+    }
+
+    private static boolean chunkIdEquals(byte[] data, int offset, String id) {
+        for (int i = 0; i < 4; i++) {
+            if (data[offset + i] != id.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readUInt16(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | ((data[offset + 1] & 0xFF) << 8);
+    }
+
+    private static long readUInt32(byte[] data, int offset) {
+        return (data[offset] & 0xFFL) | ((data[offset + 1] & 0xFFL) << 8)
+                | ((data[offset + 2] & 0xFFL) << 16) | ((data[offset + 3] & 0xFFL) << 24);
+    }
+}
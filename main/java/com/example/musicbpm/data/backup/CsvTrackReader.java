@@ -0,0 +1,134 @@
+package com.example.musicbpm.data.backup;
+
+import com.example.musicbpm.data.database.MusicTrack;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads CSV written by CsvTrackWriter or edited in a spreadsheet. Columns are matched by
+ * the header row, in any order; unknown columns are ignored. Quoted cells may hold commas,
+ * quotes and line breaks.
+ */
+class CsvTrackReader implements TrackReader {
+
+    private final Reader reader;
+    private final String[] columns;
+    // Line the current row starts on, for error messages
+    private int line = 1;
+    private int nextLine = 1;
+    private int pushback = -1;
+
+    CsvTrackReader(Reader reader) throws IOException {
+        this.reader = reader;
+        List<String> header = readRow();
+        if (header == null) {
+            throw new IOException("Empty file");
+        }
+        columns = new String[header.size()];
+        boolean hasTitle = false;
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = header.get(i).trim().toLowerCase(Locale.ROOT);
+            hasTitle |= columns[i].equals(LibraryBackup.FIELD_TITLE);
+        }
+        if (!hasTitle) {
+            throw new IOException("Not a library backup: no " + LibraryBackup.FIELD_TITLE + " column");
+        }
+    }
+
+    @Override
+    public MusicTrack next() throws IOException {
+        List<String> row;
+        do {
+            row = readRow();
+            if (row == null) {
+                return null;
+            }
+            // Blank lines, often left at the end by editors
+        } while (row.size() == 1 && row.get(0).isEmpty());
+
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < columns.length && i < row.size(); i++) {
+            fields.put(columns[i], row.get(i));
+        }
+        return LibraryBackup.toTrack(fields, "line " + line);
+    }
+
+    /**
+     * @return Cells of the next row, or null at the end of the file
+     */
+    private List<String> readRow() throws IOException {
+        line = nextLine;
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("line " + line + ": unterminated quote");
+                }
+                if (c == '"') {
+                    int following = read();
+                    if (following == '"') {
+                        cell.append('"');
+                    } else {
+                        quoted = false;
+                        unread(following);
+                    }
+                } else {
+                    if (c == '\n') {
+                        nextLine++;
+                    }
+                    cell.append((char) c);
+                }
+            } else if (c == '"' && cell.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int following = read();
+                    if (following != '\n') {
+                        unread(following);
+                    }
+                }
+                if (c != -1) {
+                    nextLine++;
+                }
+                cells.add(cell.toString());
+                return cells;
+            } else {
+                cell.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushback != -1) {
+            int c = pushback;
+            pushback = -1;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private void unread(int c) {
+        pushback = c;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.musicbpm.data.backup;
+
+import com.example.musicbpm.data.database.MusicTrack;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Backup as CSV (RFC 4180): a header row with the field names, then one row per track.
+ * Tags stay in one cell, comma separated.
+ */
+class CsvTrackWriter implements TrackWriter {
+
+    private final Writer writer;
+
+    CsvTrackWriter(Writer writer) throws IOException {
+        this.writer = writer;
+        writeRow(LibraryBackup.FIELDS);
+    }
+
+    @Override
+    public void write(MusicTrack track) throws IOException {
+        // Same order as LibraryBackup.FIELDS
+        writeRow(new String[]{
+                track.getTitle(),
+                track.getArtist(),
+                LibraryBackup.formatBpm(track.getBpmCenti()),
+                LibraryBackup.formatBpm(track.getAltBpmLowCenti()),
+                LibraryBackup.formatBpm(track.getAltBpmHighCenti()),
+                track.getLink(),
+                track.getPlatform(),
+                track.getNotes(),
+                track.getTags(),
+                String.valueOf(track.getCreatedAt()),
+                track.getAlbumArtUrl()
+        });
+    }
+
+    private void writeRow(String[] cells) throws IOException {
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCell(cells[i]);
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeCell(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.musicbpm.data.backup;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.example.musicbpm.data.database.MusicTrack;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a backup written by JsonTrackWriter. Unknown fields are skipped, so files from
+ * the same version with extra fields still load.
+ */
+class JsonTrackReader implements TrackReader {
+
+    private final JsonReader reader;
+    private boolean inTracks;
+    private int index;
+
+    JsonTrackReader(Reader in) throws IOException {
+        reader = new JsonReader(in);
+        reader.beginObject();
+        // Header fields come before the tracks array
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("format")) {
+                if (!LibraryBackup.FORMAT_NAME.equals(reader.nextString())) {
+                    throw new IOException("Not a library backup");
+                }
+            } else if (name.equals("version")) {
+                if (reader.nextInt() > LibraryBackup.VERSION) {
+                    throw new IOException("Backup was made by a newer version of the app");
+                }
+            } else if (name.equals("tracks")) {
+                reader.beginArray();
+                inTracks = true;
+                return;
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    @Override
+    public MusicTrack next() throws IOException {
+        if (!inTracks) {
+            return null;
+        }
+        if (!reader.hasNext()) {
+            reader.endArray();
+            inTracks = false;
+            return null;
+        }
+        index++;
+        Map<String, String> fields = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+            } else if (name.equals(LibraryBackup.FIELD_TAGS) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                fields.put(name, readTags());
+            } else if (reader.peek() == JsonToken.BEGIN_OBJECT || reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+            } else {
+                // Numbers come back as their text, which keeps BPM decimals exact
+                fields.put(name, reader.nextString());
+            }
+        }
+        reader.endObject();
+        return LibraryBackup.toTrack(fields, "track " + index);
+    }
+
+    private String readTags() throws IOException {
+        List<String> tags = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            tags.add(reader.nextString());
+        }
+        reader.endArray();
+        return String.join(",", tags);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
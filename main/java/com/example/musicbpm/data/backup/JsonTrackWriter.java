@@ -0,0 +1,72 @@
+package com.example.musicbpm.data.backup;
+
+import android.util.JsonWriter;
+
+import com.example.musicbpm.data.database.Converters;
+import com.example.musicbpm.data.database.MusicTrack;
+import com.example.musicbpm.utils.FixedBpm;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Backup as JSON: {"format": "musicbpm-library", "version": 1, "tracks": [{...}, ...]}.
+ * Empty fields are left out; tags are an array of names, BPMs plain numbers.
+ */
+class JsonTrackWriter implements TrackWriter {
+
+    private final JsonWriter writer;
+
+    JsonTrackWriter(Writer out) throws IOException {
+        writer = new JsonWriter(out);
+        writer.beginObject();
+        writer.name("format").value(LibraryBackup.FORMAT_NAME);
+        writer.name("version").value(LibraryBackup.VERSION);
+        writer.name("tracks").beginArray();
+    }
+
+    @Override
+    public void write(MusicTrack track) throws IOException {
+        writer.beginObject();
+        writer.name(LibraryBackup.FIELD_TITLE).value(track.getTitle());
+        writeString(LibraryBackup.FIELD_ARTIST, track.getArtist());
+        writeBpm(LibraryBackup.FIELD_BPM, track.getBpmCenti());
+        writeBpm(LibraryBackup.FIELD_ALT_BPM_LOW, track.getAltBpmLowCenti());
+        writeBpm(LibraryBackup.FIELD_ALT_BPM_HIGH, track.getAltBpmHighCenti());
+        writer.name(LibraryBackup.FIELD_LINK).value(track.getLink());
+        writeString(LibraryBackup.FIELD_PLATFORM, track.getPlatform());
+        writeString(LibraryBackup.FIELD_NOTES, track.getNotes());
+        writer.name(LibraryBackup.FIELD_TAGS).beginArray();
+        for (String tag : Converters.toList(track.getTags())) {
+            writer.value(tag);
+        }
+        writer.endArray();
+        writer.name(LibraryBackup.FIELD_CREATED_AT).value(track.getCreatedAt());
+        writeString(LibraryBackup.FIELD_ALBUM_ART_URL, track.getAlbumArtUrl());
+        writer.endObject();
+    }
+
+    private void writeString(String name, String value) throws IOException {
+        if (value != null && !value.isEmpty()) {
+            writer.name(name).value(value);
+        }
+    }
+
+    private void writeBpm(String name, int centiBpm) throws IOException {
+        if (centiBpm > 0) {
+            writer.name(name).value(FixedBpm.toDouble(centiBpm));
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.endArray();
+        writer.endObject();
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
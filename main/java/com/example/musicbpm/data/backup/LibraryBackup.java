@@ -0,0 +1,149 @@
+package com.example.musicbpm.data.backup;
+
+import com.example.musicbpm.data.database.MusicTrack;
+import com.example.musicbpm.utils.FixedBpm;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Library backup files: a JSON document or a CSV sheet with one track per entry.
+ * Both are written and read one track at a time, so a file of any size goes through in constant memory.
+ */
+public final class LibraryBackup {
+
+    public static final String FORMAT_JSON = "json";
+    public static final String FORMAT_CSV = "csv";
+
+    public static final String MIME_JSON = "application/json";
+    public static final String MIME_CSV = "text/csv";
+
+    /** Written in the JSON header; files from a newer version are refused */
+    static final String FORMAT_NAME = "musicbpm-library";
+    static final int VERSION = 1;
+
+    // Field names shared by the JSON objects and the CSV header
+    static final String FIELD_TITLE = "title";
+    static final String FIELD_ARTIST = "artist";
+    static final String FIELD_BPM = "bpm";
+    static final String FIELD_ALT_BPM_LOW = "alt_bpm_low";
+    static final String FIELD_ALT_BPM_HIGH = "alt_bpm_high";
+    static final String FIELD_LINK = "link";
+    static final String FIELD_PLATFORM = "platform";
+    static final String FIELD_NOTES = "notes";
+    static final String FIELD_TAGS = "tags";
+    static final String FIELD_CREATED_AT = "created_at";
+    static final String FIELD_ALBUM_ART_URL = "album_art_url";
+
+    static final String[] FIELDS = {
+            FIELD_TITLE, FIELD_ARTIST, FIELD_BPM, FIELD_ALT_BPM_LOW, FIELD_ALT_BPM_HIGH, FIELD_LINK,
+            FIELD_PLATFORM, FIELD_NOTES, FIELD_TAGS, FIELD_CREATED_AT, FIELD_ALBUM_ART_URL
+    };
+
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private LibraryBackup() {
+    }
+
+    /**
+     * @param format FORMAT_JSON or FORMAT_CSV
+     * @return Writer that owns the stream and closes it
+     */
+    public static TrackWriter openWriter(OutputStream out, String format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        return FORMAT_CSV.equals(format) ? new CsvTrackWriter(writer) : new JsonTrackWriter(writer);
+    }
+
+    /**
+     * Open a backup in either format; a file starting with '{' is JSON, anything else CSV
+     * @return Reader that owns the stream and closes it
+     * @throws IOException if the file is not a backup this version can read
+     */
+    public static TrackReader openReader(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        try {
+            // Spreadsheet apps often save CSV with a byte order mark
+            reader.mark(1);
+            if (reader.read() != BYTE_ORDER_MARK) {
+                reader.reset();
+            }
+            return isJson(reader) ? new JsonTrackReader(reader) : new CsvTrackReader(reader);
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    private static boolean isJson(BufferedReader reader) throws IOException {
+        int c;
+        do {
+            reader.mark(1);
+            c = reader.read();
+        } while (c != -1 && Character.isWhitespace(c));
+        reader.reset();
+        return c == '{';
+    }
+
+    /**
+     * Build a track from one backup entry. The platform is kept as saved; the repository
+     * canonicalizes the link when the track is written
+     * @param fields Values by FIELD_ name; a missing field and an empty value are the same
+     * @param where Position for error messages, e.g. "line 12"
+     * @throws IOException if the title, link or BPM is missing or a number does not parse
+     */
+    static MusicTrack toTrack(Map<String, String> fields, String where) throws IOException {
+        String title = value(fields, FIELD_TITLE);
+        String link = value(fields, FIELD_LINK);
+        if (title == null || link == null) {
+            throw new IOException(where + ": missing " + (title == null ? FIELD_TITLE : FIELD_LINK));
+        }
+        try {
+            String createdAt = value(fields, FIELD_CREATED_AT);
+            MusicTrack track = new MusicTrack(title, value(fields, FIELD_ARTIST), bpm(fields, FIELD_BPM), link,
+                    value(fields, FIELD_PLATFORM), value(fields, FIELD_NOTES), value(fields, FIELD_TAGS),
+                    createdAt != null ? Long.parseLong(createdAt) : System.currentTimeMillis());
+            track.setAltBpmLowCenti(bpm(fields, FIELD_ALT_BPM_LOW));
+            track.setAltBpmHighCenti(bpm(fields, FIELD_ALT_BPM_HIGH));
+            track.setAlbumArtUrl(value(fields, FIELD_ALBUM_ART_URL));
+            if (track.getBpmCenti() <= 0) {
+                throw new IOException(where + ": missing " + FIELD_BPM);
+            }
+            return track;
+        } catch (NumberFormatException e) {
+            throw new IOException(where + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String value(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        return value != null && !value.trim().isEmpty() ? value : null;
+    }
+
+    private static int bpm(Map<String, String> fields, String name) {
+        String value = value(fields, name);
+        return value != null ? FixedBpm.parse(value) : 0;
+    }
+
+    /**
+     * BPM as written to a file, null for 0 (no value)
+     */
+    static String formatBpm(int centiBpm) {
+        return centiBpm > 0 ? FixedBpm.format(centiBpm, true) : null;
+    }
+
+    /**
+     * Mime type to create a file of the format with
+     */
+    public static String mimeType(String format) {
+        return FORMAT_CSV.equals(format) ? MIME_CSV : MIME_JSON;
+    }
+}
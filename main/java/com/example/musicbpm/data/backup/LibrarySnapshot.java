@@ -0,0 +1,47 @@
+package com.example.musicbpm.data.backup;
+
+/**
+ * Binary library snapshot: a whole copy of music_tracks, ids included, several times smaller
+ * and faster to read back than the JSON backup. Restoring one replaces the library.
+ *
+ * <pre>
+ * header   "MBPS" magic, 1 byte version (not compressed)
+ * body     zlib stream (deflate with an Adler-32 checksum):
+ *          varint expected track count (for progress only)
+ *          track*
+ *          varint 0, varint track count (end marker and check)
+ * track    varint id delta (>= 1, ids ascending), zigzag varint created_at delta,
+ *          string title, dict artist, varint bpm, varint alt bpm low, varint alt bpm high,
+ *          string link, dict platform, nullable external id, nullable notes,
+ *          varint tag count + dict tag*, nullable album art url
+ * string   varint UTF-8 byte length, bytes
+ * nullable varint (length + 1), bytes; 0 for null
+ * dict     varint 0 for null, 1 for a new value (string follows, added to the dictionary),
+ *          n >= 2 for dictionary entry n - 2
+ * </pre>
+ * BPMs are in hundredths (see FixedBpm). Artists, platforms and tags share one dictionary that
+ * grows as the file is read, so each repeated value costs one or two bytes.
+ */
+public final class LibrarySnapshot {
+
+    public static final String MIME_TYPE = "application/octet-stream";
+    public static final String FILE_EXTENSION = "mbps";
+
+    static final byte[] MAGIC = {'M', 'B', 'P', 'S'};
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = MAGIC.length + 1;
+
+    // Dictionary codes
+    static final int DICT_NULL = 0;
+    static final int DICT_NEW = 1;
+    static final int DICT_FIRST_ENTRY = 2;
+
+    // Values past this many are written inline every time, which bounds the memory on both ends
+    static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+    // Encode and compress buffer size
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private LibrarySnapshot() {
+    }
+}
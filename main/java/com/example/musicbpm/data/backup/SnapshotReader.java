@@ -0,0 +1,238 @@
+package com.example.musicbpm.data.backup;
+
+import com.example.musicbpm.data.database.Converters;
+import com.example.musicbpm.data.database.MusicTrack;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a LibrarySnapshot from a channel one track at a time, see SnapshotWriter.
+ */
+public class SnapshotReader implements TrackReader {
+
+    private final ReadableByteChannel channel;
+    private final Inflater inflater = new Inflater();
+    private final ByteBuffer compressed = ByteBuffer.allocate(LibrarySnapshot.BUFFER_SIZE);
+    private final byte[] buffer = new byte[LibrarySnapshot.BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private final List<String> dictionary = new ArrayList<>();
+
+    private final int expectedCount;
+    private int lastId;
+    private long lastCreatedAt;
+    private int count;
+    private boolean finished;
+
+    /**
+     * Open a snapshot and read its header
+     * @throws IOException if the channel does not hold a snapshot this version can read
+     */
+    public SnapshotReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(LibrarySnapshot.HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header) < 0) {
+                throw new IOException("Not a library snapshot");
+            }
+        }
+        byte[] magic = new byte[LibrarySnapshot.MAGIC.length];
+        header.flip();
+        header.get(magic);
+        if (!Arrays.equals(magic, LibrarySnapshot.MAGIC)) {
+            throw new IOException("Not a library snapshot");
+        }
+        if (header.get() > LibrarySnapshot.VERSION) {
+            throw new IOException("Snapshot was made by a newer version of the app");
+        }
+        expectedCount = (int) readVarLong();
+    }
+
+    /**
+     * Number of tracks the snapshot was started with, for progress
+     */
+    public int getExpectedCount() {
+        return expectedCount;
+    }
+
+    /**
+     * @return Next track with its saved id; null after the last one
+     * @throws IOException if the snapshot is truncated or corrupt
+     */
+    @Override
+    public MusicTrack next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        long idDelta = readVarLong();
+        if (idDelta == 0) {
+            if (readVarLong() != count) {
+                throw new IOException("Snapshot is incomplete");
+            }
+            checkEnd();
+            finished = true;
+            return null;
+        }
+        lastId += (int) idDelta;
+        lastCreatedAt += unzigzag(readVarLong());
+
+        String title = readString();
+        String artist = readDictionary();
+        int bpmCenti = (int) readVarLong();
+        int altBpmLowCenti = (int) readVarLong();
+        int altBpmHighCenti = (int) readVarLong();
+        String link = readString();
+        String platform = readDictionary();
+        String externalId = readNullable();
+        String notes = readNullable();
+        int tagCount = (int) readVarLong();
+        List<String> tags = new ArrayList<>(tagCount);
+        for (int i = 0; i < tagCount; i++) {
+            tags.add(readDictionary());
+        }
+        MusicTrack track = new MusicTrack(title, artist, bpmCenti, link, platform, notes,
+                Converters.fromList(tags), lastCreatedAt);
+        track.setId(lastId);
+        track.setAltBpmLowCenti(altBpmLowCenti);
+        track.setAltBpmHighCenti(altBpmHighCenti);
+        track.setExternalId(externalId);
+        track.setAlbumArtUrl(readNullable());
+        count++;
+        return track;
+    }
+
+    private String readDictionary() throws IOException {
+        long code = readVarLong();
+        if (code == LibrarySnapshot.DICT_NULL) {
+            return null;
+        }
+        if (code == LibrarySnapshot.DICT_NEW) {
+            String value = readString();
+            if (dictionary.size() < LibrarySnapshot.MAX_DICTIONARY_SIZE) {
+                dictionary.add(value);
+            }
+            return value;
+        }
+        long index = code - LibrarySnapshot.DICT_FIRST_ENTRY;
+        if (index >= dictionary.size()) {
+            throw new IOException("Corrupt snapshot");
+        }
+        return dictionary.get((int) index);
+    }
+
+    private String readNullable() throws IOException {
+        long length = readVarLong();
+        return length == 0 ? null : readString(length - 1);
+    }
+
+    private String readString() throws IOException {
+        return readString(readVarLong());
+    }
+
+    private String readString(long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt snapshot");
+        }
+        byte[] bytes = new byte[(int) length];
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (position == limit) {
+                fill();
+            }
+            int count = Math.min(limit - position, bytes.length - offset);
+            System.arraycopy(buffer, position, bytes, offset, count);
+            position += count;
+            offset += count;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position == limit) {
+                fill();
+            }
+            byte b = buffer[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt snapshot");
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Inflate the next block of the body into the buffer, reading from the channel as needed
+     */
+    private void fill() throws IOException {
+        try {
+            while (true) {
+                int length = inflater.inflate(buffer, 0, buffer.length);
+                if (length > 0) {
+                    position = 0;
+                    limit = length;
+                    return;
+                }
+                if (inflater.finished() || inflater.needsDictionary()) {
+                    throw new EOFException("Snapshot is truncated");
+                }
+                if (inflater.needsInput()) {
+                    compressed.clear();
+                    int read = channel.read(compressed);
+                    if (read < 0) {
+                        throw new EOFException("Snapshot is truncated");
+                    }
+                    inflater.setInput(compressed.array(), 0, read);
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt snapshot", e);
+        }
+    }
+
+    /**
+     * Read to the end of the zlib stream after the end marker, which verifies its Adler-32 checksum
+     */
+    private void checkEnd() throws IOException {
+        if (position < limit) {
+            throw new IOException("Corrupt snapshot");
+        }
+        try {
+            while (!inflater.finished()) {
+                if (inflater.inflate(buffer, 0, buffer.length) > 0) {
+                    throw new IOException("Corrupt snapshot");
+                }
+                if (inflater.needsInput()) {
+                    compressed.clear();
+                    int read = channel.read(compressed);
+                    if (read < 0) {
+                        throw new EOFException("Snapshot is truncated");
+                    }
+                    inflater.setInput(compressed.array(), 0, read);
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt snapshot", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.musicbpm.data.backup;
+
+import com.example.musicbpm.data.database.Converters;
+import com.example.musicbpm.data.database.MusicTrack;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a LibrarySnapshot to a channel, one track at a time. Tracks are encoded into a buffer
+ * that is compressed and written out whenever it fills, so memory use does not grow with the library.
+ */
+public class SnapshotWriter implements TrackWriter {
+
+    private final WritableByteChannel channel;
+    private final Deflater deflater = new Deflater();
+    private final ByteBuffer raw = ByteBuffer.allocate(LibrarySnapshot.BUFFER_SIZE);
+    private final byte[] compressed = new byte[LibrarySnapshot.BUFFER_SIZE];
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    private int lastId;
+    private long lastCreatedAt;
+    private int count;
+
+    /**
+     * @param expectedCount Number of tracks about to be written, stored for restore progress
+     */
+    public SnapshotWriter(WritableByteChannel channel, int expectedCount) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(LibrarySnapshot.HEADER_SIZE);
+        header.put(LibrarySnapshot.MAGIC).put((byte) LibrarySnapshot.VERSION).flip();
+        writeFully(header);
+        writeVarLong(expectedCount);
+    }
+
+    /**
+     * @param track Saved track; ids must increase from one call to the next
+     * @throws IllegalArgumentException if the id is not above the previous one
+     */
+    @Override
+    public void write(MusicTrack track) throws IOException {
+        if (track.getId() <= lastId) {
+            throw new IllegalArgumentException("Tracks must be written in id order");
+        }
+        writeVarLong(track.getId() - lastId);
+        writeVarLong(zigzag(track.getCreatedAt() - lastCreatedAt));
+        lastId = track.getId();
+        lastCreatedAt = track.getCreatedAt();
+
+        writeString(track.getTitle());
+        writeDictionary(track.getArtist());
+        writeVarLong(track.getBpmCenti());
+        writeVarLong(track.getAltBpmLowCenti());
+        writeVarLong(track.getAltBpmHighCenti());
+        writeString(track.getLink());
+        writeDictionary(track.getPlatform());
+        writeNullable(track.getExternalId());
+        writeNullable(track.getNotes());
+        List<String> tags = Converters.toList(track.getTags());
+        writeVarLong(tags.size());
+        for (String tag : tags) {
+            writeDictionary(tag);
+        }
+        writeNullable(track.getAlbumArtUrl());
+        count++;
+    }
+
+    /**
+     * Write the end marker and flush the compressed stream; the snapshot is incomplete without it
+     */
+    @Override
+    public void finish() throws IOException {
+        writeVarLong(0);
+        writeVarLong(count);
+        compressRaw();
+        deflater.finish();
+        while (!deflater.finished()) {
+            writeCompressed();
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    private void writeDictionary(String value) throws IOException {
+        if (value == null) {
+            writeVarLong(LibrarySnapshot.DICT_NULL);
+            return;
+        }
+        Integer index = dictionary.get(value);
+        if (index != null) {
+            writeVarLong(LibrarySnapshot.DICT_FIRST_ENTRY + index);
+            return;
+        }
+        writeVarLong(LibrarySnapshot.DICT_NEW);
+        writeString(value);
+        if (dictionary.size() < LibrarySnapshot.MAX_DICTIONARY_SIZE) {
+            dictionary.put(value, dictionary.size());
+        }
+    }
+
+    private void writeNullable(String value) throws IOException {
+        if (value == null) {
+            writeVarLong(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length + 1L);
+        writeBytes(bytes);
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        writeBytes(bytes);
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!raw.hasRemaining()) {
+                compressRaw();
+            }
+            int length = Math.min(raw.remaining(), bytes.length - offset);
+            raw.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Unsigned LEB128: 7 bits per byte, high bit set on all but the last
+     */
+    private void writeVarLong(long value) throws IOException {
+        if (raw.remaining() < 10) {
+            compressRaw();
+        }
+        while ((value & ~0x7FL) != 0) {
+            raw.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        raw.put((byte) value);
+    }
+
+    /**
+     * Map signed to unsigned so small negative deltas stay short: 0, -1, 1, -2 become 0, 1, 2, 3
+     */
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private void compressRaw() throws IOException {
+        deflater.setInput(raw.array(), 0, raw.position());
+        while (!deflater.needsInput()) {
+            writeCompressed();
+        }
+        raw.clear();
+    }
+
+    private void writeCompressed() throws IOException {
+        int length = deflater.deflate(compressed, 0, compressed.length);
+        if (length > 0) {
+            writeFully(ByteBuffer.wrap(compressed, 0, length));
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        channel.close();
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.musicbpm.data.backup;
+
+import com.example.musicbpm.data.database.MusicTrack;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads tracks from a backup file one at a time, see LibraryBackup#openReader and SnapshotReader
+ */
+public interface TrackReader extends Closeable {
+
+    /**
+     * @return Next track with the saved fields set, id 0 unless the format keeps ids; null after the last one
+     * @throws IOException if the file is malformed or a track is missing its title, link or BPM
+     */
+    MusicTrack next() throws IOException;
+}
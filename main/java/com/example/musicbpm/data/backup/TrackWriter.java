@@ -0,0 +1,19 @@
+package com.example.musicbpm.data.backup;
+
+import com.example.musicbpm.data.database.MusicTrack;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes tracks to a backup file as they come, see LibraryBackup#openWriter and SnapshotWriter
+ */
+public interface TrackWriter extends Closeable {
+
+    void write(MusicTrack track) throws IOException;
+
+    /**
+     * Complete the file after the last track; closing without finishing leaves it truncated
+     */
+    void finish() throws IOException;
+}
@@ -0,0 +1,165 @@
+package com.example.musicbpm.data.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Entity class representing a background batch job over the whole library.
+ * The id of the last processed track is the checkpoint a killed run resumes from.
+ */
+@Entity(tableName = "analysis_jobs",
+        indices = {@Index(value = "status")})
+public class AnalysisJob {
+
+    public static final String STATUS_PENDING = "pending";
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_PAUSED = "paused";
+    public static final String STATUS_DONE = "done";
+    public static final String STATUS_FAILED = "failed";
+
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+
+    // Name of the per-track task, see TrackTasks
+    @NonNull
+    @ColumnInfo(name = "task")
+    private String task;
+
+    @NonNull
+    @ColumnInfo(name = "status")
+    private String status;
+
+    // Checkpoint: tracks are processed in id order, everything up to this id is done
+    @ColumnInfo(name = "last_track_id")
+    private int lastTrackId;
+
+    @ColumnInfo(name = "total")
+    private int total;
+
+    @ColumnInfo(name = "processed")
+    private int processed;
+
+    @ColumnInfo(name = "changed")
+    private int changed;
+
+    @ColumnInfo(name = "failed")
+    private int failed;
+
+    @ColumnInfo(name = "error")
+    private String error;
+
+    @ColumnInfo(name = "created_at")
+    private long createdAt;
+
+    @ColumnInfo(name = "updated_at")
+    private long updatedAt;
+
+    // Constructor
+    public AnalysisJob(@NonNull String task, long createdAt) {
+        this.task = task;
+        this.status = STATUS_PENDING;
+        this.createdAt = createdAt;
+        this.updatedAt = createdAt;
+    }
+
+    /**
+     * Check if the job still has tracks to process
+     */
+    public boolean isFinished() {
+        return STATUS_DONE.equals(status) || STATUS_FAILED.equals(status);
+    }
+
+    // Getters and Setters
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    @NonNull
+    public String getTask() {
+        return task;
+    }
+
+    public void setTask(@NonNull String task) {
+        this.task = task;
+    }
+
+    @NonNull
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(@NonNull String status) {
+        this.status = status;
+    }
+
+    public int getLastTrackId() {
+        return lastTrackId;
+    }
+
+    public void setLastTrackId(int lastTrackId) {
+        this.lastTrackId = lastTrackId;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(int processed) {
+        this.processed = processed;
+    }
+
+    public int getChanged() {
+        return changed;
+    }
+
+    public void setChanged(int changed) {
+        this.changed = changed;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
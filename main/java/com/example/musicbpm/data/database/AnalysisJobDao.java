@@ -0,0 +1,32 @@
+package com.example.musicbpm.data.database;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import androidx.room.Update;
+
+import java.util.List;
+
+/**
+ * Data Access Object for AnalysisJob entity.
+ * Synchronous methods are meant for the background workers only.
+ */
+@Dao
+public interface AnalysisJobDao {
+
+    @Insert
+    long insert(AnalysisJob job);
+
+    @Update
+    void update(AnalysisJob job);
+
+    @Query("SELECT * FROM analysis_jobs WHERE id = :id")
+    AnalysisJob getJob(long id);
+
+    @Query("SELECT * FROM analysis_jobs WHERE status IN ('pending', 'running', 'paused') ORDER BY id ASC")
+    List<AnalysisJob> getUnfinishedJobs();
+
+    @Query("SELECT * FROM analysis_jobs ORDER BY id DESC LIMIT 1")
+    LiveData<AnalysisJob> getLatestJob();
+}
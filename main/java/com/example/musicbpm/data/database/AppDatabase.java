@@ -1,18 +1,31 @@
 package com.example.musicbpm.data.database;
 
 import android.content.Context;
+import android.database.Cursor;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
-import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.example.musicbpm.utils.FixedBpm;
+import com.example.musicbpm.utils.LinkCanonicalizer;
+import com.example.musicbpm.utils.tempo.TempoOctaveResolver;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Main database class for the app.
  * Singleton pattern to ensure only one instance of the database exists.
  */
-@Database(entities = {MusicTrack.class}, version = 2, exportSchema = false)  // ← MUDADO PARA VERSION 2
-@TypeConverters({Converters.class})
+@Database(entities = {MusicTrack.class, MusicTrackFts.class, AnalysisJob.class, Tag.class, TrackTag.class,
+        LibraryStat.class},
+        version = 12, exportSchema = false)
 public abstract class AppDatabase extends RoomDatabase {
 
     private static volatile AppDatabase INSTANCE;
@@ -20,6 +33,264 @@ public abstract class AppDatabase extends RoomDatabase {
 
     public abstract MusicTrackDao musicTrackDao();
 
+    public abstract AnalysisJobDao analysisJobDao();
+
+    public abstract TagDao tagDao();
+
+    public abstract StatsDao statsDao();
+
+    /**
+     * Adds the half/double-time alternate BPM columns and fills them for existing tracks
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE music_tracks ADD COLUMN alt_bpm_low INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE music_tracks ADD COLUMN alt_bpm_high INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("CREATE INDEX IF NOT EXISTS index_music_tracks_alt_bpm_low ON music_tracks (alt_bpm_low)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS index_music_tracks_alt_bpm_high ON music_tracks (alt_bpm_high)");
+
+            TempoOctaveResolver resolver = new TempoOctaveResolver();
+            try (Cursor cursor = db.query("SELECT id, bpm, tags FROM music_tracks")) {
+                while (cursor.moveToNext()) {
+                    // Still whole BPMs at this version, MIGRATION_4_5 scales everything afterwards
+                    int bpm = cursor.getInt(1);
+                    int bpmCenti = FixedBpm.fromWhole(bpm);
+                    TempoOctaveResolver.Resolution resolution =
+                            resolver.resolve(bpm, cursor.isNull(2) ? null : cursor.getString(2));
+                    db.execSQL("UPDATE music_tracks SET alt_bpm_low = ?, alt_bpm_high = ? WHERE id = ?",
+                            new Object[]{FixedBpm.toWhole(resolution.getAlternateBelow(bpmCenti)),
+                                    FixedBpm.toWhole(resolution.getAlternateAbove(bpmCenti)), cursor.getInt(0)});
+                }
+            }
+        }
+    };
+
+    /**
+     * Adds the table of background batch jobs
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS analysis_jobs (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "task TEXT NOT NULL, " +
+                    "status TEXT NOT NULL, " +
+                    "last_track_id INTEGER NOT NULL, " +
+                    "total INTEGER NOT NULL, " +
+                    "processed INTEGER NOT NULL, " +
+                    "changed INTEGER NOT NULL, " +
+                    "failed INTEGER NOT NULL, " +
+                    "error TEXT, " +
+                    "created_at INTEGER NOT NULL, " +
+                    "updated_at INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS index_analysis_jobs_status ON analysis_jobs (status)");
+        }
+    };
+
+    /**
+     * Stores BPMs as fixed-point hundredths: whole BPMs are scaled in place, so the
+     * bpm column, its index and the integer range queries are unchanged
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("UPDATE music_tracks SET " +
+                    "bpm = bpm * " + FixedBpm.SCALE + ", " +
+                    "alt_bpm_low = alt_bpm_low * " + FixedBpm.SCALE + ", " +
+                    "alt_bpm_high = alt_bpm_high * " + FixedBpm.SCALE);
+        }
+    };
+
+    /**
+     * Adds the full-text search index and indexes the existing tracks
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL(TrackSearch.CREATE_TABLE);
+            for (String trigger : TrackSearch.CREATE_TRIGGERS) {
+                db.execSQL(trigger);
+            }
+            db.execSQL(TrackSearch.REBUILD);
+        }
+    };
+
+    /**
+     * Adds the tags and track_tags tables and fills them from the tags strings of existing tracks
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `tags` (" +
+                    "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`name` TEXT NOT NULL)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_tags_name` ON `tags` (`name`)");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `track_tags` (" +
+                    "`track_id` INTEGER NOT NULL, " +
+                    "`tag_id` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`track_id`, `tag_id`), " +
+                    "FOREIGN KEY(`track_id`) REFERENCES `music_tracks`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE , " +
+                    "FOREIGN KEY(`tag_id`) REFERENCES `tags`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_track_tags_tag_id_track_id` ON `track_tags` (`tag_id`, `track_id`)");
+
+            try (Cursor cursor = db.query("SELECT id, tags FROM music_tracks WHERE tags IS NOT NULL AND tags != ''")) {
+                while (cursor.moveToNext()) {
+                    insertTrackTags(db, cursor.getInt(0), Converters.toList(cursor.getString(1)));
+                }
+            }
+        }
+    };
+
+    /**
+     * Indexes the link column, the key bulk upserts look tracks up by
+     */
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS index_music_tracks_link ON music_tracks (link)");
+        }
+    };
+
+    /**
+     * Indexes the date and artist sort columns, so every library ordering reads an index in order
+     */
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS index_music_tracks_created_at ON music_tracks (created_at)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS index_music_tracks_artist ON music_tracks (artist)");
+        }
+    };
+
+    /**
+     * Adds the canonical (platform, external_id) key: links are canonicalized, copies of the same
+     * song merged into the oldest one, then the key made unique
+     */
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE music_tracks ADD COLUMN external_id TEXT");
+            // Lookups by link are replaced by the unique key
+            db.execSQL("DROP INDEX IF EXISTS index_music_tracks_link");
+
+            // A blank link gets a NULL external_id, which the unique index allows any number of
+            try (Cursor cursor = db.query("SELECT id, link FROM music_tracks")) {
+                while (cursor.moveToNext()) {
+                    LinkCanonicalizer.CanonicalLink link = LinkCanonicalizer.canonicalize(cursor.getString(1));
+                    db.execSQL("UPDATE music_tracks SET platform = ?, external_id = ?, link = ? WHERE id = ?",
+                            new Object[]{link.getPlatform(), link.getExternalId(), link.getUrl(), cursor.getInt(0)});
+                }
+            }
+
+            List<String[]> duplicated = new ArrayList<>();
+            // Tracks without a link have no external_id and are never copies of each other
+            try (Cursor cursor = db.query("SELECT platform, external_id FROM music_tracks " +
+                    "WHERE external_id IS NOT NULL GROUP BY platform, external_id HAVING COUNT(*) > 1")) {
+                while (cursor.moveToNext()) {
+                    duplicated.add(new String[]{cursor.getString(0), cursor.getString(1)});
+                }
+            }
+            for (String[] key : duplicated) {
+                mergeDuplicates(db, key[0], key[1]);
+            }
+
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS index_music_tracks_platform_external_id " +
+                    "ON music_tracks (platform, external_id)");
+        }
+    };
+
+    /**
+     * Adds library_stats, counted once from the existing rows and kept current by triggers after that
+     */
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `library_stats` (" +
+                    "`kind` TEXT NOT NULL, " +
+                    "`bucket` TEXT NOT NULL, " +
+                    "`track_count` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`kind`, `bucket`))");
+            LibraryStats.rebuild(db);
+            LibraryStats.createTriggers(db);
+        }
+    };
+
+    /**
+     * Indexes each sort column behind the platform, so the list filtered to one platform is read
+     * in order from an index instead of being sorted in a temp B-tree
+     */
+    static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS index_music_tracks_platform_created_at " +
+                    "ON music_tracks (platform, created_at)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS index_music_tracks_platform_title ON music_tracks (platform, title)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS index_music_tracks_platform_bpm ON music_tracks (platform, bpm)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS index_music_tracks_platform_artist ON music_tracks (platform, artist)");
+        }
+    };
+
+    /**
+     * Merge every copy of one song into the oldest: it keeps its own values, takes artist, notes
+     * and album art from the others where it has none, and gets the tags of all of them
+     */
+    private static void mergeDuplicates(SupportSQLiteDatabase db, String platform, String externalId) {
+        int keeperId = -1;
+        String artist = null;
+        String notes = null;
+        String albumArtUrl = null;
+        // Normalized name -> first spelling seen
+        Map<String, String> tags = new LinkedHashMap<>();
+        List<Integer> duplicateIds = new ArrayList<>();
+        try (Cursor cursor = db.query("SELECT id, artist, notes, tags, album_art_url FROM music_tracks " +
+                "WHERE platform = ? AND external_id = ? ORDER BY created_at ASC, id ASC",
+                new Object[]{platform, externalId})) {
+            while (cursor.moveToNext()) {
+                if (keeperId == -1) {
+                    keeperId = cursor.getInt(0);
+                } else {
+                    duplicateIds.add(cursor.getInt(0));
+                }
+                artist = firstNonEmpty(artist, cursor.getString(1));
+                notes = firstNonEmpty(notes, cursor.getString(2));
+                albumArtUrl = firstNonEmpty(albumArtUrl, cursor.getString(4));
+                if (!cursor.isNull(3)) {
+                    for (String tag : cursor.getString(3).split(",")) {
+                        String name = Converters.normalize(tag);
+                        if (!name.isEmpty() && !tags.containsKey(name)) {
+                            tags.put(name, tag.trim());
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int duplicateId : duplicateIds) {
+            db.execSQL("DELETE FROM track_tags WHERE track_id = ?", new Object[]{duplicateId});
+            db.execSQL("DELETE FROM music_tracks WHERE id = ?", new Object[]{duplicateId});
+        }
+        db.execSQL("UPDATE music_tracks SET artist = ?, notes = ?, album_art_url = ?, tags = ? WHERE id = ?",
+                new Object[]{artist, notes, albumArtUrl, String.join(", ", tags.values()), keeperId});
+        db.execSQL("DELETE FROM track_tags WHERE track_id = ?", new Object[]{keeperId});
+        insertTrackTags(db, keeperId, new ArrayList<>(tags.keySet()));
+    }
+
+    private static String firstNonEmpty(String current, String candidate) {
+        return current != null && !current.isEmpty() ? current : candidate;
+    }
+
+    /**
+     * Link a track to tags by normalized name, creating the tags that don't exist yet
+     */
+    private static void insertTrackTags(SupportSQLiteDatabase db, int trackId, List<String> names) {
+        for (String name : names) {
+            db.execSQL("INSERT OR IGNORE INTO tags (name) VALUES (?)", new Object[]{name});
+            db.execSQL("INSERT OR IGNORE INTO track_tags (track_id, tag_id) " +
+                    "SELECT ?, id FROM tags WHERE name = ?", new Object[]{trackId, name});
+        }
+    }
+
     public static AppDatabase getInstance(Context context) {
         if (INSTANCE == null) {
             synchronized (AppDatabase.class) {
@@ -29,7 +300,27 @@ public abstract class AppDatabase extends RoomDatabase {
                                     AppDatabase.class,
                                     DATABASE_NAME
                             )
-                            .fallbackToDestructiveMigration()  // ← ADICIONADO - Recria DB quando muda schema
+                            // WAL lets the read pool query while the single writer commits
+                            .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
+                            .setQueryExecutor(AppExecutors.getInstance().diskRead())
+                            .setTransactionExecutor(AppExecutors.getInstance().diskWrite())
+                            .addMigrations(MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6,
+                                    MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9,
+                                    MIGRATION_9_10, MIGRATION_10_11, MIGRATION_11_12)
+                            // Only version 1 has no migration path; newer databases must never be wiped
+                            .fallbackToDestructiveMigrationFrom(1)
+                            // Room creates the tables from the entities but knows nothing of the stats triggers
+                            .addCallback(new Callback() {
+                                @Override
+                                public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                                    LibraryStats.createTriggers(db);
+                                }
+
+                                @Override
+                                public void onDestructiveMigration(@NonNull SupportSQLiteDatabase db) {
+                                    LibraryStats.createTriggers(db);
+                                }
+                            })
                             .build();
                 }
             }
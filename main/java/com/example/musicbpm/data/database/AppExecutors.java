@@ -0,0 +1,81 @@
+package com.example.musicbpm.data.database;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * App-wide executors for database work, shared by every repository and by Room itself.
+ * Writes go through one thread so they never contend for the write lock; reads run on a
+ * small pool sized like SQLite's WAL connection pool, so they don't queue behind imports.
+ * Long jobs such as exports get a thread of their own instead of holding a reader.
+ */
+public final class AppExecutors {
+
+    // Android opens up to 4 connections for a WAL database; more readers would only wait for one
+    private static final int READ_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static volatile AppExecutors INSTANCE;
+
+    private final ExecutorService diskWrite;
+    private final ExecutorService diskRead;
+    private final ExecutorService background;
+
+    private AppExecutors() {
+        diskWrite = Executors.newSingleThreadExecutor(threadFactory("db-write"));
+        ThreadPoolExecutor read = new ThreadPoolExecutor(READ_THREADS, READ_THREADS,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory("db-read"));
+        read.allowCoreThreadTimeOut(true);
+        diskRead = read;
+        ThreadPoolExecutor longRunning = new ThreadPoolExecutor(1, 1,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory("background"));
+        longRunning.allowCoreThreadTimeOut(true);
+        background = longRunning;
+    }
+
+    public static AppExecutors getInstance() {
+        if (INSTANCE == null) {
+            synchronized (AppExecutors.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new AppExecutors();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * The single writer: inserts, updates, deletes and transactions, in submission order
+     */
+    public Executor diskWrite() {
+        return diskWrite;
+    }
+
+    /**
+     * Bounded pool for queries and work on their results, also Room's query executor
+     */
+    public Executor diskRead() {
+        return diskRead;
+    }
+
+    /**
+     * One thread for jobs that read for minutes, one after another, so queries never wait for them
+     */
+    public Executor background() {
+        return background;
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.musicbpm.data.database;
+
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import com.example.musicbpm.utils.FixedBpm;
+import com.example.musicbpm.utils.tempo.TempoOctaveResolver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Tracks that can be mixed into a set at a target BPM: at the target itself or at a
+ * half/double-time multiple of it, within a pitch range.
+ * Builds one query with a range scan of the bpm index per multiple, ranked by the
+ * pitch change needed. Immutable; the with* methods return a modified copy.
+ */
+public final class CompatibleTempoQuery {
+
+    /** Multiples of the target searched, as num/den pairs: quarter, half, same, double, quadruple time */
+    private static final int[][] HARMONICS = {{1, 4}, {1, 2}, {1, 1}, {2, 1}, {4, 1}};
+
+    public static final int DEFAULT_TOLERANCE_PERCENT = 8;
+    // Below a third the ranges of neighbouring multiples never overlap, so no track is listed twice
+    public static final int MAX_TOLERANCE_PERCENT = 30;
+
+    private final int targetBpmCenti;
+    private final int tolerancePercent;
+    private final String platform;
+    private final List<String> tags;
+
+    /**
+     * @param targetBpmCenti Tempo of the set, in hundredths of a BPM
+     */
+    public CompatibleTempoQuery(int targetBpmCenti) {
+        this(targetBpmCenti, DEFAULT_TOLERANCE_PERCENT, null, Collections.emptyList());
+    }
+
+    private CompatibleTempoQuery(int targetBpmCenti, int tolerancePercent, String platform, List<String> tags) {
+        if (targetBpmCenti <= 0) {
+            throw new IllegalArgumentException("Target BPM must be positive");
+        }
+        this.targetBpmCenti = targetBpmCenti;
+        this.tolerancePercent = Math.max(0, Math.min(MAX_TOLERANCE_PERCENT, tolerancePercent));
+        this.platform = platform;
+        this.tags = tags;
+    }
+
+    /**
+     * @param tolerancePercent Largest pitch change allowed either way, clamped to 0..MAX_TOLERANCE_PERCENT
+     */
+    public CompatibleTempoQuery withTolerancePercent(int tolerancePercent) {
+        return new CompatibleTempoQuery(targetBpmCenti, tolerancePercent, platform, tags);
+    }
+
+    /**
+     * @param platform PlatformDetector constant, or null for every platform
+     */
+    public CompatibleTempoQuery withPlatform(String platform) {
+        return new CompatibleTempoQuery(targetBpmCenti, tolerancePercent, platform, tags);
+    }
+
+    /**
+     * Keep tracks having every one of the tags; empty for no tag filter
+     */
+    public CompatibleTempoQuery withTags(List<String> tags) {
+        return new CompatibleTempoQuery(targetBpmCenti, tolerancePercent, platform,
+                Collections.unmodifiableList(Converters.normalizeAll(tags)));
+    }
+
+    public int getTargetBpmCenti() {
+        return targetBpmCenti;
+    }
+
+    public int getTolerancePercent() {
+        return tolerancePercent;
+    }
+
+    /**
+     * Query for the compatible tracks, smallest pitch change first; see CompatibleTrack
+     */
+    public SupportSQLiteQuery toQuery() {
+        StringBuilder matches = new StringBuilder();
+        List<Object> args = new ArrayList<>();
+        int minBpmCenti = FixedBpm.fromDouble(TempoOctaveResolver.MIN_TEMPO);
+        int maxBpmCenti = FixedBpm.fromDouble(TempoOctaveResolver.MAX_TEMPO);
+        for (int[] harmonic : HARMONICS) {
+            int matchedBpmCenti = targetBpmCenti * harmonic[0] / harmonic[1];
+            // A track at bpm needs (matched - bpm) / bpm of pitch, so it is in range
+            // for bpm between matched / (1 + t) and matched / (1 - t)
+            int low = ceilDiv(matchedBpmCenti * 100L, 100 + tolerancePercent);
+            int high = (int) (matchedBpmCenti * 100L / (100 - tolerancePercent));
+            // The target itself is always searched, so the query is never empty
+            boolean sameTime = harmonic[0] == harmonic[1];
+            if (!sameTime && (high < minBpmCenti || low > maxBpmCenti)) {
+                continue;
+            }
+            if (matches.length() > 0) {
+                matches.append(" UNION ALL ");
+            }
+            matches.append("SELECT id AS track_id, (? - bpm) * 10000 / bpm AS pitch_adjust, ? AS matched_bpm ")
+                    .append("FROM music_tracks WHERE bpm BETWEEN ? AND ?");
+            args.add(matchedBpmCenti);
+            args.add(matchedBpmCenti);
+            args.add(low);
+            args.add(high);
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT ").append(TrackListItem.COLUMNS)
+                .append(", matches.pitch_adjust AS pitch_adjust, matches.matched_bpm AS matched_bpm FROM (")
+                .append(matches)
+                .append(") AS matches JOIN music_tracks ON music_tracks.id = matches.track_id");
+        String join = " WHERE ";
+        if (platform != null) {
+            sql.append(join).append("music_tracks.platform = ?");
+            args.add(platform);
+            join = " AND ";
+        }
+        if (!tags.isEmpty()) {
+            sql.append(join).append("music_tracks.id IN (")
+                    .append("SELECT track_tags.track_id FROM track_tags JOIN tags ON tags.id = track_tags.tag_id ")
+                    .append("WHERE tags.name IN (");
+            for (int i = 0; i < tags.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+                args.add(tags.get(i));
+            }
+            sql.append(") GROUP BY track_tags.track_id HAVING COUNT(*) = ?)");
+            args.add(tags.size());
+        }
+        sql.append(" ORDER BY ABS(matches.pitch_adjust) ASC, music_tracks.id ASC");
+        return new SimpleSQLiteQuery(sql.toString(), args.toArray());
+    }
+
+    private static int ceilDiv(long dividend, int divisor) {
+        return (int) ((dividend + divisor - 1) / divisor);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CompatibleTempoQuery)) return false;
+        CompatibleTempoQuery other = (CompatibleTempoQuery) o;
+        return targetBpmCenti == other.targetBpmCenti
+                && tolerancePercent == other.tolerancePercent
+                && Objects.equals(platform, other.platform)
+                && tags.equals(other.tags);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(targetBpmCenti, tolerancePercent, platform, tags);
+    }
+}
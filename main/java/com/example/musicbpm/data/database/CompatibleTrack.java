@@ -0,0 +1,45 @@
+package com.example.musicbpm.data.database;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Embedded;
+
+/**
+ * A track that can be mixed at a target tempo, with the pitch change needed to get there.
+ */
+public class CompatibleTrack {
+
+    @Embedded
+    private TrackListItem track;
+
+    // Speed change to play the track at matchedBpm, hundredths of a percent (+240 = 2.4% faster)
+    @ColumnInfo(name = "pitch_adjust")
+    private int pitchAdjust;
+
+    // The target or the half/double-time multiple of it the track lines up with, hundredths of a BPM
+    @ColumnInfo(name = "matched_bpm")
+    private int matchedBpmCenti;
+
+    public TrackListItem getTrack() {
+        return track;
+    }
+
+    public void setTrack(TrackListItem track) {
+        this.track = track;
+    }
+
+    public int getPitchAdjust() {
+        return pitchAdjust;
+    }
+
+    public void setPitchAdjust(int pitchAdjust) {
+        this.pitchAdjust = pitchAdjust;
+    }
+
+    public int getMatchedBpmCenti() {
+        return matchedBpmCenti;
+    }
+
+    public void setMatchedBpmCenti(int matchedBpmCenti) {
+        this.matchedBpmCenti = matchedBpmCenti;
+    }
+}
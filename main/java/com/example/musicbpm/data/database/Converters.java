@@ -1,18 +1,17 @@
 package com.example.musicbpm.data.database;
 
-import androidx.room.TypeConverter;
-
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 /**
- * Type converters for Room database.
- * Converts complex types (like List<String>) to types that Room can store.
+ * Conversions between the comma separated tags column and tag names.
+ * Only used when a track is written or migrated: tag lookups read the tags table instead.
  */
 public class Converters {
 
-    @TypeConverter
     public static String fromList(List<String> tags) {
         if (tags == null || tags.isEmpty()) {
             return "";
@@ -20,11 +19,42 @@ public class Converters {
         return String.join(",", tags);
     }
 
-    @TypeConverter
+    /**
+     * Split a tags string into normalized names: trimmed, lower case, single spaces,
+     * without empty or repeated names, in their original order
+     */
     public static List<String> toList(String tagsString) {
         if (tagsString == null || tagsString.trim().isEmpty()) {
             return new ArrayList<>();
         }
-        return Arrays.asList(tagsString.split(","));
+        Set<String> names = new LinkedHashSet<>();
+        for (String part : tagsString.split(",")) {
+            String name = normalize(part);
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Normalize a list of tag names, without empty or repeated names, in their original order
+     */
+    public static List<String> normalizeAll(List<String> tags) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String tag : tags) {
+            String name = normalize(tag);
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Normalized form of one tag name, as stored in the tags table
+     */
+    public static String normalize(String name) {
+        return name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
     }
-}
\ No newline at end of file
+}
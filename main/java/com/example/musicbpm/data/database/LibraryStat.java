@@ -0,0 +1,55 @@
+package com.example.musicbpm.data.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+
+/**
+ * One bucket of a library statistic, e.g. ("bpm", "120") = tracks from 120 to 124.99 BPM.
+ * Rows are kept current by the triggers in LibraryStats, never written from code.
+ */
+@Entity(tableName = "library_stats", primaryKeys = {"kind", "bucket"})
+public class LibraryStat {
+
+    /** Number of tracks; bucket "" */
+    public static final String KIND_TOTAL = "total";
+    /** Tracks per BPM range; bucket is the range start in whole BPM, see LibraryStats#BPM_BUCKET_WIDTH */
+    public static final String KIND_BPM = "bpm";
+    /** Tracks per platform; bucket "" for tracks without one */
+    public static final String KIND_PLATFORM = "platform";
+    /** Tracks per tag name */
+    public static final String KIND_TAG = "tag";
+    /** Tracks added per month (UTC); bucket "yyyy-MM" */
+    public static final String KIND_MONTH = "month";
+
+    @NonNull
+    @ColumnInfo(name = "kind")
+    private String kind;
+
+    @NonNull
+    @ColumnInfo(name = "bucket")
+    private String bucket;
+
+    @ColumnInfo(name = "track_count")
+    private int trackCount;
+
+    public LibraryStat(@NonNull String kind, @NonNull String bucket, int trackCount) {
+        this.kind = kind;
+        this.bucket = bucket;
+        this.trackCount = trackCount;
+    }
+
+    @NonNull
+    public String getKind() {
+        return kind;
+    }
+
+    @NonNull
+    public String getBucket() {
+        return bucket;
+    }
+
+    public int getTrackCount() {
+        return trackCount;
+    }
+}
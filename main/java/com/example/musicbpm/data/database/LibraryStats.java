@@ -0,0 +1,101 @@
+package com.example.musicbpm.data.database;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * SQL behind library_stats (see LibraryStat): triggers on music_tracks and track_tags add and
+ * remove each row's contribution as it is written, so reading a statistic costs the number of
+ * buckets, not a GROUP BY over the library.
+ */
+public final class LibraryStats {
+
+    /** Width of a BPM histogram bucket, in whole BPM */
+    public static final int BPM_BUCKET_WIDTH = 5;
+
+    private static final String BPM_BUCKET = "CAST(%1$s.bpm / " + BPM_BUCKET_WIDTH * 100 + " * " + BPM_BUCKET_WIDTH + " AS TEXT)";
+    private static final String PLATFORM_BUCKET = "IFNULL(%1$s.platform, '')";
+    private static final String MONTH_BUCKET = "strftime('%%Y-%%m', %1$s.created_at / 1000, 'unixepoch')";
+
+    public static final String[] CREATE_TRIGGERS = {
+            "CREATE TRIGGER IF NOT EXISTS library_stats_track_insert AFTER INSERT ON music_tracks BEGIN " +
+                    add(LibraryStat.KIND_TOTAL, "''", "NEW") +
+                    add(LibraryStat.KIND_BPM, BPM_BUCKET, "NEW") +
+                    add(LibraryStat.KIND_PLATFORM, PLATFORM_BUCKET, "NEW") +
+                    add(LibraryStat.KIND_MONTH, MONTH_BUCKET, "NEW") + "END",
+            "CREATE TRIGGER IF NOT EXISTS library_stats_track_delete AFTER DELETE ON music_tracks BEGIN " +
+                    remove(LibraryStat.KIND_TOTAL, "''", "OLD") +
+                    remove(LibraryStat.KIND_BPM, BPM_BUCKET, "OLD") +
+                    remove(LibraryStat.KIND_PLATFORM, PLATFORM_BUCKET, "OLD") +
+                    remove(LibraryStat.KIND_MONTH, MONTH_BUCKET, "OLD") + "END",
+            // Updates only move a track between buckets when the bucketed column changes
+            "CREATE TRIGGER IF NOT EXISTS library_stats_track_update_bpm AFTER UPDATE OF bpm ON music_tracks " +
+                    "WHEN OLD.bpm IS NOT NEW.bpm BEGIN " +
+                    remove(LibraryStat.KIND_BPM, BPM_BUCKET, "OLD") +
+                    add(LibraryStat.KIND_BPM, BPM_BUCKET, "NEW") + "END",
+            "CREATE TRIGGER IF NOT EXISTS library_stats_track_update_platform AFTER UPDATE OF platform ON music_tracks " +
+                    "WHEN OLD.platform IS NOT NEW.platform BEGIN " +
+                    remove(LibraryStat.KIND_PLATFORM, PLATFORM_BUCKET, "OLD") +
+                    add(LibraryStat.KIND_PLATFORM, PLATFORM_BUCKET, "NEW") + "END",
+            "CREATE TRIGGER IF NOT EXISTS library_stats_track_update_created_at AFTER UPDATE OF created_at ON music_tracks " +
+                    "WHEN OLD.created_at IS NOT NEW.created_at BEGIN " +
+                    remove(LibraryStat.KIND_MONTH, MONTH_BUCKET, "OLD") +
+                    add(LibraryStat.KIND_MONTH, MONTH_BUCKET, "NEW") + "END",
+            // Tags are counted from the link table, which cascades when a track is deleted
+            "CREATE TRIGGER IF NOT EXISTS library_stats_tag_insert AFTER INSERT ON track_tags BEGIN " +
+                    add(LibraryStat.KIND_TAG, "(SELECT name FROM tags WHERE id = %1$s.tag_id)", "NEW") + "END",
+            "CREATE TRIGGER IF NOT EXISTS library_stats_tag_delete AFTER DELETE ON track_tags BEGIN " +
+                    remove(LibraryStat.KIND_TAG, "(SELECT name FROM tags WHERE id = %1$s.tag_id)", "OLD") + "END"
+    };
+
+    /** Recount every statistic from the tables, for the migration that adds them */
+    public static final String[] REBUILD = {
+            "DELETE FROM library_stats",
+            "INSERT INTO library_stats (kind, bucket, track_count) " +
+                    "SELECT '" + LibraryStat.KIND_TOTAL + "', '', COUNT(*) FROM music_tracks HAVING COUNT(*) > 0",
+            rebuild(LibraryStat.KIND_BPM, BPM_BUCKET),
+            rebuild(LibraryStat.KIND_PLATFORM, PLATFORM_BUCKET),
+            rebuild(LibraryStat.KIND_MONTH, MONTH_BUCKET),
+            "INSERT INTO library_stats (kind, bucket, track_count) " +
+                    "SELECT '" + LibraryStat.KIND_TAG + "', tags.name, COUNT(*) " +
+                    "FROM track_tags JOIN tags ON tags.id = track_tags.tag_id GROUP BY tags.id"
+    };
+
+    private LibraryStats() {
+    }
+
+    /**
+     * Create the triggers; the tables must exist, and library_stats must match them (empty tables, or after REBUILD)
+     */
+    public static void createTriggers(SupportSQLiteDatabase db) {
+        for (String trigger : CREATE_TRIGGERS) {
+            db.execSQL(trigger);
+        }
+    }
+
+    public static void rebuild(SupportSQLiteDatabase db) {
+        for (String statement : REBUILD) {
+            db.execSQL(statement);
+        }
+    }
+
+    private static String add(String kind, String bucket, String row) {
+        String key = String.format(bucket, row);
+        return "INSERT OR IGNORE INTO library_stats (kind, bucket, track_count) VALUES ('" + kind + "', " + key + ", 0); " +
+                "UPDATE library_stats SET track_count = track_count + 1 " +
+                "WHERE kind = '" + kind + "' AND bucket = " + key + "; ";
+    }
+
+    // Empty buckets are dropped so the table only holds what a screen would show
+    private static String remove(String kind, String bucket, String row) {
+        String key = String.format(bucket, row);
+        return "UPDATE library_stats SET track_count = track_count - 1 " +
+                "WHERE kind = '" + kind + "' AND bucket = " + key + "; " +
+                "DELETE FROM library_stats WHERE kind = '" + kind + "' AND bucket = " + key + " AND track_count <= 0; ";
+    }
+
+    private static String rebuild(String kind, String bucket) {
+        return "INSERT INTO library_stats (kind, bucket, track_count) " +
+                "SELECT '" + kind + "', " + String.format(bucket, "music_tracks") + ", COUNT(*) " +
+                "FROM music_tracks GROUP BY 2";
+    }
+}
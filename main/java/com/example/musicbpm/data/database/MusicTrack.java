@@ -11,7 +11,12 @@ import androidx.room.PrimaryKey;
  * Contains all information about a saved song including BPM, link, and metadata.
  */
 @Entity(tableName = "music_tracks",
-        indices = {@Index(value = "bpm"), @Index(value = "title")})
+        indices = {@Index(value = "bpm"), @Index(value = "title"),
+                @Index(value = "alt_bpm_low"), @Index(value = "alt_bpm_high"),
+                @Index(value = "created_at"), @Index(value = "artist"),
+                @Index(value = {"platform", "created_at"}), @Index(value = {"platform", "title"}),
+                @Index(value = {"platform", "bpm"}), @Index(value = {"platform", "artist"}),
+                @Index(value = {"platform", "external_id"}, unique = true)})
 public class MusicTrack {
 
     @PrimaryKey(autoGenerate = true)
@@ -24,8 +29,16 @@ public class MusicTrack {
     @ColumnInfo(name = "artist")
     private String artist;
 
+    // Fixed point, hundredths of a BPM (12750 = 127.5 BPM), see FixedBpm
     @ColumnInfo(name = "bpm")
-    private int bpm;
+    private int bpmCenti;
+
+    // Other plausible felt tempos (half / double time) in hundredths, 0 if there is none
+    @ColumnInfo(name = "alt_bpm_low", defaultValue = "0")
+    private int altBpmLowCenti;
+
+    @ColumnInfo(name = "alt_bpm_high", defaultValue = "0")
+    private int altBpmHighCenti;
 
     @NonNull
     @ColumnInfo(name = "link")
@@ -34,6 +47,11 @@ public class MusicTrack {
     @ColumnInfo(name = "platform")
     private String platform;
 
+    // Id of the song within its platform, from LinkCanonicalizer; with platform, unique per track.
+    // Null without a link: the unique index allows any number of NULLs
+    @ColumnInfo(name = "external_id")
+    private String externalId;
+
     @ColumnInfo(name = "notes")
     private String notes;
 
@@ -48,12 +66,12 @@ public class MusicTrack {
     private String albumArtUrl;
 
     // Constructor
-    public MusicTrack(@NonNull String title, String artist, int bpm,
+    public MusicTrack(@NonNull String title, String artist, int bpmCenti,
                       @NonNull String link, String platform, String notes,
                       String tags, long createdAt) {
         this.title = title;
         this.artist = artist;
-        this.bpm = bpm;
+        this.bpmCenti = bpmCenti;
         this.link = link;
         this.platform = platform;
         this.notes = notes;
@@ -87,12 +105,28 @@ public class MusicTrack {
         this.artist = artist;
     }
 
-    public int getBpm() {
-        return bpm;
+    public int getBpmCenti() {
+        return bpmCenti;
+    }
+
+    public void setBpmCenti(int bpmCenti) {
+        this.bpmCenti = bpmCenti;
+    }
+
+    public int getAltBpmLowCenti() {
+        return altBpmLowCenti;
     }
 
-    public void setBpm(int bpm) {
-        this.bpm = bpm;
+    public void setAltBpmLowCenti(int altBpmLowCenti) {
+        this.altBpmLowCenti = altBpmLowCenti;
+    }
+
+    public int getAltBpmHighCenti() {
+        return altBpmHighCenti;
+    }
+
+    public void setAltBpmHighCenti(int altBpmHighCenti) {
+        this.altBpmHighCenti = altBpmHighCenti;
     }
 
     @NonNull
@@ -112,6 +146,14 @@ public class MusicTrack {
         this.platform = platform;
     }
 
+    public String getExternalId() {
+        return externalId;
+    }
+
+    public void setExternalId(String externalId) {
+        this.externalId = externalId;
+    }
+
     public String getNotes() {
         return notes;
     }
@@ -1,12 +1,19 @@
 package com.example.musicbpm.data.database;
 
+import android.database.Cursor;
+
 import androidx.lifecycle.LiveData;
+import androidx.paging.PagingSource;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.Query;
+import androidx.room.RawQuery;
+import androidx.room.Transaction;
 import androidx.room.Update;
+import androidx.sqlite.db.SupportSQLiteQuery;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -25,37 +32,134 @@ public interface MusicTrackDao {
     @Delete
     void delete(MusicTrack track);
 
-    @Query("SELECT * FROM music_tracks ORDER BY created_at DESC")
-    LiveData<List<MusicTrack>> getAllTracks();
-
     @Query("SELECT * FROM music_tracks WHERE id = :id")
     LiveData<MusicTrack> getTrackById(int id);
 
-    @Query("SELECT * FROM music_tracks WHERE " +
-            "title LIKE '%' || :query || '%' OR " +
-            "artist LIKE '%' || :query || '%' OR " +
-            "tags LIKE '%' || :query || '%' " +
-            "ORDER BY created_at DESC")
-    LiveData<List<MusicTrack>> searchTracks(String query);
-
-    @Query("SELECT * FROM music_tracks WHERE bpm BETWEEN :minBpm AND :maxBpm ORDER BY bpm ASC")
-    LiveData<List<MusicTrack>> getTracksByBpmRange(int minBpm, int maxBpm);
-
-    @Query("SELECT * FROM music_tracks WHERE platform = :platform ORDER BY created_at DESC")
-    LiveData<List<MusicTrack>> getTracksByPlatform(String platform);
-
-    @Query("SELECT * FROM music_tracks ORDER BY title ASC")
-    LiveData<List<MusicTrack>> getTracksSortedByTitle();
+    @Query("SELECT * FROM music_tracks WHERE id = :id")
+    MusicTrack getTrack(int id);
+
+    /**
+     * The library list: one query for whichever sort and filters are active
+     * @param query Built by TrackListQuery.toListQuery
+     */
+    @RawQuery(observedEntities = MusicTrack.class)
+    PagingSource<Integer, TrackListItem> getTracksPaged(SupportSQLiteQuery query);
+
+    /**
+     * Full-text search over title, artist, tags and notes, unranked; see TrackSearch
+     * @param query Built by TrackListQuery.toSearchQuery
+     */
+    @RawQuery(observedEntities = MusicTrack.class)
+    LiveData<List<TrackSearchResult>> searchTracks(SupportSQLiteQuery query);
+
+    /**
+     * Tracks mixable at a target tempo, smallest pitch change first
+     * @param query Built by CompatibleTempoQuery.toQuery
+     */
+    @RawQuery(observedEntities = {MusicTrack.class, TrackTag.class, Tag.class})
+    LiveData<List<CompatibleTrack>> getCompatibleTracks(SupportSQLiteQuery query);
 
-    @Query("SELECT * FROM music_tracks ORDER BY bpm ASC")
-    LiveData<List<MusicTrack>> getTracksSortedByBpm();
+    @Update
+    void updateAll(List<MusicTrack> tracks);
 
-    @Query("SELECT * FROM music_tracks ORDER BY artist ASC")
-    LiveData<List<MusicTrack>> getTracksSortedByArtist();
+    /**
+     * Insert every track in one transaction
+     * @return Row ids, in list order
+     */
+    @Insert
+    List<Long> insertAll(List<MusicTrack> tracks);
+
+    /**
+     * Find a saved copy of a song, by the unique (platform, external_id) index
+     */
+    @Query("SELECT id FROM music_tracks WHERE platform = :platform AND external_id = :externalId")
+    Integer getTrackIdByExternalId(String platform, String externalId);
+
+    /**
+     * Insert or replace tracks keyed on their canonical link (see LinkCanonicalizer), in one
+     * transaction: a track already saved overwrites that row and takes its id, any other is inserted.
+     * platform and external_id must be set; a track without external_id is always inserted
+     * @return Row ids, in list order
+     */
+    @Transaction
+    default List<Long> upsertAll(List<MusicTrack> tracks) {
+        List<Long> ids = new ArrayList<>(tracks.size());
+        for (MusicTrack track : tracks) {
+            Integer existingId = track.getExternalId() != null
+                    ? getTrackIdByExternalId(track.getPlatform(), track.getExternalId()) : null;
+            if (existingId != null) {
+                track.setId(existingId);
+                update(track);
+                ids.add((long) existingId);
+            } else {
+                ids.add(insert(track));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Delete tracks by id in one statement; at most 999 ids (SQLite variable limit)
+     * @return Number of tracks deleted
+     */
+    @Query("DELETE FROM music_tracks WHERE id IN (:ids)")
+    int deleteAll(List<Integer> ids);
+
+    @Query("DELETE FROM music_tracks WHERE id = :id")
+    void deleteById(int id);
+
+    /**
+     * Page through the library in id order, for batch jobs and backups (keyset, not OFFSET).
+     * Whole rows: both need every column
+     */
+    @Query("SELECT * FROM music_tracks WHERE id > :afterId ORDER BY id ASC LIMIT :limit")
+    List<MusicTrack> getTracksAfter(int afterId, int limit);
+
+    @Query("SELECT COUNT(*) FROM music_tracks WHERE id > :afterId")
+    int countTracksAfter(int afterId);
+
+    // Keyset pages for each library ordering, see TrackKeysetPager. Each takes the sort key and id
+    // of the last row already read; the first term seeks the sort column's index, the second skips ties.
+    // List rows only, like the paged list
+
+    @Query("SELECT " + TrackListItem.COLUMNS + " FROM music_tracks " +
+            "WHERE created_at <= :createdAt AND (created_at < :createdAt OR id < :id) " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit")
+    List<TrackListItem> getTracksByDateBefore(long createdAt, int id, int limit);
+
+    @Query("SELECT " + TrackListItem.COLUMNS + " FROM music_tracks WHERE title >= :title AND (title > :title OR id > :id) " +
+            "ORDER BY title ASC, id ASC LIMIT :limit")
+    List<TrackListItem> getTracksByTitleAfter(String title, int id, int limit);
+
+    /**
+     * Tracks without an artist, which sort first by artist
+     */
+    @Query("SELECT " + TrackListItem.COLUMNS + " FROM music_tracks WHERE artist IS NULL AND id > :id " +
+            "ORDER BY id ASC LIMIT :limit")
+    List<TrackListItem> getTracksWithoutArtistAfter(int id, int limit);
+
+    @Query("SELECT " + TrackListItem.COLUMNS + " FROM music_tracks WHERE artist >= :artist AND (artist > :artist OR id > :id) " +
+            "ORDER BY artist ASC, id ASC LIMIT :limit")
+    List<TrackListItem> getTracksByArtistAfter(String artist, int id, int limit);
+
+    @Query("SELECT " + TrackListItem.COLUMNS + " FROM music_tracks WHERE bpm >= :bpmCenti AND (bpm > :bpmCenti OR id > :id) " +
+            "ORDER BY bpm ASC, id ASC LIMIT :limit")
+    List<TrackListItem> getTracksByBpmAfter(int bpmCenti, int id, int limit);
+
+    // Read straight off the bpm index (its entries carry the rowid), without touching the table
+    @Query("SELECT bpm, id FROM music_tracks ORDER BY bpm ASC, id ASC")
+    Cursor getBpmIndexCursor();
+
+    /**
+     * A track's BPM in hundredths, or null if there is no such track
+     */
+    @Query("SELECT bpm FROM music_tracks WHERE id = :id")
+    Integer getBpmCenti(int id);
 
     @Query("DELETE FROM music_tracks")
     void deleteAllTracks();
 
-    @Query("SELECT COUNT(*) FROM music_tracks")
+    // Kept by the library_stats triggers; COUNT(*) would scan an index of the whole table
+    @Query("SELECT IFNULL((SELECT track_count FROM library_stats WHERE kind = 'total' AND bucket = ''), 0)")
     LiveData<Integer> getTrackCount();
 }
\ No newline at end of file
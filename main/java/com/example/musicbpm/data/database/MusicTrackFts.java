@@ -0,0 +1,50 @@
+package com.example.musicbpm.data.database;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+/**
+ * Full-text index over the searchable columns of music_tracks.
+ * External content table: rows live only in music_tracks and Room keeps the index in sync with triggers.
+ */
+@Fts4(contentEntity = MusicTrack.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "music_tracks_fts")
+public class MusicTrackFts {
+
+    @ColumnInfo(name = "title")
+    private String title;
+
+    @ColumnInfo(name = "artist")
+    private String artist;
+
+    @ColumnInfo(name = "tags")
+    private String tags;
+
+    @ColumnInfo(name = "notes")
+    private String notes;
+
+    public MusicTrackFts(String title, String artist, String tags, String notes) {
+        this.title = title;
+        this.artist = artist;
+        this.tags = tags;
+        this.notes = notes;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getArtist() {
+        return artist;
+    }
+
+    public String getTags() {
+        return tags;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.musicbpm.data.database;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Query;
+
+import java.util.List;
+
+/**
+ * Data Access Object for library_stats. Every query reads one kind's buckets by primary key,
+ * so its cost follows the number of buckets, not the number of tracks.
+ * The total is MusicTrackDao#getTrackCount and tag counts TagDao#getTagCounts.
+ */
+@Dao
+public interface StatsDao {
+
+    /**
+     * BPM histogram, lowest range first; empty ranges are absent
+     */
+    @Query("SELECT * FROM library_stats WHERE kind = 'bpm' ORDER BY CAST(bucket AS INTEGER) ASC")
+    LiveData<List<LibraryStat>> getBpmHistogram();
+
+    @Query("SELECT * FROM library_stats WHERE kind = 'platform' ORDER BY track_count DESC, bucket ASC")
+    LiveData<List<LibraryStat>> getPlatformCounts();
+
+    /**
+     * Tracks added per month, oldest first; months without additions are absent
+     */
+    @Query("SELECT * FROM library_stats WHERE kind = 'month' ORDER BY bucket ASC")
+    LiveData<List<LibraryStat>> getMonthlyAdditions();
+}
@@ -0,0 +1,44 @@
+package com.example.musicbpm.data.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Entity class representing one tag (genre) shared by any number of tracks.
+ * Names are stored normalized (see Converters#toList), so each tag exists once.
+ */
+@Entity(tableName = "tags",
+        indices = {@Index(value = "name", unique = true)})
+public class Tag {
+
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+
+    @NonNull
+    @ColumnInfo(name = "name")
+    private String name;
+
+    public Tag(@NonNull String name) {
+        this.name = name;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    public void setName(@NonNull String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.musicbpm.data.database;
+
+import androidx.room.ColumnInfo;
+
+/**
+ * A tag with the number of tracks that have it, as kept in library_stats.
+ */
+public class TagCount {
+
+    @ColumnInfo(name = "name")
+    private String name;
+
+    @ColumnInfo(name = "track_count")
+    private int trackCount;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getTrackCount() {
+        return trackCount;
+    }
+
+    public void setTrackCount(int trackCount) {
+        this.trackCount = trackCount;
+    }
+}
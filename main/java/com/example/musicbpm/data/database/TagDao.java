@@ -0,0 +1,88 @@
+package com.example.musicbpm.data.database;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.List;
+
+/**
+ * Data Access Object for the tags and track_tags tables.
+ * Tag filtering and counting run in SQL on the join table instead of splitting tag strings per row.
+ */
+@Dao
+public interface TagDao {
+
+    /**
+     * @return Row id of the new tag, or -1 if a tag with that name already exists
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insertTag(Tag tag);
+
+    @Query("SELECT id FROM tags WHERE name = :name")
+    long getTagId(String name);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertTrackTag(TrackTag trackTag);
+
+    @Query("DELETE FROM track_tags WHERE track_id = :trackId")
+    void deleteTrackTags(int trackId);
+
+    /**
+     * Replace the tags of a track
+     * @param names Normalized tag names, see Converters#toList
+     */
+    @Transaction
+    default void setTrackTags(int trackId, List<String> names) {
+        deleteTrackTags(trackId);
+        for (String name : names) {
+            long tagId = insertTag(new Tag(name));
+            if (tagId == -1) {
+                tagId = getTagId(name);
+            }
+            insertTrackTag(new TrackTag(trackId, tagId));
+        }
+    }
+
+    @Query("SELECT tags.name FROM track_tags JOIN tags ON tags.id = track_tags.tag_id " +
+            "WHERE track_tags.track_id = :trackId ORDER BY tags.name ASC")
+    LiveData<List<String>> getTagNames(int trackId);
+
+    /**
+     * Tags in use with how many tracks have each, most used first
+     */
+    @Query("SELECT bucket AS name, track_count FROM library_stats WHERE kind = 'tag' " +
+            "ORDER BY track_count DESC, bucket ASC")
+    LiveData<List<TagCount>> getTagCounts();
+
+    /**
+     * Tracks that have every one of the tags and whose BPM or half/double-time alternate is in the range
+     * @param names Distinct normalized tag names
+     * @param tagCount Size of names
+     */
+    @Query("SELECT " + TrackListItem.COLUMNS + " FROM music_tracks WHERE id IN (" +
+            "SELECT track_tags.track_id FROM track_tags JOIN tags ON tags.id = track_tags.tag_id " +
+            "WHERE tags.name IN (:names) GROUP BY track_tags.track_id HAVING COUNT(*) = :tagCount) " +
+            "AND (bpm BETWEEN :minBpmCenti AND :maxBpmCenti OR " +
+            "alt_bpm_low BETWEEN :minBpmCenti AND :maxBpmCenti OR " +
+            "alt_bpm_high BETWEEN :minBpmCenti AND :maxBpmCenti) " +
+            "ORDER BY bpm ASC")
+    LiveData<List<TrackListItem>> getTracksWithAllTags(List<String> names, int tagCount,
+                                                       int minBpmCenti, int maxBpmCenti);
+
+    /**
+     * Tracks that have at least one of the tags and whose BPM or half/double-time alternate is in the range
+     * @param names Normalized tag names
+     */
+    @Query("SELECT " + TrackListItem.COLUMNS + " FROM music_tracks WHERE id IN (" +
+            "SELECT track_tags.track_id FROM track_tags JOIN tags ON tags.id = track_tags.tag_id " +
+            "WHERE tags.name IN (:names)) " +
+            "AND (bpm BETWEEN :minBpmCenti AND :maxBpmCenti OR " +
+            "alt_bpm_low BETWEEN :minBpmCenti AND :maxBpmCenti OR " +
+            "alt_bpm_high BETWEEN :minBpmCenti AND :maxBpmCenti) " +
+            "ORDER BY bpm ASC")
+    LiveData<List<TrackListItem>> getTracksWithAnyTag(List<String> names, int minBpmCenti, int maxBpmCenti);
+}
@@ -0,0 +1,90 @@
+package com.example.musicbpm.data.database;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads the whole library page by page in one of the list orderings, with a (sort key, id)
+ * cursor instead of OFFSET: every page is an index seek, memory stays at one page, and rows
+ * inserted or deleted meanwhile never shift a page so nothing is skipped or read twice.
+ * Not thread safe; call next() from one background thread.
+ */
+public class TrackKeysetPager {
+
+    public static final int DEFAULT_PAGE_SIZE = 500;
+
+    private final MusicTrackDao dao;
+    private final String sort;
+    private final int pageSize;
+
+    // Cursor: sort key and id of the last row returned
+    private long lastDate = Long.MAX_VALUE;
+    private String lastText = "";
+    private int lastBpmCenti = Integer.MIN_VALUE;
+    private int lastId;
+    // Sorting by artist reads the tracks without one first, as ORDER BY artist does
+    private boolean artistNullsDone;
+    private boolean done;
+
+    public TrackKeysetPager(MusicTrackDao dao, String sort) {
+        this(dao, sort, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * @param sort One of the TrackListQuery.SORT_ constants; anything else reads by date
+     */
+    public TrackKeysetPager(MusicTrackDao dao, String sort, int pageSize) {
+        this.dao = dao;
+        this.sort = isKnownSort(sort) ? sort : TrackListQuery.SORT_DATE;
+        this.pageSize = pageSize;
+        // Newest first: start above every id
+        this.lastId = TrackListQuery.SORT_DATE.equals(this.sort) ? Integer.MAX_VALUE : 0;
+    }
+
+    /**
+     * Read the next page
+     * @return Up to pageSize list rows, empty once the whole table has been read
+     */
+    public List<TrackListItem> next() {
+        if (done) {
+            return Collections.emptyList();
+        }
+        List<TrackListItem> page = fetch();
+        if (page.isEmpty() && TrackListQuery.SORT_ARTIST.equals(sort) && !artistNullsDone) {
+            artistNullsDone = true;
+            lastText = "";
+            lastId = 0;
+            page = fetch();
+        }
+        if (page.isEmpty()) {
+            done = true;
+            return page;
+        }
+        TrackListItem last = page.get(page.size() - 1);
+        lastId = last.getId();
+        lastDate = last.getCreatedAt();
+        lastText = TrackListQuery.SORT_TITLE.equals(sort) ? last.getTitle() : last.getArtist();
+        lastBpmCenti = last.getBpmCenti();
+        return page;
+    }
+
+    private List<TrackListItem> fetch() {
+        switch (sort) {
+            case TrackListQuery.SORT_TITLE:
+                return dao.getTracksByTitleAfter(lastText, lastId, pageSize);
+            case TrackListQuery.SORT_BPM:
+                return dao.getTracksByBpmAfter(lastBpmCenti, lastId, pageSize);
+            case TrackListQuery.SORT_ARTIST:
+                return artistNullsDone
+                        ? dao.getTracksByArtistAfter(lastText, lastId, pageSize)
+                        : dao.getTracksWithoutArtistAfter(lastId, pageSize);
+            default:
+                return dao.getTracksByDateBefore(lastDate, lastId, pageSize);
+        }
+    }
+
+    private static boolean isKnownSort(String sort) {
+        return TrackListQuery.SORT_TITLE.equals(sort) || TrackListQuery.SORT_BPM.equals(sort)
+                || TrackListQuery.SORT_ARTIST.equals(sort);
+    }
+}
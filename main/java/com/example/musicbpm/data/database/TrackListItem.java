@@ -0,0 +1,78 @@
+package com.example.musicbpm.data.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+
+/**
+ * The columns of a track that list screens show, without notes, tags or link.
+ * Open the full MusicTrack by id when the track itself is needed.
+ */
+public class TrackListItem {
+
+    /** Select list matching the fields, for raw queries over music_tracks */
+    public static final String COLUMNS = "music_tracks.id, music_tracks.title, music_tracks.artist, " +
+            "music_tracks.bpm, music_tracks.platform, music_tracks.album_art_url, music_tracks.created_at";
+
+    @ColumnInfo(name = "id")
+    private int id;
+
+    @NonNull
+    @ColumnInfo(name = "title")
+    private String title;
+
+    @ColumnInfo(name = "artist")
+    private String artist;
+
+    // Hundredths of a BPM, see FixedBpm
+    @ColumnInfo(name = "bpm")
+    private int bpmCenti;
+
+    @ColumnInfo(name = "platform")
+    private String platform;
+
+    @ColumnInfo(name = "album_art_url")
+    private String albumArtUrl;
+
+    @ColumnInfo(name = "created_at")
+    private long createdAt;
+
+    public TrackListItem(int id, @NonNull String title, String artist, int bpmCenti,
+                         String platform, String albumArtUrl, long createdAt) {
+        this.id = id;
+        this.title = title;
+        this.artist = artist;
+        this.bpmCenti = bpmCenti;
+        this.platform = platform;
+        this.albumArtUrl = albumArtUrl;
+        this.createdAt = createdAt;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    @NonNull
+    public String getTitle() {
+        return title;
+    }
+
+    public String getArtist() {
+        return artist;
+    }
+
+    public int getBpmCenti() {
+        return bpmCenti;
+    }
+
+    public String getPlatform() {
+        return platform;
+    }
+
+    public String getAlbumArtUrl() {
+        return albumArtUrl;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.musicbpm.data.database;
+
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * What the library list shows: sort order, search text and filters.
+ * Builds the one raw query behind the list, so only the active ordering ever runs.
+ * Immutable; the with* methods return a modified copy.
+ */
+public final class TrackListQuery {
+
+    public static final String SORT_DATE = "date";
+    public static final String SORT_TITLE = "title";
+    public static final String SORT_BPM = "bpm";
+    public static final String SORT_ARTIST = "artist";
+
+    private final String sort;
+    private final String search;
+    // Hundredths of a BPM, both 0 for no range
+    private final int minBpmCenti;
+    private final int maxBpmCenti;
+    private final String platform;
+
+    public TrackListQuery() {
+        this(SORT_DATE, null, 0, 0, null);
+    }
+
+    private TrackListQuery(String sort, String search, int minBpmCenti, int maxBpmCenti, String platform) {
+        this.sort = sort;
+        this.search = search;
+        this.minBpmCenti = minBpmCenti;
+        this.maxBpmCenti = maxBpmCenti;
+        this.platform = platform;
+    }
+
+    /**
+     * @param sort One of the SORT_ constants; anything else sorts by date
+     */
+    public TrackListQuery withSort(String sort) {
+        return new TrackListQuery(sort, search, minBpmCenti, maxBpmCenti, platform);
+    }
+
+    public TrackListQuery withSearch(String search) {
+        return new TrackListQuery(sort, search, minBpmCenti, maxBpmCenti, platform);
+    }
+
+    /**
+     * Keep tracks whose BPM or half/double-time alternate is in the range, bounds in hundredths;
+     * a 0 bound leaves that side open, so 0 and 0 remove the filter
+     */
+    public TrackListQuery withBpmRange(int minBpmCenti, int maxBpmCenti) {
+        return new TrackListQuery(sort, search, minBpmCenti, maxBpmCenti, platform);
+    }
+
+    /**
+     * @param platform PlatformDetector constant, or null for every platform
+     */
+    public TrackListQuery withPlatform(String platform) {
+        return new TrackListQuery(sort, search, minBpmCenti, maxBpmCenti, platform);
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public String getSearch() {
+        return search;
+    }
+
+    /**
+     * Check if the list shows search results (ranked by relevance) instead of a sorted list
+     */
+    public boolean isSearch() {
+        return TrackSearch.toMatchQuery(search) != null;
+    }
+
+    /**
+     * Query for the sorted, filtered list; the search text is ignored
+     */
+    public SupportSQLiteQuery toListQuery() {
+        StringBuilder sql = new StringBuilder("SELECT ").append(TrackListItem.COLUMNS).append(" FROM music_tracks");
+        List<Object> args = new ArrayList<>();
+        appendFilters(sql, args, " WHERE ");
+        sql.append(" ORDER BY ").append(orderBy());
+        return new SimpleSQLiteQuery(sql.toString(), args.toArray());
+    }
+
+    /**
+     * Query for the full-text matches with the same filters, unranked; see TrackSearch
+     * @throws IllegalStateException if the search text has no word to match
+     */
+    public SupportSQLiteQuery toSearchQuery() {
+        String match = TrackSearch.toMatchQuery(search);
+        if (match == null) {
+            throw new IllegalStateException("No search text");
+        }
+        StringBuilder sql = new StringBuilder("SELECT ").append(TrackListItem.COLUMNS)
+                .append(", matchinfo(music_tracks_fts, '")
+                .append(TrackSearch.MATCHINFO_FORMAT).append("') AS match_info ")
+                .append("FROM music_tracks JOIN music_tracks_fts ON music_tracks.id = music_tracks_fts.docid ")
+                .append("WHERE music_tracks_fts MATCH ?");
+        List<Object> args = new ArrayList<>();
+        args.add(match);
+        appendFilters(sql, args, " AND ");
+        return new SimpleSQLiteQuery(sql.toString(), args.toArray());
+    }
+
+    private void appendFilters(StringBuilder sql, List<Object> args, String firstJoin) {
+        String join = firstJoin;
+        if (minBpmCenti > 0 || maxBpmCenti > 0) {
+            sql.append(join).append("(music_tracks.bpm BETWEEN ? AND ? OR ")
+                    .append("music_tracks.alt_bpm_low BETWEEN ? AND ? OR ")
+                    .append("music_tracks.alt_bpm_high BETWEEN ? AND ?)");
+            int max = maxBpmCenti > 0 ? maxBpmCenti : Integer.MAX_VALUE;
+            for (int i = 0; i < 3; i++) {
+                args.add(minBpmCenti);
+                args.add(max);
+            }
+            join = " AND ";
+        }
+        if (platform != null) {
+            sql.append(join).append("music_tracks.platform = ?");
+            args.add(platform);
+        }
+    }
+
+    private String orderBy() {
+        // Column names come from this whitelist, never from the caller.
+        // id breaks ties so the order is total; each sort column's index ends in the rowid and serves both
+        switch (sort != null ? sort : SORT_DATE) {
+            case SORT_TITLE:
+                return "title ASC, id ASC";
+            case SORT_BPM:
+                return "bpm ASC, id ASC";
+            case SORT_ARTIST:
+                return "artist ASC, id ASC";
+            default:
+                return "created_at DESC, id DESC";
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TrackListQuery)) return false;
+        TrackListQuery other = (TrackListQuery) o;
+        return minBpmCenti == other.minBpmCenti
+                && maxBpmCenti == other.maxBpmCenti
+                && Objects.equals(sort, other.sort)
+                && Objects.equals(search, other.search)
+                && Objects.equals(platform, other.platform);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sort, search, minBpmCenti, maxBpmCenti, platform);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.musicbpm.data.database;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Full-text search over music_tracks_fts: turns what the user typed into an FTS MATCH expression
+ * and scores matches with Okapi BM25. FTS4 has no built-in ranking (bm25() is FTS5 only, which
+ * Android's SQLite does not ship), so the score is computed from matchinfo('pcnalx').
+ */
+public final class TrackSearch {
+
+    /** matchinfo format the score is computed from */
+    public static final String MATCHINFO_FORMAT = "pcnalx";
+
+    /** Relative weight of the indexed columns, in table order: title, artist, tags, notes */
+    private static final double[] COLUMN_WEIGHTS = {3.0, 2.0, 1.5, 0.5};
+
+    // Usual BM25 parameters (same defaults as FTS5)
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // More terms only narrow the result and make the query slower
+    private static final int MAX_TERMS = 8;
+
+    // Same statements Room generates for MusicTrackFts, used by the migration that adds the index
+    public static final String CREATE_TABLE = "CREATE VIRTUAL TABLE IF NOT EXISTS `music_tracks_fts` " +
+            "USING FTS4(`title` TEXT, `artist` TEXT, `tags` TEXT, `notes` TEXT, " +
+            "tokenize=unicode61, content=`music_tracks`)";
+
+    public static final String[] CREATE_TRIGGERS = {
+            "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_music_tracks_fts_BEFORE_UPDATE " +
+                    "BEFORE UPDATE ON `music_tracks` BEGIN " +
+                    "DELETE FROM `music_tracks_fts` WHERE `docid`=OLD.`rowid`; END",
+            "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_music_tracks_fts_BEFORE_DELETE " +
+                    "BEFORE DELETE ON `music_tracks` BEGIN " +
+                    "DELETE FROM `music_tracks_fts` WHERE `docid`=OLD.`rowid`; END",
+            "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_music_tracks_fts_AFTER_UPDATE " +
+                    "AFTER UPDATE ON `music_tracks` BEGIN " +
+                    "INSERT INTO `music_tracks_fts`(`docid`, `title`, `artist`, `tags`, `notes`) " +
+                    "VALUES (NEW.`rowid`, NEW.`title`, NEW.`artist`, NEW.`tags`, NEW.`notes`); END",
+            "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_music_tracks_fts_AFTER_INSERT " +
+                    "AFTER INSERT ON `music_tracks` BEGIN " +
+                    "INSERT INTO `music_tracks_fts`(`docid`, `title`, `artist`, `tags`, `notes`) " +
+                    "VALUES (NEW.`rowid`, NEW.`title`, NEW.`artist`, NEW.`tags`, NEW.`notes`); END"
+    };
+
+    /** Re-index every existing row of the content table */
+    public static final String REBUILD = "INSERT INTO music_tracks_fts(music_tracks_fts) VALUES ('rebuild')";
+
+    private TrackSearch() {
+    }
+
+    /**
+     * Build a MATCH expression from user input: every word must match, each one as a prefix
+     * so results appear while typing
+     * @return Expression such as {@code "daft*" "pun*"}, or null if the input has no word
+     */
+    public static String toMatchQuery(String input) {
+        if (input == null) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        int terms = 0;
+        int length = input.length();
+        int i = 0;
+        while (i < length && terms < MAX_TERMS) {
+            // Same word boundaries as the unicode61 tokenizer: anything but letters and digits separates
+            while (i < length && !Character.isLetterOrDigit(input.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(input.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                if (match.length() > 0) {
+                    match.append(' ');
+                }
+                match.append('"').append(input, start, i).append("*\"");
+                terms++;
+            }
+        }
+        return terms > 0 ? match.toString() : null;
+    }
+
+    /**
+     * Okapi BM25 score of one row from its matchinfo('pcnalx') blob
+     * @return Score, higher is more relevant; 0 for a missing or malformed blob
+     */
+    public static double bm25(byte[] matchInfo) {
+        if (matchInfo == null || matchInfo.length < 12) {
+            return 0;
+        }
+        // 32-bit unsigned integers in the machine byte order of the SQLite that produced them
+        ByteBuffer buffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phrases = buffer.getInt(0);
+        int columns = buffer.getInt(4);
+        if (matchInfo.length < 4 * (3 + 2 * columns + 3 * phrases * columns)) {
+            return 0;
+        }
+        double rows = buffer.getInt(8) & 0xffffffffL;
+        int averageOffset = 3;
+        int lengthOffset = averageOffset + columns;
+        int hitsOffset = lengthOffset + columns;
+
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                int hits = hitsOffset + 3 * (phrase * columns + column);
+                double termFrequency = buffer.getInt(4 * hits) & 0xffffffffL;
+                if (termFrequency == 0) {
+                    continue;
+                }
+                double rowsWithTerm = buffer.getInt(4 * (hits + 2)) & 0xffffffffL;
+                // Smoothed idf: stays positive for words found in most rows, common in small libraries
+                double idf = Math.log(1 + (rows - rowsWithTerm + 0.5) / (rowsWithTerm + 0.5));
+
+                double averageLength = Math.max(1, buffer.getInt(4 * (averageOffset + column)) & 0xffffffffL);
+                double length = buffer.getInt(4 * (lengthOffset + column)) & 0xffffffffL;
+                double norm = K1 * (1 - B + B * length / averageLength);
+
+                double weight = column < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[column] : 1.0;
+                score += weight * idf * termFrequency * (K1 + 1) / (termFrequency + norm);
+            }
+        }
+        return score;
+    }
+}
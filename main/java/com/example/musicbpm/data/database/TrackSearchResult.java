@@ -0,0 +1,33 @@
+package com.example.musicbpm.data.database;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Embedded;
+
+/**
+ * A track matched by the full-text index, with the FTS matchinfo used to rank it.
+ */
+public class TrackSearchResult {
+
+    @Embedded
+    private TrackListItem track;
+
+    // matchinfo(music_tracks_fts, 'pcnalx'), see TrackSearch#bm25
+    @ColumnInfo(name = "match_info")
+    private byte[] matchInfo;
+
+    public TrackListItem getTrack() {
+        return track;
+    }
+
+    public void setTrack(TrackListItem track) {
+        this.track = track;
+    }
+
+    public byte[] getMatchInfo() {
+        return matchInfo;
+    }
+
+    public void setMatchInfo(byte[] matchInfo) {
+        this.matchInfo = matchInfo;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.musicbpm.data.database;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+
+/**
+ * Join table between music_tracks and tags.
+ * The primary key serves track to tags lookups, the (tag_id, track_id) index the reverse.
+ * Rows go away with their track or tag.
+ */
+@Entity(tableName = "track_tags",
+        primaryKeys = {"track_id", "tag_id"},
+        foreignKeys = {
+                @ForeignKey(entity = MusicTrack.class, parentColumns = "id", childColumns = "track_id",
+                        onDelete = ForeignKey.CASCADE),
+                @ForeignKey(entity = Tag.class, parentColumns = "id", childColumns = "tag_id",
+                        onDelete = ForeignKey.CASCADE)},
+        indices = {@Index(value = {"tag_id", "track_id"})})
+public class TrackTag {
+
+    @ColumnInfo(name = "track_id")
+    private int trackId;
+
+    @ColumnInfo(name = "tag_id")
+    private long tagId;
+
+    public TrackTag(int trackId, long tagId) {
+        this.trackId = trackId;
+        this.tagId = tagId;
+    }
+
+    public int getTrackId() {
+        return trackId;
+    }
+
+    public void setTrackId(int trackId) {
+        this.trackId = trackId;
+    }
+
+    public long getTagId() {
+        return tagId;
+    }
+
+    public void setTagId(long tagId) {
+        this.tagId = tagId;
+    }
+}
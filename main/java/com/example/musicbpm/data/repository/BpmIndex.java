@@ -0,0 +1,171 @@
+package com.example.musicbpm.data.repository;
+
+import java.util.Arrays;
+
+/**
+ * Every track's BPM (hundredths, see FixedBpm) and id as two parallel int arrays sorted by
+ * (bpm, id). Range counts are two binary searches and allocate nothing, so a BPM slider can ask on
+ * every frame; range and nearest lookups copy only the ids they return.
+ * Immutable: MusicRepository derives a new one after each write, see MusicRepository#getBpmIndex.
+ * Only the bpm column is indexed, not the half/double-time alternates.
+ */
+public final class BpmIndex {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final int[] bpms;
+    private final int[] ids;
+
+    /**
+     * @param bpms BPMs in hundredths, ascending
+     * @param ids Track ids, parallel to bpms; ascending among equal BPMs
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    public BpmIndex(int[] bpms, int[] ids) {
+        if (bpms.length != ids.length) {
+            throw new IllegalArgumentException("bpms and ids differ in length");
+        }
+        this.bpms = bpms;
+        this.ids = ids;
+    }
+
+    public int size() {
+        return bpms.length;
+    }
+
+    /**
+     * Number of tracks with a BPM from min to max, both inclusive, in hundredths
+     */
+    public int count(int minBpmCenti, int maxBpmCenti) {
+        if (minBpmCenti > maxBpmCenti) {
+            return 0;
+        }
+        return upperBound(maxBpmCenti) - lowerBound(minBpmCenti);
+    }
+
+    /**
+     * Ids of the tracks with a BPM from min to max, both inclusive, slowest first
+     */
+    public int[] ids(int minBpmCenti, int maxBpmCenti) {
+        if (minBpmCenti > maxBpmCenti) {
+            return EMPTY;
+        }
+        return Arrays.copyOfRange(ids, lowerBound(minBpmCenti), upperBound(maxBpmCenti));
+    }
+
+    /**
+     * Ids of the k tracks whose BPM is closest to the target, closest first; of two tracks
+     * equally far, the slower one comes first, and of two with the same BPM, the lower id
+     */
+    public int[] nearest(int targetBpmCenti, int k) {
+        int count = Math.min(Math.max(k, 0), ids.length);
+        int[] nearest = new int[count];
+        // Walk outwards from the insertion point, taking the closer side each step
+        int right = lowerBound(targetBpmCenti);
+        int left = right - 1;
+        int i = 0;
+        while (i < count) {
+            boolean takeLeft = right >= bpms.length
+                    || (left >= 0 && (long) targetBpmCenti - bpms[left] <= (long) bpms[right] - targetBpmCenti);
+            if (takeLeft) {
+                // Walking left meets equal BPMs highest id first; take their whole run in id order
+                int start = lowerBound(bpms[left]);
+                int taken = Math.min(left - start + 1, count - i);
+                System.arraycopy(ids, start, nearest, i, taken);
+                i += taken;
+                left = start - 1;
+            } else {
+                nearest[i++] = ids[right++];
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * A copy with some tracks removed and others added, in one pass over the arrays, for writes
+     * that touch a few tracks. Both arrays hold entry(bpm, id) values, in any order; a removed
+     * entry that is not in the index is ignored, and so is an added one that already is
+     */
+    public BpmIndex withChanges(long[] removed, long[] added) {
+        long[] remove = removed.clone();
+        long[] add = added.clone();
+        Arrays.sort(remove);
+        Arrays.sort(add);
+        int[] newBpms = new int[bpms.length + add.length];
+        int[] newIds = new int[newBpms.length];
+        int size = 0;
+        int r = 0;
+        int a = 0;
+        for (int i = 0; i < bpms.length; i++) {
+            long current = entry(bpms[i], ids[i]);
+            while (r < remove.length && remove[r] < current) {
+                r++;
+            }
+            if (r < remove.length && remove[r] == current) {
+                r++;
+                continue;
+            }
+            for (; a < add.length && add[a] <= current; a++) {
+                if (add[a] < current && (a == 0 || add[a] != add[a - 1])) {
+                    newBpms[size] = (int) (add[a] >> 32);
+                    newIds[size++] = (int) add[a];
+                }
+            }
+            newBpms[size] = bpms[i];
+            newIds[size++] = ids[i];
+        }
+        for (; a < add.length; a++) {
+            if (a == 0 || add[a] != add[a - 1]) {
+                newBpms[size] = (int) (add[a] >> 32);
+                newIds[size++] = (int) add[a];
+            }
+        }
+        if (size < newBpms.length) {
+            newBpms = Arrays.copyOf(newBpms, size);
+            newIds = Arrays.copyOf(newIds, size);
+        }
+        return new BpmIndex(newBpms, newIds);
+    }
+
+    /**
+     * One track's place in the index as a single long, BPM in the high bits and id in the low
+     * ones, so entries sort in (bpm, id) order
+     */
+    public static long entry(int bpmCenti, int id) {
+        return (long) bpmCenti << 32 | (id & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Index of the first BPM at or above the value, or size() if there is none
+     */
+    private int lowerBound(int bpmCenti) {
+        int low = 0;
+        int high = bpms.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (bpms[mid] < bpmCenti) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Index of the first BPM above the value, or size() if there is none
+     */
+    private int upperBound(int bpmCenti) {
+        int low = 0;
+        int high = bpms.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (bpms[mid] <= bpmCenti) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -1,76 +1,490 @@
 package com.example.musicbpm.data.repository;
 
 import android.app.Application;
+import android.database.Cursor;
 
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
+import androidx.sqlite.db.SupportSQLiteQuery;
 
+import com.example.musicbpm.R;
+import com.example.musicbpm.data.backup.LibraryBackup;
+import com.example.musicbpm.data.backup.SnapshotReader;
+import com.example.musicbpm.data.backup.SnapshotWriter;
+import com.example.musicbpm.data.backup.TrackReader;
+import com.example.musicbpm.data.backup.TrackWriter;
 import com.example.musicbpm.data.database.AppDatabase;
+import com.example.musicbpm.data.database.AppExecutors;
+import com.example.musicbpm.data.database.CompatibleTempoQuery;
+import com.example.musicbpm.data.database.CompatibleTrack;
+import com.example.musicbpm.data.database.Converters;
+import com.example.musicbpm.data.database.LibraryStat;
 import com.example.musicbpm.data.database.MusicTrack;
 import com.example.musicbpm.data.database.MusicTrackDao;
+import com.example.musicbpm.data.database.StatsDao;
+import com.example.musicbpm.data.database.TagCount;
+import com.example.musicbpm.data.database.Tag;
+import com.example.musicbpm.data.database.TagDao;
+import com.example.musicbpm.data.database.TrackListItem;
+import com.example.musicbpm.data.database.TrackListQuery;
+import com.example.musicbpm.data.database.TrackSearch;
+import com.example.musicbpm.data.database.TrackSearchResult;
+import com.example.musicbpm.data.database.TrackTag;
+import com.example.musicbpm.utils.LinkCanonicalizer;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Repository class that abstracts access to the data layer.
  * Handles all database operations on background threads.
+ * One instance for the whole app, see getInstance.
  */
 public class MusicRepository {
 
+    // Pages of 30 rows (a couple of screens), prefetched 30 rows ahead, 60 on first load;
+    // placeholders keep the scrollbar and item positions stable while pages load
+    private static final PagingConfig PAGING_CONFIG = new PagingConfig(30, 30, true, 60);
+
+    // Most rows written per transaction; also keeps DELETE ... IN (:ids) under SQLite's 999 variables
+    private static final int WRITE_BATCH_SIZE = 500;
+
+    private Application application;
+    private AppDatabase database;
     private MusicTrackDao musicTrackDao;
-    private LiveData<List<MusicTrack>> allTracks;
-    private ExecutorService executorService;
+    private TagDao tagDao;
+    private StatsDao statsDao;
+    // Shared with Room: one writer thread for the app, a small pool for reads
+    private Executor writeExecutor;
+    private Executor readExecutor;
+    // Exports, kept off the read pool for as long as they take
+    private Executor backgroundExecutor;
+
+    // Single writes waiting for the executor, committed together by drainWrites
+    private final ArrayDeque<PendingWrite> pendingWrites = new ArrayDeque<>();
+    private boolean drainScheduled;
+
+    // Sorted (bpm, id) arrays for the BPM sliders, built on first use; see getBpmIndex
+    private final MutableLiveData<BpmIndex> bpmIndex = new MutableLiveData<>();
+    private boolean bpmIndexRequested;
+    // Only touched on the writer thread: the index as of the last commit (null until built),
+    // and what the running transaction changes in it
+    private BpmIndex currentBpmIndex;
+    private final BpmIndexChanges bpmIndexChanges = new BpmIndexChanges();
 
-    public MusicRepository(Application application) {
-        AppDatabase database = AppDatabase.getInstance(application);
+    private static volatile MusicRepository INSTANCE;
+
+    private MusicRepository(Application application) {
+        this.application = application;
+        database = AppDatabase.getInstance(application);
         musicTrackDao = database.musicTrackDao();
-        allTracks = musicTrackDao.getAllTracks();
-        executorService = Executors.newSingleThreadExecutor();
+        tagDao = database.tagDao();
+        statsDao = database.statsDao();
+        writeExecutor = AppExecutors.getInstance().diskWrite();
+        readExecutor = AppExecutors.getInstance().diskRead();
+        backgroundExecutor = AppExecutors.getInstance().background();
     }
 
-    public LiveData<List<MusicTrack>> getAllTracks() {
-        return allTracks;
+    public static MusicRepository getInstance(Application application) {
+        if (INSTANCE == null) {
+            synchronized (MusicRepository.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new MusicRepository(application);
+                }
+            }
+        }
+        return INSTANCE;
     }
 
     public LiveData<MusicTrack> getTrackById(int id) {
         return musicTrackDao.getTrackById(id);
     }
 
-    public LiveData<List<MusicTrack>> searchTracks(String query) {
-        return musicTrackDao.searchTracks(query);
+    /**
+     * Load the full track behind a list row, on the read pool; the listener gets null if it was deleted
+     */
+    public void loadTrack(int id, OnTrackLoadedListener listener) {
+        readExecutor.execute(() -> listener.onTrackLoaded(musicTrackDao.getTrack(id)));
     }
 
-    public LiveData<List<MusicTrack>> getTracksByBpmRange(int minBpm, int maxBpm) {
-        return musicTrackDao.getTracksByBpmRange(minBpm, maxBpm);
+    /**
+     * Get the library list for a sort/filter spec, page by page.
+     * Search results are ranked by relevance, which needs every match, so they come
+     * as a single page instead of being paged from the database
+     */
+    public LiveData<PagingData<TrackListItem>> getTracksPaged(TrackListQuery query) {
+        if (query.isSearch()) {
+            return Transformations.map(searchTracks(query), PagingData::from);
+        }
+        SupportSQLiteQuery listQuery = query.toListQuery();
+        // Room invalidates the source on every write; the pager then asks for a new one
+        return PagingLiveData.getLiveData(new Pager<>(PAGING_CONFIG,
+                () -> musicTrackDao.getTracksPaged(listQuery)));
+    }
+
+    /**
+     * Search title, artist, tags and notes by word prefix, most relevant first
+     */
+    public LiveData<List<TrackListItem>> searchTracks(String query) {
+        return searchTracks(new TrackListQuery().withSearch(query));
+    }
+
+    /**
+     * Search with the filters of a list spec, most relevant first
+     */
+    public LiveData<List<TrackListItem>> searchTracks(TrackListQuery query) {
+        if (!query.isSearch()) {
+            return new MutableLiveData<>(Collections.emptyList());
+        }
+        // Rank on the read pool; an older result finishing late must not replace a newer one
+        MediatorLiveData<List<TrackListItem>> ranked = new MediatorLiveData<>();
+        AtomicInteger latest = new AtomicInteger();
+        ranked.addSource(musicTrackDao.searchTracks(query.toSearchQuery()), results -> {
+            int generation = latest.incrementAndGet();
+            readExecutor.execute(() -> {
+                List<TrackListItem> tracks = rank(results);
+                synchronized (latest) {
+                    if (generation == latest.get()) {
+                        ranked.postValue(tracks);
+                    }
+                }
+            });
+        });
+        return ranked;
+    }
+
+    private static List<TrackListItem> rank(List<TrackSearchResult> results) {
+        int count = results.size();
+        double[] scores = new double[count];
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            scores[i] = TrackSearch.bm25(results.get(i).getMatchInfo());
+            order[i] = i;
+        }
+        // Equally relevant tracks keep the library order, newest first
+        Arrays.sort(order, (a, b) -> {
+            int byScore = Double.compare(scores[b], scores[a]);
+            return byScore != 0 ? byScore
+                    : Long.compare(results.get(b).getTrack().getCreatedAt(), results.get(a).getTrack().getCreatedAt());
+        });
+        List<TrackListItem> tracks = new ArrayList<>(count);
+        for (Integer index : order) {
+            tracks.add(results.get(index).getTrack());
+        }
+        return tracks;
+    }
+
+    /**
+     * Get tracks that mix at a target tempo directly or in half/double time, smallest pitch change first
+     */
+    public LiveData<List<CompatibleTrack>> getCompatibleTracks(CompatibleTempoQuery query) {
+        return musicTrackDao.getCompatibleTracks(query.toQuery());
     }
 
-    public LiveData<List<MusicTrack>> getTracksByPlatform(String platform) {
-        return musicTrackDao.getTracksByPlatform(platform);
+    /**
+     * Get tracks having every one of the tags, in a BPM range in hundredths; a 0 bound leaves that side open
+     */
+    public LiveData<List<TrackListItem>> getTracksWithAllTags(List<String> tags, int minBpmCenti, int maxBpmCenti) {
+        List<String> names = Converters.normalizeAll(tags);
+        if (names.isEmpty()) {
+            return new MutableLiveData<>(Collections.emptyList());
+        }
+        return tagDao.getTracksWithAllTags(names, names.size(),
+                minBpmCenti, maxBpmCenti > 0 ? maxBpmCenti : Integer.MAX_VALUE);
     }
 
-    public LiveData<List<MusicTrack>> getTracksSortedByTitle() {
-        return musicTrackDao.getTracksSortedByTitle();
+    /**
+     * Get tracks having at least one of the tags, in a BPM range in hundredths; a 0 bound leaves that side open
+     */
+    public LiveData<List<TrackListItem>> getTracksWithAnyTag(List<String> tags, int minBpmCenti, int maxBpmCenti) {
+        List<String> names = Converters.normalizeAll(tags);
+        if (names.isEmpty()) {
+            return new MutableLiveData<>(Collections.emptyList());
+        }
+        return tagDao.getTracksWithAnyTag(names,
+                minBpmCenti, maxBpmCenti > 0 ? maxBpmCenti : Integer.MAX_VALUE);
     }
 
-    public LiveData<List<MusicTrack>> getTracksSortedByBpm() {
-        return musicTrackDao.getTracksSortedByBpm();
+    /**
+     * Get every tag in use with its number of tracks, most used first
+     */
+    public LiveData<List<TagCount>> getTagCounts() {
+        return tagDao.getTagCounts();
     }
 
-    public LiveData<List<MusicTrack>> getTracksSortedByArtist() {
-        return musicTrackDao.getTracksSortedByArtist();
+    public LiveData<List<String>> getTagNames(int trackId) {
+        return tagDao.getTagNames(trackId);
     }
 
     public LiveData<Integer> getTrackCount() {
         return musicTrackDao.getTrackCount();
     }
 
+    /**
+     * Tracks per BPM range of LibraryStats.BPM_BUCKET_WIDTH, lowest first
+     */
+    public LiveData<List<LibraryStat>> getBpmHistogram() {
+        return statsDao.getBpmHistogram();
+    }
+
+    public LiveData<List<LibraryStat>> getPlatformCounts() {
+        return statsDao.getPlatformCounts();
+    }
+
+    /**
+     * Tracks added per month ("yyyy-MM", UTC), oldest first
+     */
+    public LiveData<List<LibraryStat>> getMonthlyAdditions() {
+        return statsDao.getMonthlyAdditions();
+    }
+
+    /**
+     * Every track's BPM in memory, for range counts and nearest-tempo lookups that need no query.
+     * Read from the table once, on first call. Single-track writes and the background jobs' updates
+     * then patch it as they commit, with no query beyond the old BPM of an edited or deleted track;
+     * bulk inserts, deletes, imports and restores read it again when they finish.
+     * Null until the first build
+     */
+    public LiveData<BpmIndex> getBpmIndex() {
+        synchronized (bpmIndex) {
+            if (!bpmIndexRequested) {
+                bpmIndexRequested = true;
+                // On the writer thread, so no write can land between the read and the first patch
+                writeExecutor.execute(this::rebuildBpmIndex);
+            }
+        }
+        return bpmIndex;
+    }
+
+    /**
+     * Read the index again after a bulk write, if it has been built. Writer thread only
+     */
+    private void refreshBpmIndex() {
+        if (currentBpmIndex != null) {
+            rebuildBpmIndex();
+        }
+    }
+
+    private void rebuildBpmIndex() {
+        currentBpmIndex = loadBpmIndex();
+        bpmIndex.postValue(currentBpmIndex);
+    }
+
+    /**
+     * Patch the index with what the transaction that just committed changed. Writer thread only
+     */
+    private void applyBpmIndexChanges() {
+        if (currentBpmIndex != null && bpmIndexChanges.any()) {
+            currentBpmIndex = bpmIndexChanges.applyTo(currentBpmIndex);
+            bpmIndex.postValue(currentBpmIndex);
+        }
+        bpmIndexChanges.reset();
+    }
+
+    /**
+     * A track's BPM as saved, read inside a write before it changes the track; null if the
+     * index is not built yet (there is nothing to patch) or the track does not exist
+     */
+    private Integer bpmBeforeWrite(int id) {
+        return currentBpmIndex != null ? musicTrackDao.getBpmCenti(id) : null;
+    }
+
+    private BpmIndex loadBpmIndex() {
+        try (Cursor cursor = musicTrackDao.getBpmIndexCursor()) {
+            int[] bpms = new int[cursor.getCount()];
+            int[] ids = new int[bpms.length];
+            int i = 0;
+            while (cursor.moveToNext() && i < bpms.length) {
+                bpms[i] = cursor.getInt(0);
+                ids[i] = cursor.getInt(1);
+                i++;
+            }
+            // A large cursor is read in windows; stop short rather than fail if rows go in between
+            if (i < bpms.length) {
+                bpms = Arrays.copyOf(bpms, i);
+                ids = Arrays.copyOf(ids, i);
+            }
+            return new BpmIndex(bpms, ids);
+        }
+    }
+
+    /**
+     * Save a new track; fails with an error if the same song (by canonical link) is already saved
+     */
     public void insert(MusicTrack track, OnOperationCompleteListener listener) {
-        executorService.execute(() -> {
+        enqueueWrite(() -> {
+            canonicalizeLink(track);
+            checkNotSavedElsewhere(track);
+            // The tags string is split once here, the tags table serves every lookup after
+            long id = musicTrackDao.insert(track);
+            tagDao.setTrackTags((int) id, Converters.toList(track.getTags()));
+            if (currentBpmIndex != null) {
+                bpmIndexChanges.change((int) id, null, track.getBpmCenti());
+            }
+            return id;
+        }, listener);
+    }
+
+    /**
+     * Save an edited track; fails with an error if its new link is another saved track's
+     */
+    public void update(MusicTrack track, OnOperationCompleteListener listener) {
+        enqueueWrite(() -> {
+            canonicalizeLink(track);
+            checkNotSavedElsewhere(track);
+            Integer oldBpmCenti = bpmBeforeWrite(track.getId());
+            musicTrackDao.update(track);
+            tagDao.setTrackTags(track.getId(), Converters.toList(track.getTags()));
+            if (oldBpmCenti != null) {
+                bpmIndexChanges.change(track.getId(), oldBpmCenti, track.getBpmCenti());
+            }
+            return -1;
+        }, listener);
+    }
+
+    public void delete(MusicTrack track, OnOperationCompleteListener listener) {
+        enqueueWrite(() -> {
+            Integer oldBpmCenti = bpmBeforeWrite(track.getId());
+            musicTrackDao.delete(track);
+            bpmIndexChanges.change(track.getId(), oldBpmCenti, null);
+            return -1;
+        }, listener);
+    }
+
+    public void deleteById(int id, OnOperationCompleteListener listener) {
+        enqueueWrite(() -> {
+            Integer oldBpmCenti = bpmBeforeWrite(id);
+            musicTrackDao.deleteById(id);
+            bpmIndexChanges.change(id, oldBpmCenti, null);
+            return -1;
+        }, listener);
+    }
+
+    public void deleteAllTracks(OnOperationCompleteListener listener) {
+        enqueueWrite(() -> {
+            musicTrackDao.deleteAllTracks();
+            bpmIndexChanges.clear();
+            return -1;
+        }, listener);
+    }
+
+    /**
+     * Insert many tracks, WRITE_BATCH_SIZE per transaction; a song already saved fails its chunk,
+     * use upsertAll to merge instead. The listener gets the number of tracks inserted as id
+     */
+    public void insertAll(List<MusicTrack> tracks, OnOperationCompleteListener listener) {
+        writeInChunks(tracks, chunk -> {
+            canonicalizeLinks(chunk);
+            setTrackTags(chunk, musicTrackDao.insertAll(chunk));
+        }, listener);
+    }
+
+    /**
+     * Insert or replace many tracks keyed on their canonical link, WRITE_BATCH_SIZE per transaction.
+     * The listener gets the number of tracks written as id
+     */
+    public void upsertAll(List<MusicTrack> tracks, OnOperationCompleteListener listener) {
+        writeInChunks(tracks, this::upsertChunk, listener);
+    }
+
+    private void upsertChunk(List<MusicTrack> chunk) {
+        canonicalizeLinks(chunk);
+        setTrackTags(chunk, musicTrackDao.upsertAll(chunk));
+    }
+
+    /**
+     * Save tracks changed by a background job the way update does, and run more writes (e.g. the
+     * job's checkpoint) in the same transaction. A track whose new link is another saved track's,
+     * or another track's in the same list, is skipped rather than failing the whole list, and
+     * handed to the listener. Blocks until it commits, so call it from a worker thread; a failed
+     * write is rethrown
+     */
+    public void updateAllWith(List<MusicTrack> tracks, OnBatchSavedListener alsoInTransaction)
+            throws InterruptedException {
+        FutureTask<Void> write = new FutureTask<>(() -> {
             try {
-                long id = musicTrackDao.insert(track);
+                database.runInTransaction(() -> {
+                    canonicalizeLinks(tracks);
+                    List<MusicTrack> saved = new ArrayList<>(tracks.size());
+                    List<MusicTrack> skipped = new ArrayList<>();
+                    Set<String> claimedLinks = new HashSet<>();
+                    for (MusicTrack track : tracks) {
+                        if (isSavedElsewhere(track) || (track.getExternalId() != null
+                                && !claimedLinks.add(track.getPlatform() + ':' + track.getExternalId()))) {
+                            skipped.add(track);
+                        } else {
+                            saved.add(track);
+                        }
+                    }
+                    Integer[] oldBpmCentis = new Integer[saved.size()];
+                    for (int i = 0; i < saved.size(); i++) {
+                        oldBpmCentis[i] = bpmBeforeWrite(saved.get(i).getId());
+                    }
+                    musicTrackDao.updateAll(saved);
+                    for (int i = 0; i < saved.size(); i++) {
+                        MusicTrack track = saved.get(i);
+                        tagDao.setTrackTags(track.getId(), Converters.toList(track.getTags()));
+                        if (oldBpmCentis[i] != null) {
+                            bpmIndexChanges.change(track.getId(), oldBpmCentis[i], track.getBpmCenti());
+                        }
+                    }
+                    alsoInTransaction.onBatchSaved(skipped);
+                });
+            } catch (RuntimeException e) {
+                bpmIndexChanges.reset();
+                throw e;
+            }
+            applyBpmIndexChanges();
+        }, null);
+        // Through the writer thread like every other repository write
+        writeExecutor.execute(write);
+        try {
+            write.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * Write the whole library to a backup file, WRITE_BATCH_SIZE rows at a time in id order,
+     * on the background executor. Only one page is in memory at once, whatever the library size.
+     * Progress is reported after each page; the listener gets the number of tracks written as id
+     * @param out Closed when done
+     * @param format LibraryBackup.FORMAT_JSON or FORMAT_CSV
+     */
+    public void exportLibrary(OutputStream out, String format, OnProgressListener progress,
+                              OnOperationCompleteListener listener) {
+        backgroundExecutor.execute(() -> {
+            try (TrackWriter writer = LibraryBackup.openWriter(out, format)) {
+                int written = writeAllTracks(musicTrackDao.countTracksAfter(0), writer::write, progress);
+                writer.finish();
                 if (listener != null) {
-                    listener.onSuccess(id);
+                    listener.onSuccess(written);
                 }
             } catch (Exception e) {
                 if (listener != null) {
@@ -80,12 +494,20 @@ public class MusicRepository {
         });
     }
 
-    public void update(MusicTrack track, OnOperationCompleteListener listener) {
-        executorService.execute(() -> {
-            try {
-                musicTrackDao.update(track);
+    /**
+     * Save a binary snapshot of the whole library (see LibrarySnapshot), paged like exportLibrary.
+     * The listener gets the number of tracks written as id
+     * @param channel Closed when done
+     */
+    public void exportSnapshot(WritableByteChannel channel, OnProgressListener progress,
+                               OnOperationCompleteListener listener) {
+        backgroundExecutor.execute(() -> {
+            int total = musicTrackDao.countTracksAfter(0);
+            try (SnapshotWriter writer = new SnapshotWriter(channel, total)) {
+                int written = writeAllTracks(total, writer::write, progress);
+                writer.finish();
                 if (listener != null) {
-                    listener.onSuccess(-1);
+                    listener.onSuccess(written);
                 }
             } catch (Exception e) {
                 if (listener != null) {
@@ -95,12 +517,49 @@ public class MusicRepository {
         });
     }
 
-    public void delete(MusicTrack track, OnOperationCompleteListener listener) {
-        executorService.execute(() -> {
-            try {
-                musicTrackDao.delete(track);
+    /**
+     * Replace the library with a snapshot, ids included, in one transaction: a snapshot that
+     * turns out truncated or corrupt rolls back and leaves the library as it was.
+     * Tracks are inserted as they are decoded. The listener gets the number of tracks restored as id
+     * @param channel Closed when done
+     */
+    public void restoreSnapshot(ReadableByteChannel channel, OnProgressListener progress,
+                                OnOperationCompleteListener listener) {
+        writeExecutor.execute(() -> {
+            try (SnapshotReader reader = new SnapshotReader(channel)) {
+                int total = reader.getExpectedCount();
+                int restored = database.runInTransaction(() -> {
+                    musicTrackDao.deleteAllTracks();
+                    // Tag rows are looked up once per name, not once per track
+                    Map<String, Long> tagIds = new HashMap<>();
+                    int count = 0;
+                    MusicTrack track;
+                    while ((track = reader.next()) != null) {
+                        musicTrackDao.insert(track);
+                        for (String name : Converters.toList(track.getTags())) {
+                            Long tagId = tagIds.get(name);
+                            if (tagId == null) {
+                                tagId = tagDao.insertTag(new Tag(name));
+                                if (tagId == -1) {
+                                    tagId = tagDao.getTagId(name);
+                                }
+                                tagIds.put(name, tagId);
+                            }
+                            tagDao.insertTrackTag(new TrackTag(track.getId(), tagId));
+                        }
+                        count++;
+                        if (progress != null && count % WRITE_BATCH_SIZE == 0) {
+                            progress.onProgress(count, Math.max(total, count));
+                        }
+                    }
+                    return count;
+                });
+                refreshBpmIndex();
+                if (progress != null) {
+                    progress.onProgress(restored, restored);
+                }
                 if (listener != null) {
-                    listener.onSuccess(-1);
+                    listener.onSuccess(restored);
                 }
             } catch (Exception e) {
                 if (listener != null) {
@@ -110,14 +569,163 @@ public class MusicRepository {
         });
     }
 
-    public void deleteAllTracks(OnOperationCompleteListener listener) {
-        executorService.execute(() -> {
+    /**
+     * Feed every track to a sink in id order, WRITE_BATCH_SIZE rows per query, so only one page
+     * is in memory at a time. Progress is reported after each page
+     * @return Number of tracks written
+     */
+    private int writeAllTracks(int total, TrackSink sink, OnProgressListener progress) throws IOException {
+        int written = 0;
+        int lastId = 0;
+        List<MusicTrack> page;
+        // Keyset pages: each query seeks the primary key instead of skipping an OFFSET
+        while (!(page = musicTrackDao.getTracksAfter(lastId, WRITE_BATCH_SIZE)).isEmpty()) {
+            for (MusicTrack track : page) {
+                sink.write(track);
+            }
+            written += page.size();
+            lastId = page.get(page.size() - 1).getId();
+            if (progress != null) {
+                // Tracks added during the export can push the count past the first total
+                progress.onProgress(written, Math.max(total, written));
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Read a backup file (JSON or CSV, detected from the content) into the library, merged by
+     * canonical link like upsertAll. Tracks are parsed as they are written, WRITE_BATCH_SIZE per
+     * transaction, and each batch goes back on the write queue so other writes are not held up
+     * by a long import. On a malformed entry the import stops; batches already committed stay,
+     * and importing the fixed file again does not duplicate them.
+     * Progress total is -1 (unknown); the listener gets the number of tracks imported as id
+     * @param in Closed when done
+     */
+    public void importLibrary(InputStream in, OnProgressListener progress, OnOperationCompleteListener listener) {
+        writeExecutor.execute(() -> {
+            TrackReader reader;
+            try {
+                reader = LibraryBackup.openReader(in);
+            } catch (Exception e) {
+                closeQuietly(in);
+                if (listener != null) {
+                    listener.onError(e.getMessage());
+                }
+                return;
+            }
+            importBatch(reader, 0, progress, listener);
+        });
+    }
+
+    private void importBatch(TrackReader reader, int imported, OnProgressListener progress,
+                             OnOperationCompleteListener listener) {
+        try {
+            List<MusicTrack> chunk = new ArrayList<>(WRITE_BATCH_SIZE);
+            MusicTrack track;
+            while (chunk.size() < WRITE_BATCH_SIZE && (track = reader.next()) != null) {
+                chunk.add(track);
+            }
+            if (chunk.isEmpty()) {
+                // Until here single writes kept patching the index; the imported tracks join it now
+                refreshBpmIndex();
+                reader.close();
+                if (listener != null) {
+                    listener.onSuccess(imported);
+                }
+                return;
+            }
+            database.runInTransaction(() -> upsertChunk(chunk));
+            int total = imported + chunk.size();
+            if (progress != null) {
+                progress.onProgress(total, -1);
+            }
+            writeExecutor.execute(() -> importBatch(reader, total, progress, listener));
+        } catch (Exception e) {
+            // Batches already committed stay, so they go in the index too
+            refreshBpmIndex();
+            closeQuietly(reader);
+            if (listener != null) {
+                listener.onError(e.getMessage());
+            }
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Nothing left to do with a stream that failed
+        }
+    }
+
+    /**
+     * Store the link in canonical form, with the platform and external id it identifies
+     */
+    private static void canonicalizeLink(MusicTrack track) {
+        LinkCanonicalizer.CanonicalLink link = LinkCanonicalizer.canonicalize(track.getLink());
+        track.setPlatform(link.getPlatform());
+        track.setExternalId(link.getExternalId());
+        track.setLink(link.getUrl());
+    }
+
+    /**
+     * Fail with a message for the user, rather than on the unique index, if another row already
+     * holds the track's canonical link
+     */
+    private void checkNotSavedElsewhere(MusicTrack track) {
+        if (isSavedElsewhere(track)) {
+            // Reaches the user through the listener's onError, like every other write error
+            throw new IllegalStateException(application.getString(R.string.error_track_duplicate));
+        }
+    }
+
+    /**
+     * Whether another row already holds the track's canonical link
+     */
+    private boolean isSavedElsewhere(MusicTrack track) {
+        if (track.getExternalId() == null) {
+            return false;
+        }
+        Integer existingId = musicTrackDao.getTrackIdByExternalId(track.getPlatform(), track.getExternalId());
+        return existingId != null && existingId != track.getId();
+    }
+
+    private static void canonicalizeLinks(List<MusicTrack> tracks) {
+        for (MusicTrack track : tracks) {
+            canonicalizeLink(track);
+        }
+    }
+
+    /**
+     * Delete tracks by id, WRITE_BATCH_SIZE per transaction.
+     * The listener gets the number of ids processed as id
+     */
+    public void deleteAll(List<Integer> ids, OnOperationCompleteListener listener) {
+        writeInChunks(ids, musicTrackDao::deleteAll, listener);
+    }
+
+    private void setTrackTags(List<MusicTrack> tracks, List<Long> ids) {
+        for (int i = 0; i < tracks.size(); i++) {
+            tagDao.setTrackTags(ids.get(i).intValue(), Converters.toList(tracks.get(i).getTags()));
+        }
+    }
+
+    private <T> void writeInChunks(List<T> items, ChunkWrite<T> write, OnOperationCompleteListener listener) {
+        writeExecutor.execute(() -> {
             try {
-                musicTrackDao.deleteAllTracks();
+                for (int from = 0; from < items.size(); from += WRITE_BATCH_SIZE) {
+                    List<T> chunk = items.subList(from, Math.min(from + WRITE_BATCH_SIZE, items.size()));
+                    // Observers are invalidated once per committed chunk, not once per row
+                    database.runInTransaction(() -> write.run(chunk));
+                }
+                refreshBpmIndex();
                 if (listener != null) {
-                    listener.onSuccess(-1);
+                    listener.onSuccess(items.size());
                 }
             } catch (Exception e) {
+                // Chunks already committed stay, so the index is read again all the same
+                refreshBpmIndex();
                 if (listener != null) {
                     listener.onError(e.getMessage());
                 }
@@ -125,6 +733,149 @@ public class MusicRepository {
         });
     }
 
+    /**
+     * Queue a single write. Writes queued while another batch is running are committed
+     * together, up to WRITE_BATCH_SIZE per transaction
+     */
+    private void enqueueWrite(Write write, OnOperationCompleteListener listener) {
+        synchronized (pendingWrites) {
+            pendingWrites.add(new PendingWrite(write, listener));
+            if (drainScheduled) {
+                return;
+            }
+            drainScheduled = true;
+        }
+        writeExecutor.execute(this::drainWrites);
+    }
+
+    private void drainWrites() {
+        while (true) {
+            List<PendingWrite> batch = new ArrayList<>();
+            synchronized (pendingWrites) {
+                while (batch.size() < WRITE_BATCH_SIZE && !pendingWrites.isEmpty()) {
+                    batch.add(pendingWrites.poll());
+                }
+                if (batch.isEmpty()) {
+                    drainScheduled = false;
+                    return;
+                }
+            }
+            runBatch(batch);
+        }
+    }
+
+    private void runBatch(List<PendingWrite> batch) {
+        long[] results = new long[batch.size()];
+        try {
+            database.runInTransaction(() -> {
+                for (int i = 0; i < batch.size(); i++) {
+                    results[i] = batch.get(i).write.run();
+                }
+            });
+        } catch (Exception e) {
+            bpmIndexChanges.reset();
+            if (batch.size() > 1) {
+                // The whole batch rolled back; redo each write alone so only the failing one reports an error
+                for (PendingWrite pending : batch) {
+                    runBatch(Collections.singletonList(pending));
+                }
+            } else if (batch.get(0).listener != null) {
+                batch.get(0).listener.onError(e.getMessage());
+            }
+            return;
+        }
+        applyBpmIndexChanges();
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.get(i).listener != null) {
+                batch.get(i).listener.onSuccess(results[i]);
+            }
+        }
+    }
+
+    private interface Write {
+        long run();
+    }
+
+    private interface ChunkWrite<T> {
+        void run(List<T> chunk);
+    }
+
+    private interface TrackSink {
+        void write(MusicTrack track) throws IOException;
+    }
+
+    /**
+     * Index entries a transaction removes and adds, kept until it commits. A change that undoes an
+     * earlier one in the same transaction cancels it, so a track edited twice leaves one entry
+     */
+    private static class BpmIndexChanges {
+        final List<Long> removed = new ArrayList<>();
+        final List<Long> added = new ArrayList<>();
+        // Every track deleted; entries recorded before that no longer matter
+        boolean cleared;
+
+        /**
+         * @param oldBpmCenti Null for a new track
+         * @param newBpmCenti Null for a deleted track
+         */
+        void change(int id, Integer oldBpmCenti, Integer newBpmCenti) {
+            if (Objects.equals(oldBpmCenti, newBpmCenti)) {
+                return;
+            }
+            if (oldBpmCenti != null) {
+                Long entry = BpmIndex.entry(oldBpmCenti, id);
+                if (!added.remove(entry)) {
+                    removed.add(entry);
+                }
+            }
+            if (newBpmCenti != null) {
+                Long entry = BpmIndex.entry(newBpmCenti, id);
+                if (!removed.remove(entry)) {
+                    added.add(entry);
+                }
+            }
+        }
+
+        void clear() {
+            removed.clear();
+            added.clear();
+            cleared = true;
+        }
+
+        boolean any() {
+            return cleared || !removed.isEmpty() || !added.isEmpty();
+        }
+
+        BpmIndex applyTo(BpmIndex index) {
+            BpmIndex base = cleared ? new BpmIndex(new int[0], new int[0]) : index;
+            return base.withChanges(toArray(removed), toArray(added));
+        }
+
+        void reset() {
+            removed.clear();
+            added.clear();
+            cleared = false;
+        }
+
+        private static long[] toArray(List<Long> entries) {
+            long[] array = new long[entries.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = entries.get(i);
+            }
+            return array;
+        }
+    }
+
+    private static class PendingWrite {
+        final Write write;
+        final OnOperationCompleteListener listener;
+
+        PendingWrite(Write write, OnOperationCompleteListener listener) {
+            this.write = write;
+            this.listener = listener;
+        }
+    }
+
     /**
      * Callback interface for async operations
      */
@@ -132,4 +883,31 @@ public class MusicRepository {
         void onSuccess(long id);
         void onError(String error);
     }
+
+    /**
+     * Progress of a long operation, called on a background thread
+     */
+    public interface OnProgressListener {
+        /**
+         * @param total Expected count, or -1 if unknown
+         */
+        void onProgress(int done, int total);
+    }
+
+    /**
+     * Callback for updateAllWith, called on the writer thread inside its transaction
+     */
+    public interface OnBatchSavedListener {
+        /**
+         * @param skipped Tracks not saved because their link is another track's
+         */
+        void onBatchSaved(List<MusicTrack> skipped);
+    }
+
+    /**
+     * Callback for loadTrack, called on a background thread
+     */
+    public interface OnTrackLoadedListener {
+        void onTrackLoaded(MusicTrack track);
+    }
 }
\ No newline at end of file
@@ -6,6 +6,8 @@ import org.apache.hc.core5.http.ParseException;
 
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import se.michaelthelin.spotify.SpotifyApi;
 import se.michaelthelin.spotify.exceptions.SpotifyWebApiException;
@@ -13,6 +15,7 @@ import se.michaelthelin.spotify.model_objects.credentials.ClientCredentials;
 import se.michaelthelin.spotify.model_objects.specification.AudioFeatures;
 import se.michaelthelin.spotify.model_objects.specification.Track;
 import se.michaelthelin.spotify.requests.authorization.client_credentials.ClientCredentialsRequest;
+import se.michaelthelin.spotify.requests.data.artists.GetArtistRequest;
 import se.michaelthelin.spotify.requests.data.tracks.GetAudioFeaturesForTrackRequest;
 import se.michaelthelin.spotify.requests.data.tracks.GetTrackRequest;
 
@@ -24,6 +27,8 @@ public class SpotifyService {
     private static final String CLIENT_ID = "c5d2a66ea01d495d94bc4a6b2428916c";
     private static final String CLIENT_SECRET = "e7bca760ced24c0ebcfbf2260f55b68e";
 
+    private static final Pattern TRACK_ID_PATTERN = Pattern.compile("track/([a-zA-Z0-9]+)");
+
     private SpotifyApi spotifyApi;
     private String accessToken;
     private long tokenExpirationTime = 0;
@@ -152,6 +157,41 @@ public class SpotifyService {
                 });
     }
 
+    /**
+     * Obtém os géneros musicais de um artista (usados como tags e para resolver meio tempo / tempo duplo)
+     */
+    public CompletableFuture<String[]> getArtistGenres(String artistId) {
+        return ensureValidToken()
+                .thenCompose(v -> {
+                    GetArtistRequest getArtistRequest = spotifyApi.getArtist(artistId).build();
+                    return getArtistRequest.executeAsync();
+                })
+                .thenApply(artist -> {
+                    String[] genres = artist.getGenres() != null ? artist.getGenres() : new String[0];
+                    Log.d(TAG, "✓ Géneros obtidos: " + String.join(", ", genres));
+                    return genres;
+                })
+                .exceptionally(throwable -> {
+                    Log.e(TAG, "❌ Erro ao obter géneros do artista: " + artistId, throwable);
+                    return new String[0];
+                });
+    }
+
+    /**
+     * Extrai o ID da track de um link do Spotify
+     * @return ID da track ou null se o link não for de uma track
+     */
+    public static String extractTrackId(String url) {
+        if (url == null) {
+            return null;
+        }
+        Matcher matcher = TRACK_ID_PATTERN.matcher(url);
+        if (matcher.find()) {
+            return matcher.group(1);
+        }
+        return null;
+    }
+
     /**
      * Verifica se as credenciais estão configuradas
      */
@@ -0,0 +1,94 @@
+package com.example.musicbpm.jobs;
+
+import android.content.Context;
+
+import androidx.lifecycle.LiveData;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import com.example.musicbpm.data.database.AnalysisJob;
+import com.example.musicbpm.data.database.AnalysisJobDao;
+import com.example.musicbpm.data.database.AppDatabase;
+import com.example.musicbpm.data.database.AppExecutors;
+import com.example.musicbpm.data.repository.MusicRepository;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates batch jobs over the library and hands them to WorkManager.
+ * The job table is the source of truth: unfinished jobs are re-enqueued on start,
+ * and each run picks up from the job's checkpoint.
+ */
+public class AnalysisScheduler {
+
+    private static final String WORK_NAME_PREFIX = "analysis-job-";
+    private static final long BACKOFF_SECONDS = 60;
+
+    private final Context context;
+    private final AnalysisJobDao jobDao;
+    private final Executor executor;
+
+    public AnalysisScheduler(Context context) {
+        this.context = context.getApplicationContext();
+        this.jobDao = AppDatabase.getInstance(this.context).analysisJobDao();
+        this.executor = AppExecutors.getInstance().diskWrite();
+    }
+
+    public LiveData<AnalysisJob> getLatestJob() {
+        return jobDao.getLatestJob();
+    }
+
+    /**
+     * Create a job running the given task over every track and schedule it
+     * @param task Task name, see {@link TrackTasks}
+     */
+    public void enqueue(String task, MusicRepository.OnOperationCompleteListener listener) {
+        executor.execute(() -> {
+            try {
+                // Fail fast on unknown names rather than in the worker
+                TrackTasks.create(task);
+                long id = jobDao.insert(new AnalysisJob(task, System.currentTimeMillis()));
+                schedule(id);
+                if (listener != null) {
+                    listener.onSuccess(id);
+                }
+            } catch (Exception e) {
+                if (listener != null) {
+                    listener.onError(e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Re-enqueue jobs left unfinished by a killed process; already queued work is kept
+     */
+    public void resumeUnfinished() {
+        executor.execute(() -> {
+            for (AnalysisJob job : jobDao.getUnfinishedJobs()) {
+                schedule(job.getId());
+            }
+        });
+    }
+
+    private void schedule(long jobId) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresBatteryNotLow(true)
+                .setRequiresStorageNotLow(true)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(AnalysisWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .setInputData(new Data.Builder().putLong(AnalysisWorker.KEY_JOB_ID, jobId).build())
+                .build();
+
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(WORK_NAME_PREFIX + jobId, ExistingWorkPolicy.KEEP, request);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.musicbpm.jobs;
+
+import android.app.Application;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.musicbpm.data.database.AnalysisJob;
+import com.example.musicbpm.data.database.AppDatabase;
+import com.example.musicbpm.data.repository.MusicRepository;
+
+/**
+ * WorkManager worker that runs one analysis job from its checkpoint.
+ * Stops between pages when WorkManager cancels it, the battery runs low or the device
+ * starts throttling, and asks to be retried later in the last two cases.
+ */
+public class AnalysisWorker extends Worker {
+
+    private static final String TAG = "AnalysisWorker";
+
+    public static final String KEY_JOB_ID = "job_id";
+
+    // Battery level below which a run pauses when not charging
+    private static final int LOW_BATTERY_PERCENT = 15;
+
+    public AnalysisWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        long jobId = getInputData().getLong(KEY_JOB_ID, -1);
+        AppDatabase database = AppDatabase.getInstance(getApplicationContext());
+        AnalysisJob job = database.analysisJobDao().getJob(jobId);
+        if (job == null || job.isFinished()) {
+            return Result.success();
+        }
+
+        try {
+            TrackTask task = TrackTasks.create(job.getTask());
+            MusicRepository repository = MusicRepository.getInstance((Application) getApplicationContext());
+            boolean finished = new TrackBatchProcessor(database, repository).run(job, task, this::shouldPause);
+            if (finished) {
+                return Result.success(new Data.Builder().putLong(KEY_JOB_ID, jobId).build());
+            }
+            // Paused: WorkManager retries with backoff once the constraints hold again
+            return Result.retry();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        } catch (Exception e) {
+            Log.e(TAG, "Job " + jobId + " failed", e);
+            job.setStatus(AnalysisJob.STATUS_FAILED);
+            job.setError(e.getMessage());
+            job.setUpdatedAt(System.currentTimeMillis());
+            database.analysisJobDao().update(job);
+            return Result.failure();
+        }
+    }
+
+    private boolean shouldPause() {
+        return isStopped() || isBatteryLow() || isThermalThrottled();
+    }
+
+    private boolean isBatteryLow() {
+        Intent battery = getApplicationContext().registerReceiver(null,
+                new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery == null) {
+            return false;
+        }
+        int status = battery.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+        boolean charging = status == BatteryManager.BATTERY_STATUS_CHARGING
+                || status == BatteryManager.BATTERY_STATUS_FULL;
+        int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        if (charging || level < 0 || scale <= 0) {
+            return false;
+        }
+        return level * 100 / scale < LOW_BATTERY_PERCENT;
+    }
+
+    private boolean isThermalThrottled() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            return false;
+        }
+        PowerManager powerManager = (PowerManager) getApplicationContext().getSystemService(Context.POWER_SERVICE);
+        return powerManager != null
+                && powerManager.getCurrentThermalStatus() >= PowerManager.THERMAL_STATUS_MODERATE;
+    }
+}
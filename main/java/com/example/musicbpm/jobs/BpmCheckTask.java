@@ -0,0 +1,41 @@
+package com.example.musicbpm.jobs;
+
+import com.example.musicbpm.data.database.MusicTrack;
+import com.example.musicbpm.utils.FixedBpm;
+import com.example.musicbpm.utils.tempo.TempoOctaveResolver;
+
+/**
+ * Sanity check of stored BPMs: values outside the realistic range are folded by octaves
+ * and the half/double-time alternates are recomputed from the current tags.
+ */
+public class BpmCheckTask implements TrackTask {
+
+    private static final int MIN_BPM_CENTI = FixedBpm.fromWhole(40);
+    private static final int MAX_BPM_CENTI = FixedBpm.fromWhole(220);
+
+    private final TempoOctaveResolver resolver = new TempoOctaveResolver();
+
+    @Override
+    public boolean process(MusicTrack track) {
+        int bpm = track.getBpmCenti();
+        if (bpm <= 0) {
+            return false;
+        }
+        if (bpm < MIN_BPM_CENTI || bpm > MAX_BPM_CENTI) {
+            // Halving and doubling are exact in hundredths apart from odd values, which round
+            bpm = FixedBpm.fromDouble(TempoOctaveResolver.fold(FixedBpm.toDouble(bpm),
+                    FixedBpm.toDouble(MIN_BPM_CENTI), FixedBpm.toDouble(MAX_BPM_CENTI)));
+        }
+
+        TempoOctaveResolver.Resolution resolution = resolver.resolve(FixedBpm.toDouble(bpm), track.getTags());
+        int low = resolution.getAlternateBelow(bpm);
+        int high = resolution.getAlternateAbove(bpm);
+        if (bpm == track.getBpmCenti() && low == track.getAltBpmLowCenti() && high == track.getAltBpmHighCenti()) {
+            return false;
+        }
+        track.setBpmCenti(bpm);
+        track.setAltBpmLowCenti(low);
+        track.setAltBpmHighCenti(high);
+        return true;
+    }
+}
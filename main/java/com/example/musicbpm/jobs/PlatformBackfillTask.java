@@ -0,0 +1,28 @@
+package com.example.musicbpm.jobs;
+
+import com.example.musicbpm.data.database.MusicTrack;
+import com.example.musicbpm.utils.LinkCanonicalizer;
+
+import java.util.Objects;
+
+/**
+ * Fills in or corrects the platform of tracks from their link.
+ * Platform, external id and link are set together from LinkCanonicalizer, so the
+ * (platform, external_id) key always matches the link.
+ */
+public class PlatformBackfillTask implements TrackTask {
+
+    @Override
+    public boolean process(MusicTrack track) {
+        LinkCanonicalizer.CanonicalLink link = LinkCanonicalizer.canonicalize(track.getLink());
+        if (link.getPlatform().equals(track.getPlatform())
+                && Objects.equals(link.getExternalId(), track.getExternalId())
+                && link.getUrl().equals(track.getLink())) {
+            return false;
+        }
+        track.setPlatform(link.getPlatform());
+        track.setExternalId(link.getExternalId());
+        track.setLink(link.getUrl());
+        return true;
+    }
+}
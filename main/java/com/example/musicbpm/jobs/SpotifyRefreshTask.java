@@ -0,0 +1,69 @@
+package com.example.musicbpm.jobs;
+
+import com.example.musicbpm.data.database.MusicTrack;
+import com.example.musicbpm.data.spotify.SpotifyService;
+import com.example.musicbpm.utils.tempo.TempoOctaveResolver;
+
+import java.util.concurrent.TimeUnit;
+
+import se.michaelthelin.spotify.model_objects.specification.AudioFeatures;
+import se.michaelthelin.spotify.model_objects.specification.Image;
+import se.michaelthelin.spotify.model_objects.specification.Track;
+
+/**
+ * Re-fetches the Spotify tempo and album art of Spotify tracks.
+ * A stored BPM is only replaced when it is missing; otherwise the Spotify tempo is used
+ * as evidence for the half/double-time alternates, since the user may have corrected the octave.
+ */
+public class SpotifyRefreshTask implements TrackTask {
+
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private final SpotifyService spotifyService = new SpotifyService();
+    private final TempoOctaveResolver resolver = new TempoOctaveResolver();
+
+    @Override
+    public boolean process(MusicTrack track) throws Exception {
+        String trackId = SpotifyService.extractTrackId(track.getLink());
+        if (trackId == null) {
+            return false;
+        }
+
+        boolean changed = false;
+
+        if (track.getAlbumArtUrl() == null || track.getAlbumArtUrl().isEmpty()) {
+            Track spotifyTrack = spotifyService.getTrack(trackId).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (spotifyTrack != null && spotifyTrack.getAlbum() != null) {
+                Image[] images = spotifyTrack.getAlbum().getImages();
+                if (images != null && images.length > 0) {
+                    track.setAlbumArtUrl(images[0].getUrl());
+                    changed = true;
+                }
+            }
+        }
+
+        AudioFeatures features = spotifyService.getAudioFeatures(trackId).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (features == null || features.getTempo() == null || features.getTempo() <= 0) {
+            return changed;
+        }
+
+        TempoOctaveResolver.Resolution resolution = resolver.resolve(features.getTempo(), track.getTags());
+        int bpm = track.getBpmCenti();
+        if (bpm <= 0) {
+            bpm = resolution.getBpmCenti();
+        } else if (!resolution.contains(bpm)) {
+            // The stored BPM is not related to Spotify's: leave it and its alternates alone
+            return changed;
+        }
+
+        int low = resolution.getAlternateBelow(bpm);
+        int high = resolution.getAlternateAbove(bpm);
+        if (bpm != track.getBpmCenti() || low != track.getAltBpmLowCenti() || high != track.getAltBpmHighCenti()) {
+            track.setBpmCenti(bpm);
+            track.setAltBpmLowCenti(low);
+            track.setAltBpmHighCenti(high);
+            changed = true;
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.musicbpm.jobs;
+
+import android.util.Log;
+
+import com.example.musicbpm.data.database.AnalysisJob;
+import com.example.musicbpm.data.database.AnalysisJobDao;
+import com.example.musicbpm.data.database.AppDatabase;
+import com.example.musicbpm.data.database.MusicTrack;
+import com.example.musicbpm.data.database.MusicTrackDao;
+import com.example.musicbpm.data.repository.MusicRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a {@link TrackTask} over the library in pages of tracks ordered by id.
+ * Each page is processed on a pool sized to the available cores, then the changed tracks
+ * and the job's checkpoint are written in one transaction, so a killed run resumes
+ * right after the last committed page and never applies a page twice.
+ * Changed tracks are saved through {@link MusicRepository}, so links are canonicalized
+ * and tags synced as for any other edit; a track whose new link is another saved track's
+ * is left as it was and counted as failed.
+ */
+public class TrackBatchProcessor {
+
+    private static final String TAG = "TrackBatchProcessor";
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private final MusicRepository repository;
+    private final MusicTrackDao trackDao;
+    private final AnalysisJobDao jobDao;
+    private final int batchSize;
+    private final int threads;
+
+    public TrackBatchProcessor(AppDatabase database, MusicRepository repository) {
+        this(database, repository, DEFAULT_BATCH_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param batchSize Tracks read, processed and committed together
+     * @param threads Size of the worker pool
+     */
+    public TrackBatchProcessor(AppDatabase database, MusicRepository repository, int batchSize, int threads) {
+        if (batchSize < 1 || threads < 1) {
+            throw new IllegalArgumentException("batchSize and threads must be positive");
+        }
+        this.repository = repository;
+        this.trackDao = database.musicTrackDao();
+        this.jobDao = database.analysisJobDao();
+        this.batchSize = batchSize;
+        this.threads = threads;
+    }
+
+    /**
+     * Process the job from its checkpoint until the library is done or the signal asks to pause.
+     * The job row is updated along the way.
+     * @return true if every track was processed, false if paused
+     */
+    public boolean run(AnalysisJob job, TrackTask task, PauseSignal pauseSignal) throws InterruptedException {
+        if (job.getTotal() == 0 || AnalysisJob.STATUS_PENDING.equals(job.getStatus())) {
+            job.setTotal(job.getProcessed() + trackDao.countTracksAfter(job.getLastTrackId()));
+        }
+        job.setStatus(AnalysisJob.STATUS_RUNNING);
+        job.setError(null);
+        saveJob(job);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            while (true) {
+                if (pauseSignal.shouldPause()) {
+                    job.setStatus(AnalysisJob.STATUS_PAUSED);
+                    saveJob(job);
+                    Log.d(TAG, "Job " + job.getId() + " paused at track " + job.getLastTrackId());
+                    return false;
+                }
+
+                List<MusicTrack> page = trackDao.getTracksAfter(job.getLastTrackId(), batchSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                processPage(job, task, page, pool);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        job.setStatus(AnalysisJob.STATUS_DONE);
+        saveJob(job);
+        Log.d(TAG, "Job " + job.getId() + " done: " + job.getProcessed() + " processed, "
+                + job.getChanged() + " changed, " + job.getFailed() + " failed");
+        return true;
+    }
+
+    private void processPage(AnalysisJob job, TrackTask task, List<MusicTrack> page, ExecutorService pool)
+            throws InterruptedException {
+        List<Future<Boolean>> results = new ArrayList<>(page.size());
+        for (MusicTrack track : page) {
+            results.add(pool.submit(() -> task.process(track)));
+        }
+
+        List<MusicTrack> changed = new ArrayList<>();
+        int failed = 0;
+        for (int i = 0; i < page.size(); i++) {
+            try {
+                if (results.get(i).get()) {
+                    changed.add(page.get(i));
+                }
+            } catch (ExecutionException e) {
+                failed++;
+                Log.w(TAG, "Track " + page.get(i).getId() + " failed: " + e.getCause());
+            }
+        }
+
+        int failedToProcess = failed;
+        // Results and checkpoint commit together
+        repository.updateAllWith(changed, skipped -> {
+            for (MusicTrack track : skipped) {
+                Log.w(TAG, "Track " + track.getId() + " failed: its link is another saved track's");
+            }
+            job.setLastTrackId(page.get(page.size() - 1).getId());
+            job.setProcessed(job.getProcessed() + page.size());
+            job.setChanged(job.getChanged() + changed.size() - skipped.size());
+            job.setFailed(job.getFailed() + failedToProcess + skipped.size());
+            job.setUpdatedAt(System.currentTimeMillis());
+            jobDao.update(job);
+        });
+    }
+
+    private void saveJob(AnalysisJob job) {
+        job.setUpdatedAt(System.currentTimeMillis());
+        jobDao.update(job);
+    }
+
+    /**
+     * Checked between pages to stop early, e.g. on low battery
+     */
+    public interface PauseSignal {
+        boolean shouldPause();
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.musicbpm.jobs;
+
+import com.example.musicbpm.data.database.MusicTrack;
+
+/**
+ * One unit of work applied to every track of a batch job.
+ * Implementations must be thread-safe: the batch processor calls them from several
+ * worker threads at once.
+ */
+public interface TrackTask {
+
+    /**
+     * Process one track, modifying it in place
+     * @param track Track to process
+     * @return true if the track was changed and must be written back
+     * @throws Exception to count the track as failed; the job carries on with the next one
+     */
+    boolean process(MusicTrack track) throws Exception;
+}
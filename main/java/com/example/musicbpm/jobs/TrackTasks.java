@@ -0,0 +1,48 @@
+package com.example.musicbpm.jobs;
+
+/**
+ * Registry of the per-track tasks a batch job can run, by the name stored in the job table.
+ */
+public final class TrackTasks {
+
+    public static final String BPM_CHECK = "bpm_check";
+    public static final String SPOTIFY_REFRESH = "spotify_refresh";
+    public static final String PLATFORM_BACKFILL = "platform_backfill";
+
+    private TrackTasks() {
+    }
+
+    /**
+     * Create a fresh instance of a task
+     * @param name Task name as stored in {@code analysis_jobs.task}
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static TrackTask create(String name) {
+        switch (name) {
+            case BPM_CHECK:
+                return new BpmCheckTask();
+            case SPOTIFY_REFRESH:
+                return new SpotifyRefreshTask();
+            case PLATFORM_BACKFILL:
+                return new PlatformBackfillTask();
+            default:
+                throw new IllegalArgumentException("Unknown track task: " + name);
+        }
+    }
+
+    /**
+     * Gets a display name for the task
+     */
+    public static String getDisplayName(String name) {
+        switch (name) {
+            case BPM_CHECK:
+                return "BPM check";
+            case SPOTIFY_REFRESH:
+                return "Spotify refresh";
+            case PLATFORM_BACKFILL:
+                return "Platform backfill";
+            default:
+                return name;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.musicbpm.metronome;
+
+import java.util.Arrays;
+
+/**
+ * Synthesizes a metronome click track into sample buffers.
+ * Beat n starts at a position computed from a fixed anchor ({@code anchor + n * period})
+ * rather than by adding up periods, so rounding never accumulates and the click stays
+ * sample-accurate however long it plays. Pure Java: the same render path drives the
+ * AudioTrack in {@link Metronome} and can be run on the JVM to check timing.
+ *
+ * {@link #setBpm(double)} and {@link #setAccentPattern(int[])} may be called from any
+ * thread; changes take effect at the next beat, so a click is never cut or shifted.
+ */
+public class ClickRenderer {
+
+    public static final int LEVEL_MUTE = 0;
+    public static final int LEVEL_NORMAL = 1;
+    public static final int LEVEL_ACCENT = 2;
+
+    private static final double CLICK_SECONDS = 0.03;
+    private static final double NORMAL_FREQUENCY = 1000;
+    private static final double ACCENT_FREQUENCY = 1600;
+    private static final float NORMAL_GAIN = 0.6f;
+    private static final float ACCENT_GAIN = 0.9f;
+
+    private final int sampleRate;
+    private final float[] normalClick;
+    private final float[] accentClick;
+
+    // Beat grid: beat n starts at anchorSample + (n - anchorBeat) * samplesPerBeat
+    private double anchorSample;
+    private long anchorBeat;
+    private double samplesPerBeat;
+    private long nextBeat;
+    private long renderedFrames;
+
+    private float[] activeClick;
+    private int activeClickPosition;
+
+    private volatile double pendingBpm;
+    private volatile int[] accentPattern = {LEVEL_ACCENT, LEVEL_NORMAL, LEVEL_NORMAL, LEVEL_NORMAL};
+
+    /**
+     * @param sampleRate Output sample rate
+     * @param bpm Initial tempo
+     */
+    public ClickRenderer(int sampleRate, double bpm) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("sampleRate must be positive");
+        }
+        this.sampleRate = sampleRate;
+        this.normalClick = synthesizeClick(sampleRate, NORMAL_FREQUENCY, NORMAL_GAIN);
+        this.accentClick = synthesizeClick(sampleRate, ACCENT_FREQUENCY, ACCENT_GAIN);
+        reset(bpm);
+    }
+
+    private static float[] synthesizeClick(int sampleRate, double frequency, float gain) {
+        int length = (int) (sampleRate * CLICK_SECONDS);
+        float[] click = new float[length];
+        double decay = length / 5.0;
+        for (int i = 0; i < length; i++) {
+            double envelope = Math.exp(-i / decay);
+            click[i] = (float) (gain * envelope * Math.sin(2 * Math.PI * frequency * i / sampleRate));
+        }
+        return click;
+    }
+
+    /**
+     * Restart from the first beat of a bar at the given tempo. Not thread-safe with render.
+     */
+    public void reset(double bpm) {
+        checkBpm(bpm);
+        samplesPerBeat = sampleRate * 60.0 / bpm;
+        anchorSample = 0;
+        anchorBeat = 0;
+        nextBeat = 0;
+        renderedFrames = 0;
+        activeClick = null;
+        activeClickPosition = 0;
+        pendingBpm = 0;
+    }
+
+    private static void checkBpm(double bpm) {
+        if (!(bpm > 0)) {
+            throw new IllegalArgumentException("bpm must be positive");
+        }
+    }
+
+    /**
+     * Change the tempo from the next beat on
+     */
+    public void setBpm(double bpm) {
+        checkBpm(bpm);
+        pendingBpm = bpm;
+    }
+
+    public double getBpm() {
+        double pending = pendingBpm;
+        return pending > 0 ? pending : sampleRate * 60.0 / samplesPerBeat;
+    }
+
+    /**
+     * Set the level of each beat in a bar
+     * @param levels One of {@link #LEVEL_MUTE}, {@link #LEVEL_NORMAL} or {@link #LEVEL_ACCENT} per beat
+     */
+    public void setAccentPattern(int[] levels) {
+        if (levels == null || levels.length == 0) {
+            throw new IllegalArgumentException("Accent pattern must have at least one beat");
+        }
+        accentPattern = levels.clone();
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Get the exact (fractional) sample position of a beat on the current grid
+     */
+    public double getBeatPosition(long beat) {
+        return anchorSample + (beat - anchorBeat) * samplesPerBeat;
+    }
+
+    /**
+     * Get the number of beats started so far
+     */
+    public long getBeatCount() {
+        return nextBeat;
+    }
+
+    /**
+     * Get the number of frames rendered so far
+     */
+    public long getRenderedFrames() {
+        return renderedFrames;
+    }
+
+    /**
+     * Render the next frames of the click track (mono, overwriting the buffer)
+     */
+    public void render(float[] buffer, int offset, int frames) {
+        Arrays.fill(buffer, offset, offset + frames, 0f);
+
+        int position = 0;
+        while (position < frames) {
+            long beatStart = Math.round(getBeatPosition(nextBeat));
+            int untilBeat = (int) Math.min(frames, Math.max(position, beatStart - renderedFrames));
+
+            mixActiveClick(buffer, offset + position, untilBeat - position);
+            position = untilBeat;
+
+            if (position < frames) {
+                startBeat();
+            }
+        }
+        renderedFrames += frames;
+    }
+
+    private void startBeat() {
+        double pending = pendingBpm;
+        if (pending > 0) {
+            // Re-anchor the grid on this beat so the new tempo starts without a jump
+            anchorSample = getBeatPosition(nextBeat);
+            anchorBeat = nextBeat;
+            samplesPerBeat = sampleRate * 60.0 / pending;
+            pendingBpm = 0;
+        }
+
+        int[] pattern = accentPattern;
+        int level = pattern[(int) (nextBeat % pattern.length)];
+        if (level == LEVEL_ACCENT) {
+            activeClick = accentClick;
+        } else if (level == LEVEL_NORMAL) {
+            activeClick = normalClick;
+        } else {
+            activeClick = null;
+        }
+        activeClickPosition = 0;
+        nextBeat++;
+    }
+
+    private void mixActiveClick(float[] buffer, int offset, int frames) {
+        if (activeClick == null) {
+            return;
+        }
+        int count = Math.min(frames, activeClick.length - activeClickPosition);
+        for (int i = 0; i < count; i++) {
+            buffer[offset + i] += activeClick[activeClickPosition + i];
+        }
+        activeClickPosition += count;
+        if (activeClickPosition >= activeClick.length) {
+            activeClick = null;
+        }
+    }
+}
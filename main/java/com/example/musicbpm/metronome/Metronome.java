@@ -0,0 +1,120 @@
+package com.example.musicbpm.metronome;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.os.Build;
+import android.os.Process;
+
+/**
+ * Plays a click track at a given tempo through a streaming AudioTrack.
+ * Clicks are rendered into the audio stream itself by a {@link ClickRenderer} on a
+ * dedicated thread, so their timing depends only on the audio clock and does not
+ * drift under UI load the way Handler.postDelayed scheduling would.
+ */
+public class Metronome {
+
+    private static final int BLOCK_FRAMES = 256;
+
+    private final int sampleRate;
+    private final ClickRenderer renderer;
+
+    private AudioTrack audioTrack;
+    private Thread renderThread;
+    private volatile boolean playing;
+
+    public Metronome() {
+        sampleRate = AudioTrack.getNativeOutputSampleRate(AudioManager.STREAM_MUSIC);
+        renderer = new ClickRenderer(sampleRate, 120);
+    }
+
+    /**
+     * Start clicking at the given tempo, restarting if already playing
+     */
+    public synchronized void start(double bpm) {
+        stop();
+        renderer.reset(bpm);
+
+        int minBufferSize = AudioTrack.getMinBufferSize(sampleRate,
+                AudioFormat.CHANNEL_OUT_MONO, AudioFormat.ENCODING_PCM_FLOAT);
+        AudioTrack.Builder builder = new AudioTrack.Builder()
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_MEDIA)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                        .build())
+                .setAudioFormat(new AudioFormat.Builder()
+                        .setEncoding(AudioFormat.ENCODING_PCM_FLOAT)
+                        .setSampleRate(sampleRate)
+                        .setChannelMask(AudioFormat.CHANNEL_OUT_MONO)
+                        .build())
+                .setTransferMode(AudioTrack.MODE_STREAM)
+                .setBufferSizeInBytes(minBufferSize);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY);
+        }
+        audioTrack = builder.build();
+        audioTrack.play();
+
+        playing = true;
+        renderThread = new Thread(this::renderLoop, "Metronome");
+        renderThread.start();
+    }
+
+    private void renderLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        float[] block = new float[BLOCK_FRAMES];
+        while (playing) {
+            renderer.render(block, 0, BLOCK_FRAMES);
+            int written = 0;
+            while (playing && written < BLOCK_FRAMES) {
+                int result = audioTrack.write(block, written, BLOCK_FRAMES - written, AudioTrack.WRITE_BLOCKING);
+                if (result < 0) {
+                    playing = false;
+                    break;
+                }
+                written += result;
+            }
+        }
+    }
+
+    /**
+     * Change the tempo from the next click on, without restarting
+     */
+    public void setBpm(double bpm) {
+        renderer.setBpm(bpm);
+    }
+
+    /**
+     * @see ClickRenderer#setAccentPattern(int[])
+     */
+    public void setAccentPattern(int[] levels) {
+        renderer.setAccentPattern(levels);
+    }
+
+    public synchronized void stop() {
+        if (renderThread == null) {
+            return;
+        }
+        playing = false;
+        // pause() releases a write that is blocked on a full buffer
+        audioTrack.pause();
+        audioTrack.flush();
+        try {
+            renderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        audioTrack.release();
+        audioTrack = null;
+        renderThread = null;
+    }
+
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    public double getBpm() {
+        return renderer.getBpm();
+    }
+}
@@ -4,8 +4,6 @@ import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.util.Log;
@@ -18,6 +16,8 @@ import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.cardview.widget.CardView;
@@ -26,16 +26,21 @@ import androidx.lifecycle.ViewModelProvider;
 
 import com.bumptech.glide.Glide;
 import com.example.musicbpm.R;
+import com.example.musicbpm.analysis.AudioBpmAnalyzer;
 import com.example.musicbpm.data.repository.MusicRepository;
 import com.example.musicbpm.data.spotify.SpotifyService;
+import com.example.musicbpm.utils.BpmCalculator;
+import com.example.musicbpm.utils.FixedBpm;
+import com.example.musicbpm.utils.PreferencesManager;
+import com.example.musicbpm.utils.TapTouchListener;
+import com.example.musicbpm.utils.tempo.TempoEstimator;
+import com.example.musicbpm.utils.tempo.TempoOctaveResolver;
+import com.example.musicbpm.utils.tempo.replay.TapSessionRecorder;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.textfield.TextInputLayout;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.File;
 import java.util.concurrent.CompletableFuture;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import se.michaelthelin.spotify.model_objects.specification.AudioFeatures;
 import se.michaelthelin.spotify.model_objects.specification.Track;
@@ -58,8 +63,10 @@ public class AddMusicFragment extends Fragment {
     private TextView tvBpmDisplay;
     private Button btnTapTempo;
     private Button btnResetTaps;
+    private Button btnAnalyzeAudio;
     private TextInputLayout tilBpm;
     private TextInputEditText etBpm;
+    private Button btnUseSuggestedBpm;
     private ImageView ivSpotifyLogo;
     private Button btnOpenSpotify;
     private Button btnAddToLibrary;
@@ -67,20 +74,48 @@ public class AddMusicFragment extends Fragment {
     // Store current track data
     private Track currentTrack;
     private String currentSpotifyUrl;
-    private Integer manualBpm = null;
+    // Hundredths of a BPM, see FixedBpm
+    private Integer manualBpmCenti = null;
+    private String currentTags;
+
+    // Half / double-time resolution of the last measured BPM and the evidence behind it
+    private final TempoOctaveResolver tempoResolver = new TempoOctaveResolver();
+    private TempoOctaveResolver.Resolution tempoResolution;
+    private TempoEstimator tempoTaps;
+    private TempoOctaveResolver.OnsetSalience tempoOnsets;
 
     // Tap tempo variables
-    private List<Long> tapTimes = new ArrayList<>();
+    private BpmCalculator bpmCalculator;
     private static final int MAX_TAP_INTERVAL = 2000;
     private static final int MIN_TAPS = 4;
-    private Handler tapResetHandler = new Handler(Looper.getMainLooper());
-    private Runnable tapResetRunnable;
+
+    // Optional recording of tap sessions; a saved BPM that differs is recorded as a correction
+    private TapSessionRecorder tapRecorder;
+    private long lastTapSessionId = -1;
+    private double lastTapSessionBpm;
+    private double lastTappedBpm;
+
+    private PreferencesManager preferencesManager;
+
+    private final ActivityResultLauncher<String[]> pickAudioFile =
+            registerForActivityResult(new ActivityResultContracts.OpenDocument(), uri -> {
+                if (uri != null) {
+                    analyzeAudioFile(uri);
+                }
+            });
 
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         viewModel = new ViewModelProvider(this).get(AddMusicViewModel.class);
         spotifyService = new SpotifyService();
+        preferencesManager = new PreferencesManager(requireContext());
+        initializeBpmCalculator();
+        if (preferencesManager.isTapRecordingEnabled()) {
+            tapRecorder = new TapSessionRecorder(
+                    new File(requireContext().getFilesDir(), TapSessionRecorder.DEFAULT_FILE_NAME),
+                    MAX_TAP_INTERVAL * 1_000_000L);
+        }
         Log.d(TAG, "onCreate - Fragment criado");
     }
 
@@ -97,6 +132,12 @@ public class AddMusicFragment extends Fragment {
         return view;
     }
 
+    private void initializeBpmCalculator() {
+        bpmCalculator = new BpmCalculator();
+        bpmCalculator.setMaxTapGap(MAX_TAP_INTERVAL);
+        bpmCalculator.setResetTimeout(MAX_TAP_INTERVAL);
+    }
+
     private void initializeViews(View view) {
         tilLink = view.findViewById(R.id.til_link);
         etLink = view.findViewById(R.id.et_link);
@@ -109,8 +150,10 @@ public class AddMusicFragment extends Fragment {
         tvBpmDisplay = view.findViewById(R.id.tv_bpm_display);
         btnTapTempo = view.findViewById(R.id.btn_tap_tempo);
         btnResetTaps = view.findViewById(R.id.btn_reset_taps);
+        btnAnalyzeAudio = view.findViewById(R.id.btn_analyze_audio);
         tilBpm = view.findViewById(R.id.til_bpm);
         etBpm = view.findViewById(R.id.et_bpm);
+        btnUseSuggestedBpm = view.findViewById(R.id.btn_use_suggested_bpm);
         ivSpotifyLogo = view.findViewById(R.id.iv_spotify_logo);
         btnOpenSpotify = view.findViewById(R.id.btn_open_spotify);
         btnAddToLibrary = view.findViewById(R.id.btn_add_to_library);
@@ -127,10 +170,27 @@ public class AddMusicFragment extends Fragment {
             findMusicFromLink(link);
         });
 
-        btnTapTempo.setOnClickListener(v -> handleTap());
+        TapTouchListener tapListener = new TapTouchListener(
+                (eventTimeNanos, dispatchLatencyNanos) -> handleTap(eventTimeNanos));
+        btnTapTempo.setOnTouchListener(tapListener);
+        btnTapTempo.setOnClickListener(tapListener);
+        // The calculator outlives the view: set per view and cleared in onDestroyView
+        bpmCalculator.setOnResetListener(() -> {
+            finishTapSession();
+            tvBpmDisplay.setText("---");
+            btnTapTempo.setText("TAP TEMPO");
+        });
 
         btnResetTaps.setOnClickListener(v -> resetTaps());
 
+        btnAnalyzeAudio.setOnClickListener(v -> pickAudioFile.launch(new String[]{"audio/*"}));
+
+        btnUseSuggestedBpm.setOnClickListener(v -> {
+            if (tempoResolution != null) {
+                etBpm.setText(FixedBpm.format(tempoResolution.getBpmCenti(), true));
+            }
+        });
+
         btnOpenSpotify.setOnClickListener(v -> {
             if (currentSpotifyUrl != null && !currentSpotifyUrl.isEmpty()) {
                 try {
@@ -157,22 +217,23 @@ public class AddMusicFragment extends Fragment {
                 String bpmText = s.toString().trim();
                 if (!bpmText.isEmpty()) {
                     try {
-                        int bpm = Integer.parseInt(bpmText);
-                        if (bpm < 20 || bpm > 300) {
+                        int bpm = FixedBpm.parse(bpmText);
+                        if (bpm < FixedBpm.fromWhole(20) || bpm > FixedBpm.fromWhole(300)) {
                             tilBpm.setError("BPM deve estar entre 20 e 300");
-                            manualBpm = null;
+                            manualBpmCenti = null;
                         } else {
                             tilBpm.setError(null);
-                            manualBpm = bpm;
+                            manualBpmCenti = bpm;
                             updateBpmDisplay();
                         }
                     } catch (NumberFormatException e) {
                         tilBpm.setError("BPM inválido");
-                        manualBpm = null;
+                        manualBpmCenti = null;
                     }
                 } else {
-                    manualBpm = null;
+                    manualBpmCenti = null;
                 }
+                updateTempoSuggestion();
             }
 
             @Override
@@ -180,85 +241,152 @@ public class AddMusicFragment extends Fragment {
         });
     }
 
-    private void handleTap() {
-        long currentTime = System.currentTimeMillis();
-
-        if (tapResetRunnable != null) {
-            tapResetHandler.removeCallbacks(tapResetRunnable);
-        }
+    private void handleTap(long eventTimeNanos) {
+        bpmCalculator.onTap(eventTimeNanos);
+        int tapCount = bpmCalculator.getTapCount();
 
-        if (!tapTimes.isEmpty() && (currentTime - tapTimes.get(tapTimes.size() - 1)) > MAX_TAP_INTERVAL) {
-            tapTimes.clear();
+        if (tapRecorder != null) {
+            lastTappedBpm = bpmCalculator.getRawBpm();
+            tapRecorder.onTap(eventTimeNanos, lastTappedBpm);
         }
 
-        tapTimes.add(currentTime);
-
-        if (tapTimes.size() >= MIN_TAPS) {
+        if (tapCount >= MIN_TAPS) {
             calculateBpm();
         } else {
-            int remaining = MIN_TAPS - tapTimes.size();
+            int remaining = MIN_TAPS - tapCount;
             tvBpmDisplay.setText(String.format("Toque mais %d vez%s", remaining, remaining == 1 ? "" : "es"));
         }
 
-        tapResetRunnable = () -> {
-            if (!tapTimes.isEmpty()) {
-                tapTimes.clear();
-                tvBpmDisplay.setText("---");
-                btnTapTempo.setText("TAP TEMPO");
-            }
-        };
-        tapResetHandler.postDelayed(tapResetRunnable, MAX_TAP_INTERVAL);
-
-        btnTapTempo.setText(String.format("Tap %d", tapTimes.size()));
+        btnTapTempo.setText(String.format("Tap %d", tapCount));
     }
 
     private void calculateBpm() {
-        if (tapTimes.size() < 2) return;
-
-        List<Long> intervals = new ArrayList<>();
-        for (int i = 1; i < tapTimes.size(); i++) {
-            intervals.add(tapTimes.get(i) - tapTimes.get(i - 1));
+        if (!bpmCalculator.hasEnoughTaps()) return;
+
+        double rawBpm = bpmCalculator.getRawBpm();
+        resolveTempo(rawBpm, bpmCalculator.getEstimator(), null);
+        int bpm = FixedBpm.fromDouble(rawBpm);
+        if (bpm < FixedBpm.fromWhole(20) || bpm > FixedBpm.fromWhole(300)) {
+            // Tapping subdivisions or every other beat: take the most likely octave instead
+            bpm = tempoResolution.getBpmCenti();
         }
 
-        long sum = 0;
-        for (long interval : intervals) {
-            sum += interval;
-        }
-        double avgInterval = (double) sum / intervals.size();
-
-        int bpm = (int) Math.round(60000.0 / avgInterval);
-
-        if (bpm >= 20 && bpm <= 300) {
-            manualBpm = bpm;
-            etBpm.setText(String.valueOf(bpm));
+        if (bpm >= FixedBpm.fromWhole(20) && bpm <= FixedBpm.fromWhole(300)) {
+            manualBpmCenti = bpm;
+            etBpm.setText(FixedBpm.format(bpm, true));
             updateBpmDisplay();
             tilBpm.setError(null);
-            btnTapTempo.setText("✓ " + bpm + " BPM");
-            Log.d(TAG, "BPM calculado via Tap Tempo: " + bpm);
+            btnTapTempo.setText("✓ " + formatBpm(bpm) + " BPM");
+            Log.d(TAG, "BPM calculado via Tap Tempo: " + FixedBpm.format(bpm, true));
         } else {
             tvBpmDisplay.setText("BPM fora do intervalo");
             resetTaps();
         }
     }
 
+    private void finishTapSession() {
+        if (tapRecorder == null) return;
+        long id = tapRecorder.finishSession();
+        if (id >= 0) {
+            lastTapSessionId = id;
+            lastTapSessionBpm = lastTappedBpm;
+        }
+    }
+
     private void resetTaps() {
-        tapTimes.clear();
-        tvBpmDisplay.setText(manualBpm != null ? manualBpm + " BPM" : "---");
+        finishTapSession();
+        bpmCalculator.reset();
+        tvBpmDisplay.setText(manualBpmCenti != null ? formatBpm(manualBpmCenti) + " BPM" : "---");
         btnTapTempo.setText("TAP TEMPO");
+    }
 
-        if (tapResetRunnable != null) {
-            tapResetHandler.removeCallbacks(tapResetRunnable);
+    private void analyzeAudioFile(Uri uri) {
+        btnAnalyzeAudio.setEnabled(false);
+        btnAnalyzeAudio.setText("A analisar...");
+        Log.d(TAG, "A analisar ficheiro de áudio: " + uri);
+
+        viewModel.analyzeAudioFile(uri, new AudioBpmAnalyzer.OnAnalysisCompleteListener() {
+            @Override
+            public void onSuccess(AudioBpmAnalyzer.Result result) {
+                Log.d(TAG, "BPM detetado: " + result.getBpm() + " (confiança " + result.getConfidence() + ")");
+                requireActivity().runOnUiThread(() -> {
+                    btnAnalyzeAudio.setEnabled(true);
+                    btnAnalyzeAudio.setText("Detetar BPM de ficheiro de áudio");
+
+                    resolveTempo(result.getBpm(), null, result);
+                    int bpm = result.getBpmCenti();
+                    manualBpmCenti = bpm;
+                    etBpm.setText(FixedBpm.format(bpm, true));
+                    updateBpmDisplay();
+                    tilBpm.setError(null);
+                    tilBpm.setHelperText("✓ BPM detetado no ficheiro de áudio (pode ajustar com Tap Tempo)");
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "Erro ao analisar áudio: " + error);
+                requireActivity().runOnUiThread(() -> {
+                    btnAnalyzeAudio.setEnabled(true);
+                    btnAnalyzeAudio.setText("Detetar BPM de ficheiro de áudio");
+                    Toast.makeText(getContext(), "❌ Não foi possível analisar o áudio", Toast.LENGTH_LONG).show();
+                });
+            }
+        });
+    }
+
+    /**
+     * Score the measured BPM against its half / double / 3:2 tempos and offer the most likely one
+     * @param taps Estimator holding the taps behind the measurement, or null
+     * @param onsets Onset periodicity of the analysed audio, or null
+     */
+    private void resolveTempo(double measuredBpm, TempoEstimator taps, TempoOctaveResolver.OnsetSalience onsets) {
+        tempoTaps = taps;
+        tempoOnsets = onsets;
+        tempoResolution = tempoResolver.resolve(measuredBpm, currentTags, taps, onsets);
+        Log.d(TAG, "BPM medido " + measuredBpm + " -> provável " + tempoResolution.getBpm()
+                + " (" + Math.round(tempoResolution.getConfidence() * 100) + "%)");
+        updateTempoSuggestion();
+    }
+
+    private void updateTempoSuggestion() {
+        if (btnUseSuggestedBpm == null) return;
+
+        if (tempoResolution == null || manualBpmCenti == null || tempoResolution.getBpm() <= 0
+                || Math.abs(tempoResolution.getBpmCenti() - manualBpmCenti) <= FixedBpm.SCALE) {
+            btnUseSuggestedBpm.setVisibility(View.GONE);
+            return;
         }
+
+        int suggested = tempoResolution.getBpmCenti();
+        double ratio = (double) suggested / manualBpmCenti;
+        String relation;
+        if (Math.abs(ratio - 2) < 0.1) {
+            relation = "tempo duplo";
+        } else if (Math.abs(ratio - 0.5) < 0.05) {
+            relation = "meio tempo";
+        } else {
+            relation = "3:2";
+        }
+        btnUseSuggestedBpm.setText(String.format("Provável: %s BPM (%s) — tocar para usar", formatBpm(suggested), relation));
+        btnUseSuggestedBpm.setVisibility(View.VISIBLE);
     }
 
     private void updateBpmDisplay() {
-        if (manualBpm != null) {
-            tvBpmDisplay.setText(manualBpm + " BPM");
+        if (manualBpmCenti != null) {
+            tvBpmDisplay.setText(formatBpm(manualBpmCenti) + " BPM");
         } else {
             tvBpmDisplay.setText("---");
         }
     }
 
+    /**
+     * Format a BPM in hundredths, with decimals if enabled in settings
+     */
+    private String formatBpm(int bpmCenti) {
+        return FixedBpm.format(bpmCenti, preferencesManager.isBpmDecimalEnabled());
+    }
+
     private void checkSpotifyCredentials() {
         if (!SpotifyService.areCredentialsConfigured()) {
             Toast.makeText(getContext(),
@@ -337,6 +465,10 @@ public class AddMusicFragment extends Fragment {
         currentSpotifyUrl = spotifyUrl;
 
         resetTaps();
+        lastTapSessionId = -1;
+        tempoResolution = null;
+        currentTags = null;
+        viewModel.setTags("");
         cardTrackPreview.setVisibility(View.VISIBLE);
 
         tvTrackTitle.setText(track.getName());
@@ -351,19 +483,22 @@ public class AddMusicFragment extends Fragment {
                 }
             }
             tvTrackArtist.setText(artists.toString());
+            loadArtistGenres(track);
         }
 
         if (audioFeatures != null) {
-            int bpm = (int) Math.round(audioFeatures.getTempo());
-            etBpm.setText(String.valueOf(bpm));
-            manualBpm = bpm;
+            resolveTempo(audioFeatures.getTempo(), null, null);
+            // Spotify reports fractional tempos (e.g. 127.968): keep them to the hundredth
+            int bpm = FixedBpm.fromDouble(audioFeatures.getTempo());
+            etBpm.setText(FixedBpm.format(bpm, true));
+            manualBpmCenti = bpm;
             updateBpmDisplay();
             tilBpm.setHelperText("✓ BPM do Spotify (pode ajustar com Tap Tempo)");
             Toast.makeText(getContext(), "✓ Música encontrada com BPM!", Toast.LENGTH_SHORT).show();
-            Log.d(TAG, "BPM do Spotify: " + bpm);
+            Log.d(TAG, "BPM do Spotify: " + audioFeatures.getTempo());
         } else {
             etBpm.setText("");
-            manualBpm = null;
+            manualBpmCenti = null;
             tvBpmDisplay.setText("---");
             tilBpm.setHelperText("🎵 Use Tap Tempo para encontrar o BPM");
             Toast.makeText(getContext(), "✓ Música encontrada! Use Tap Tempo.", Toast.LENGTH_LONG).show();
@@ -382,6 +517,24 @@ public class AddMusicFragment extends Fragment {
         etLink.setText("");
     }
 
+    /**
+     * Use the artist's genres as the track's tags; they also drive the half / double-time prior
+     */
+    private void loadArtistGenres(Track track) {
+        spotifyService.getArtistGenres(track.getArtists()[0].getId()).thenAccept(genres -> {
+            if (genres.length == 0 || !isAdded()) return;
+            requireActivity().runOnUiThread(() -> {
+                if (currentTrack != track) return;
+                currentTags = String.join(", ", genres);
+                viewModel.setTags(currentTags);
+                Log.d(TAG, "Tags do Spotify: " + currentTags);
+                if (tempoResolution != null) {
+                    resolveTempo(tempoResolution.getMeasuredBpm(), tempoTaps, tempoOnsets);
+                }
+            });
+        });
+    }
+
     private void hideKeyboard() {
         try {
             InputMethodManager imm = (InputMethodManager) requireActivity()
@@ -404,7 +557,7 @@ public class AddMusicFragment extends Fragment {
             return;
         }
 
-        if (manualBpm == null) {
+        if (manualBpmCenti == null) {
             tilBpm.setError("Use Tap Tempo ou insira o BPM");
             Toast.makeText(getContext(), "❌ BPM é obrigatório!", Toast.LENGTH_SHORT).show();
             Log.e(TAG, "ERRO: BPM é null");
@@ -413,18 +566,34 @@ public class AddMusicFragment extends Fragment {
 
         String title = currentTrack.getName();
         String artist = currentTrack.getArtists()[0].getName();
-        int bpm = manualBpm;
+        int bpm = manualBpmCenti;
         String link = currentSpotifyUrl;
 
         Log.d(TAG, "Dados a guardar:");
         Log.d(TAG, "  Title: " + title);
         Log.d(TAG, "  Artist: " + artist);
-        Log.d(TAG, "  BPM: " + bpm);
+        Log.d(TAG, "  BPM: " + FixedBpm.format(bpm, true));
         Log.d(TAG, "  Link: " + link);
 
+        TempoOctaveResolver.Resolution resolution = tempoResolution;
+        if (resolution == null || !resolution.contains(bpm)) {
+            // BPM typed by hand: judge its alternates from the tags alone
+            resolution = tempoResolver.resolve(FixedBpm.toDouble(bpm), currentTags);
+        }
+        Log.d(TAG, "  Alternativas: " + resolution.getAlternateBelow(bpm) + " / " + resolution.getAlternateAbove(bpm));
+
+        finishTapSession();
+        double savedBpm = FixedBpm.toDouble(bpm);
+        if (tapRecorder != null && lastTapSessionId >= 0 && Math.abs(savedBpm - lastTapSessionBpm) >= 1) {
+            tapRecorder.correct(lastTapSessionId, savedBpm);
+            Log.d(TAG, "Sessão de taps corrigida: " + lastTapSessionBpm + " -> " + savedBpm);
+        }
+        lastTapSessionId = -1;
+
         viewModel.setTitle(title);
         viewModel.setArtist(artist);
-        viewModel.setBpm(bpm);
+        viewModel.setBpmCenti(bpm);
+        viewModel.setBpmAlternates(resolution.getAlternateBelow(bpm), resolution.getAlternateAbove(bpm));
         viewModel.setLink(link);
 
         btnAddToLibrary.setEnabled(false);
@@ -437,14 +606,16 @@ public class AddMusicFragment extends Fragment {
             public void onSuccess(long id) {
                 Log.d(TAG, "✓✓✓ SUCESSO! Música guardada com ID: " + id + " ✓✓✓");
                 requireActivity().runOnUiThread(() -> {
-                    Toast.makeText(getContext(), "✓ Música guardada com BPM " + bpm + "! ID: " + id, Toast.LENGTH_LONG).show();
+                    Toast.makeText(getContext(), "✓ Música guardada com BPM " + formatBpm(bpm) + "! ID: " + id, Toast.LENGTH_LONG).show();
                     btnAddToLibrary.setEnabled(true);
                     btnAddToLibrary.setText("Adicionar à Biblioteca");
 
                     cardTrackPreview.setVisibility(View.GONE);
                     currentTrack = null;
                     currentSpotifyUrl = null;
-                    manualBpm = null;
+                    currentTags = null;
+                    tempoResolution = null;
+                    manualBpmCenti = null;
                     resetTaps();
                     etBpm.setText("");
                     tilBpm.setError(null);
@@ -469,20 +640,23 @@ public class AddMusicFragment extends Fragment {
     }
 
     private String extractSpotifyTrackId(String url) {
-        Pattern pattern = Pattern.compile("track/([a-zA-Z0-9]+)");
-        Matcher matcher = pattern.matcher(url);
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        return null;
+        return SpotifyService.extractTrackId(url);
     }
 
     @Override
     public void onDestroyView() {
         super.onDestroyView();
-        if (tapResetHandler != null && tapResetRunnable != null) {
-            tapResetHandler.removeCallbacks(tapResetRunnable);
-        }
+        finishTapSession();
+        bpmCalculator.reset();
+        bpmCalculator.setOnResetListener(null);
         Log.d(TAG, "onDestroyView");
     }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        if (tapRecorder != null) {
+            tapRecorder.close();
+        }
+    }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.example.musicbpm.ui.add;
 
 import android.app.Application;
+import android.net.Uri;
 import android.util.Patterns;
 
 import androidx.annotation.NonNull;
@@ -8,10 +9,16 @@ import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import com.example.musicbpm.analysis.AudioBpmAnalyzer;
+import com.example.musicbpm.analysis.MediaCodecPcmSource;
 import com.example.musicbpm.data.database.MusicTrack;
 import com.example.musicbpm.data.repository.MusicRepository;
+import com.example.musicbpm.utils.FixedBpm;
 import com.example.musicbpm.utils.PlatformDetector;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
  * ViewModel for the Add Music screen.
  * Manages form state, validation, and saving music tracks.
@@ -19,13 +26,17 @@ import com.example.musicbpm.utils.PlatformDetector;
 public class AddMusicViewModel extends AndroidViewModel {
 
     private MusicRepository repository;
+    private ExecutorService analysisExecutor = Executors.newSingleThreadExecutor();
 
     private MutableLiveData<String> title = new MutableLiveData<>("");
     private MutableLiveData<String> artist = new MutableLiveData<>("");
+    // Hundredths of a BPM, see FixedBpm
     private MutableLiveData<Integer> bpm = new MutableLiveData<>(0);
     private MutableLiveData<String> link = new MutableLiveData<>("");
     private MutableLiveData<String> notes = new MutableLiveData<>("");
     private MutableLiveData<String> tags = new MutableLiveData<>("");
+    private int altBpmLow;
+    private int altBpmHigh;
 
     private MutableLiveData<String> titleError = new MutableLiveData<>();
     private MutableLiveData<String> linkError = new MutableLiveData<>();
@@ -33,7 +44,7 @@ public class AddMusicViewModel extends AndroidViewModel {
 
     public AddMusicViewModel(@NonNull Application application) {
         super(application);
-        repository = new MusicRepository(application);
+        repository = MusicRepository.getInstance(application);
     }
 
     public void setTitle(String title) {
@@ -45,8 +56,8 @@ public class AddMusicViewModel extends AndroidViewModel {
         this.artist.setValue(artist);
     }
 
-    public void setBpm(int bpm) {
-        this.bpm.setValue(bpm);
+    public void setBpmCenti(int bpmCenti) {
+        this.bpm.setValue(bpmCenti);
         validateBpm();
     }
 
@@ -63,6 +74,16 @@ public class AddMusicViewModel extends AndroidViewModel {
         this.tags.setValue(tags);
     }
 
+    /**
+     * Set the half/double-time alternates stored with the track
+     * @param low Slower alternate BPM in hundredths or 0
+     * @param high Faster alternate BPM in hundredths or 0
+     */
+    public void setBpmAlternates(int low, int high) {
+        this.altBpmLow = low;
+        this.altBpmHigh = high;
+    }
+
     private boolean validateTitle() {
         String titleValue = title.getValue();
         if (titleValue == null || titleValue.trim().isEmpty()) {
@@ -89,7 +110,7 @@ public class AddMusicViewModel extends AndroidViewModel {
 
     private boolean validateBpm() {
         Integer bpmValue = bpm.getValue();
-        if (bpmValue == null || bpmValue < 40 || bpmValue > 220) {
+        if (bpmValue == null || bpmValue < FixedBpm.fromWhole(40) || bpmValue > FixedBpm.fromWhole(220)) {
             bpmError.setValue("BPM must be between 40 and 220");
             return false;
         }
@@ -122,10 +143,36 @@ public class AddMusicViewModel extends AndroidViewModel {
                 tags.getValue() != null ? tags.getValue().trim() : null,
                 System.currentTimeMillis()
         );
+        track.setAltBpmLowCenti(altBpmLow);
+        track.setAltBpmHighCenti(altBpmHigh);
 
         repository.insert(track, listener);
     }
 
+    /**
+     * Detect the BPM of a local audio file on a background thread
+     */
+    public void analyzeAudioFile(Uri uri, AudioBpmAnalyzer.OnAnalysisCompleteListener listener) {
+        analysisExecutor.execute(() -> {
+            try (MediaCodecPcmSource source = new MediaCodecPcmSource(getApplication(), uri)) {
+                AudioBpmAnalyzer.Result result = new AudioBpmAnalyzer().analyze(source);
+                if (result.getBpm() > 0) {
+                    listener.onSuccess(result);
+                } else {
+                    listener.onError("No tempo detected");
+                }
+            } catch (Exception e) {
+                listener.onError(e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        analysisExecutor.shutdownNow();
+    }
+
     public void clearForm() {
         title.setValue("");
         artist.setValue("");
@@ -133,6 +180,8 @@ public class AddMusicViewModel extends AndroidViewModel {
         link.setValue("");
         notes.setValue("");
         tags.setValue("");
+        altBpmLow = 0;
+        altBpmHigh = 0;
         titleError.setValue(null);
         linkError.setValue(null);
         bpmError.setValue(null);
@@ -147,7 +196,7 @@ public class AddMusicViewModel extends AndroidViewModel {
         return artist;
     }
 
-    public LiveData<Integer> getBpm() {
+    public LiveData<Integer> getBpmCenti() {
         return bpm;
     }
 
@@ -19,12 +19,19 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.navigation.fragment.NavHostFragment;
+import androidx.paging.LoadState;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.musicbpm.R;
-import com.example.musicbpm.data.database.MusicTrack;
+import com.example.musicbpm.data.database.TrackListItem;
+import com.example.musicbpm.data.database.TrackListQuery;
 import com.example.musicbpm.data.repository.MusicRepository;
+import com.example.musicbpm.utils.FixedBpm;
+import com.example.musicbpm.utils.PreferencesManager;
+
+import kotlin.Unit;
 
 /**
  * Fragment for displaying the music library.
@@ -69,9 +76,14 @@ public class LibraryFragment extends Fragment implements MusicAdapter.OnTrackInt
         super.onResume();
         Log.d(TAG, "onResume - Fragment ficou visível");
 
-        // Re-observa o ViewModel quando o fragment volta a ser visível
-        // Isto força o LiveData a notificar com os dados mais recentes
-        observeViewModel();
+        // A preferência pode ter mudado nas definições
+        adapter.setShowDecimalBpm(new PreferencesManager(requireContext()).isBpmDecimalEnabled());
+    }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+        viewModel.stopMetronome();
     }
 
     private void initializeViews(View view) {
@@ -83,46 +95,29 @@ public class LibraryFragment extends Fragment implements MusicAdapter.OnTrackInt
         adapter = new MusicAdapter(this);
         recyclerView.setAdapter(adapter);
         recyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
+
+        // Empty state once the first page has loaded and there is nothing to show
+        adapter.addLoadStateListener(loadStates -> {
+            if (loadStates.getRefresh() instanceof LoadState.NotLoading) {
+                boolean empty = adapter.getItemCount() == 0;
+                Log.d(TAG, "Página carregada: " + adapter.getItemCount() + " tracks");
+                recyclerView.setVisibility(empty ? View.GONE : View.VISIBLE);
+                tvEmptyState.setVisibility(empty ? View.VISIBLE : View.GONE);
+            } else if (loadStates.getRefresh() instanceof LoadState.Error) {
+                Log.e(TAG, "Erro ao carregar tracks", ((LoadState.Error) loadStates.getRefresh()).getError());
+            }
+            return Unit.INSTANCE;
+        });
         Log.d(TAG, "RecyclerView configurado");
     }
 
     private void observeViewModel() {
         Log.d(TAG, "observeViewModel - Configurando observer do LiveData");
 
-        viewModel.getDisplayedTracks().observe(getViewLifecycleOwner(), tracks -> {
-            Log.d(TAG, "========================================");
-            Log.d(TAG, "LiveData ATUALIZADO!");
-
-            if (tracks == null) {
-                Log.e(TAG, "Lista de tracks é NULL");
-                recyclerView.setVisibility(View.GONE);
-                tvEmptyState.setVisibility(View.VISIBLE);
-                return;
-            }
-
-            Log.d(TAG, "Número de tracks recebidas: " + tracks.size());
-
-            if (tracks.isEmpty()) {
-                Log.d(TAG, "Lista VAZIA - mostrando empty state");
-                recyclerView.setVisibility(View.GONE);
-                tvEmptyState.setVisibility(View.VISIBLE);
-            } else {
-                Log.d(TAG, "Lista tem " + tracks.size() + " tracks - atualizando RecyclerView");
-
-                // Log de cada track
-                for (int i = 0; i < tracks.size(); i++) {
-                    MusicTrack track = tracks.get(i);
-                    Log.d(TAG, "  [" + i + "] " + track.getTitle() + " - " + track.getBpm() + " BPM");
-                }
-
-                recyclerView.setVisibility(View.VISIBLE);
-                tvEmptyState.setVisibility(View.GONE);
-                adapter.submitList(tracks);
-
-                Log.d(TAG, "Adapter.submitList() chamado com " + tracks.size() + " tracks");
-            }
-
-            Log.d(TAG, "========================================");
+        // Só as páginas perto do ecrã são carregadas; o adapter pede as seguintes ao fazer scroll
+        viewModel.getDisplayedTracks().observe(getViewLifecycleOwner(), pagingData -> {
+            Log.d(TAG, "Nova PagingData recebida");
+            adapter.submitData(getViewLifecycleOwner().getLifecycle(), pagingData);
         });
     }
 
@@ -154,16 +149,19 @@ public class LibraryFragment extends Fragment implements MusicAdapter.OnTrackInt
         int id = item.getItemId();
 
         if (id == R.id.action_sort_date) {
-            viewModel.setSortMode("date");
+            viewModel.setSortMode(TrackListQuery.SORT_DATE);
             return true;
         } else if (id == R.id.action_sort_title) {
-            viewModel.setSortMode("title");
+            viewModel.setSortMode(TrackListQuery.SORT_TITLE);
             return true;
         } else if (id == R.id.action_sort_bpm) {
-            viewModel.setSortMode("bpm");
+            viewModel.setSortMode(TrackListQuery.SORT_BPM);
             return true;
         } else if (id == R.id.action_sort_artist) {
-            viewModel.setSortMode("artist");
+            viewModel.setSortMode(TrackListQuery.SORT_ARTIST);
+            return true;
+        } else if (id == R.id.action_stats) {
+            NavHostFragment.findNavController(this).navigate(R.id.statsFragment);
             return true;
         }
 
@@ -171,20 +169,31 @@ public class LibraryFragment extends Fragment implements MusicAdapter.OnTrackInt
     }
 
     @Override
-    public void onTrackClick(MusicTrack track) {
-        Log.d(TAG, "Track clicada: " + track.getTitle());
-
-        // Open link in browser
-        Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse(track.getLink()));
-        if (intent.resolveActivity(requireContext().getPackageManager()) != null) {
-            startActivity(intent);
-        } else {
-            Toast.makeText(requireContext(), "Cannot open link", Toast.LENGTH_SHORT).show();
-        }
+    public void onTrackClick(TrackListItem item) {
+        Log.d(TAG, "Track clicada: " + item.getTitle());
+
+        // A lista só tem as colunas visíveis; o link vem da track completa
+        viewModel.loadTrack(item, track -> {
+            if (getActivity() == null) {
+                return;
+            }
+            requireActivity().runOnUiThread(() -> {
+                if (!isAdded() || track == null) {
+                    return;
+                }
+                // Open link in browser
+                Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse(track.getLink()));
+                if (intent.resolveActivity(requireContext().getPackageManager()) != null) {
+                    startActivity(intent);
+                } else {
+                    Toast.makeText(requireContext(), "Cannot open link", Toast.LENGTH_SHORT).show();
+                }
+            });
+        });
     }
 
     @Override
-    public void onTrackDelete(MusicTrack track) {
+    public void onTrackDelete(TrackListItem track) {
         Log.d(TAG, "Pedido para deletar track: " + track.getTitle());
 
         new AlertDialog.Builder(requireContext())
@@ -214,7 +223,17 @@ public class LibraryFragment extends Fragment implements MusicAdapter.OnTrackInt
     }
 
     @Override
-    public void onTrackEdit(MusicTrack track) {
+    public void onTrackBpmClick(TrackListItem track) {
+        boolean playing = viewModel.toggleMetronome(track);
+        String bpm = FixedBpm.format(track.getBpmCenti(), true);
+        Log.d(TAG, "Metrónomo " + (playing ? "ligado" : "desligado") + ": " + bpm + " BPM");
+        Toast.makeText(requireContext(),
+                playing ? "Click at " + bpm + " BPM (tap again to stop)" : "Click stopped",
+                Toast.LENGTH_SHORT).show();
+    }
+
+    @Override
+    public void onTrackEdit(TrackListItem track) {
         // TODO: Navigate to edit screen (future implementation)
         Toast.makeText(requireContext(), "Edit feature coming soon", Toast.LENGTH_SHORT).show();
     }
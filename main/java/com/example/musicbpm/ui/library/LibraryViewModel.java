@@ -6,109 +6,140 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
-
-import com.example.musicbpm.data.database.MusicTrack;
+import androidx.lifecycle.Transformations;
+import androidx.lifecycle.ViewModelKt;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
+
+import com.example.musicbpm.data.database.TrackListItem;
+import com.example.musicbpm.data.database.TrackListQuery;
+import com.example.musicbpm.data.repository.BpmIndex;
 import com.example.musicbpm.data.repository.MusicRepository;
-
-import java.util.List;
+import com.example.musicbpm.metronome.Metronome;
+import com.example.musicbpm.utils.FixedBpm;
 
 public class LibraryViewModel extends AndroidViewModel {
 
     private static final String TAG = "LibraryViewModel";
 
     private MusicRepository repository;
-    private MutableLiveData<String> searchQuery = new MutableLiveData<>();
-    private MutableLiveData<String> sortMode = new MutableLiveData<>();
+    // Sort, search and filters of the list; every change builds one new query
+    private MutableLiveData<TrackListQuery> listQuery = new MutableLiveData<>(new TrackListQuery());
+    private LiveData<PagingData<TrackListItem>> displayedTracks;
+    private LiveData<BpmIndex> bpmIndex;
 
-    private MediatorLiveData<List<MusicTrack>> displayedTracks = new MediatorLiveData<>();
+    private Metronome metronome;
+    private int metronomeTrackId = -1;
 
     public LibraryViewModel(@NonNull Application application) {
         super(application);
-        repository = new MusicRepository(application);
-
-        // Fontes de dados para o MediatorLiveData
-        LiveData<List<MusicTrack>> allTracksByDate = repository.getAllTracks();
-        LiveData<List<MusicTrack>> allTracksByTitle = repository.getTracksSortedByTitle();
-        LiveData<List<MusicTrack>> allTracksByBpm = repository.getTracksSortedByBpm();
-        LiveData<List<MusicTrack>> allTracksByArtist = repository.getTracksSortedByArtist();
-
-        // Adicionar fontes ao Mediator
-        displayedTracks.addSource(allTracksByDate, tracks -> {
-            if ("date".equals(sortMode.getValue())) {
-                applySearchFilter(tracks);
-            }
-        });
-        displayedTracks.addSource(allTracksByTitle, tracks -> {
-            if ("title".equals(sortMode.getValue())) {
-                applySearchFilter(tracks);
-            }
-        });
-        displayedTracks.addSource(allTracksByBpm, tracks -> {
-            if ("bpm".equals(sortMode.getValue())) {
-                applySearchFilter(tracks);
-            }
-        });
-        displayedTracks.addSource(allTracksByArtist, tracks -> {
-            if ("artist".equals(sortMode.getValue())) {
-                applySearchFilter(tracks);
-            }
-        });
-
-        // Observers para as mudanças de query e sort
-        displayedTracks.addSource(searchQuery, query -> reevaluateTracks());
-        displayedTracks.addSource(sortMode, mode -> reevaluateTracks());
-
-        // Forçar o trigger inicial!
-        searchQuery.setValue("");
-        sortMode.setValue("date");
+        repository = MusicRepository.getInstance(application);
+
+        // switchMap deixa de observar a query anterior, por isso só a ordenação ativa corre
+        // e uma escrita custa uma query; cachedIn fica por cima para sobreviver a rotações
+        LiveData<PagingData<TrackListItem>> tracks = Transformations.switchMap(
+                Transformations.distinctUntilChanged(listQuery), repository::getTracksPaged);
+        displayedTracks = PagingLiveData.cachedIn(tracks, ViewModelKt.getViewModelScope(this));
+        bpmIndex = repository.getBpmIndex();
     }
 
-    private void reevaluateTracks() {
-        String mode = sortMode.getValue();
-        if (mode == null) return;
-
-        switch (mode) {
-            case "title":
-                applySearchFilter(repository.getTracksSortedByTitle().getValue());
-                break;
-            case "bpm":
-                applySearchFilter(repository.getTracksSortedByBpm().getValue());
-                break;
-            case "artist":
-                applySearchFilter(repository.getTracksSortedByArtist().getValue());
-                break;
-            default:
-                applySearchFilter(repository.getAllTracks().getValue());
-                break;
-        }
+    public LiveData<PagingData<TrackListItem>> getDisplayedTracks() {
+        return displayedTracks;
+    }
+
+    public void setSearchQuery(String query) {
+        listQuery.setValue(listQuery.getValue().withSearch(query));
+    }
+
+    /**
+     * @param mode One of the TrackListQuery.SORT_ constants
+     */
+    public void setSortMode(String mode) {
+        listQuery.setValue(listQuery.getValue().withSort(mode));
+    }
+
+    /**
+     * Show only tracks with a BPM (or half/double-time alternate) in the range, in hundredths;
+     * a 0 bound leaves that side open, so 0 and 0 show every BPM
+     */
+    public void setBpmFilter(int minBpmCenti, int maxBpmCenti) {
+        listQuery.setValue(listQuery.getValue().withBpmRange(minBpmCenti, maxBpmCenti));
+    }
+
+    /**
+     * Observe to be told when the counts below change
+     */
+    public LiveData<BpmIndex> getBpmIndex() {
+        return bpmIndex;
+    }
+
+    /**
+     * Number of tracks whose own BPM (not a half/double-time alternate) is in the range, in
+     * hundredths; cheap enough to call on every move of a slider
+     * @return The count, or -1 while the index is still loading
+     */
+    public int countInBpmRange(int minBpmCenti, int maxBpmCenti) {
+        BpmIndex index = bpmIndex.getValue();
+        return index == null ? -1 : index.count(minBpmCenti, maxBpmCenti);
+    }
+
+    /**
+     * Ids of the k tracks closest to a tempo, closest first; empty while the index is still loading
+     */
+    public int[] nearestTempo(int bpmCenti, int k) {
+        BpmIndex index = bpmIndex.getValue();
+        return index == null ? new int[0] : index.nearest(bpmCenti, k);
+    }
+
+    /**
+     * @param platform PlatformDetector constant, or null for every platform
+     */
+    public void setPlatformFilter(String platform) {
+        listQuery.setValue(listQuery.getValue().withPlatform(platform));
     }
 
-    private void applySearchFilter(List<MusicTrack> tracks) {
-        String query = searchQuery.getValue();
-        if (query == null || query.trim().isEmpty()) {
-            displayedTracks.setValue(tracks);
-        } else {
-            repository.searchTracks(query).observeForever(filteredTracks -> {
-                displayedTracks.setValue(filteredTracks);
-            });
+    /**
+     * Start a click track at the track's BPM, or stop it if it is already playing for that track
+     * @return true if the click is now playing
+     */
+    public boolean toggleMetronome(TrackListItem track) {
+        if (metronome == null) {
+            metronome = new Metronome();
         }
+        if (metronome.isPlaying() && metronomeTrackId == track.getId()) {
+            stopMetronome();
+            return false;
+        }
+        if (track.getBpmCenti() <= 0) {
+            return false;
+        }
+        metronome.start(FixedBpm.toDouble(track.getBpmCenti()));
+        metronomeTrackId = track.getId();
+        return true;
     }
 
-    public LiveData<List<MusicTrack>> getDisplayedTracks() {
-        return displayedTracks;
+    public void stopMetronome() {
+        if (metronome != null) {
+            metronome.stop();
+        }
+        metronomeTrackId = -1;
     }
 
-    public void setSearchQuery(String query) {
-        searchQuery.setValue(query);
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        stopMetronome();
     }
 
-    public void setSortMode(String mode) {
-        sortMode.setValue(mode);
+    public void deleteTrack(TrackListItem track, MusicRepository.OnOperationCompleteListener listener) {
+        repository.deleteById(track.getId(), listener);
     }
 
-    public void deleteTrack(MusicTrack track, MusicRepository.OnOperationCompleteListener listener) {
-        repository.delete(track, listener);
+    /**
+     * Load the full track behind a row, e.g. for its link
+     */
+    public void loadTrack(TrackListItem track, MusicRepository.OnTrackLoadedListener listener) {
+        repository.loadTrack(track.getId(), listener);
     }
 }
@@ -7,38 +7,55 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.paging.PagingDataAdapter;
 import androidx.recyclerview.widget.DiffUtil;
-import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.musicbpm.R;
-import com.example.musicbpm.data.database.MusicTrack;
+import com.example.musicbpm.data.database.TrackListItem;
+import com.example.musicbpm.utils.FixedBpm;
 import com.example.musicbpm.utils.PlatformDetector;
 
+import java.util.Objects;
+
 /**
  * RecyclerView Adapter for displaying music tracks in the library.
+ * Tracks arrive page by page; rows not loaded yet are null and shown as placeholders.
  */
-public class MusicAdapter extends ListAdapter<MusicTrack, MusicAdapter.TrackViewHolder> {
+public class MusicAdapter extends PagingDataAdapter<TrackListItem, MusicAdapter.TrackViewHolder> {
 
     private OnTrackInteractionListener listener;
+    private boolean showDecimalBpm;
 
     public MusicAdapter(OnTrackInteractionListener listener) {
         super(DIFF_CALLBACK);
         this.listener = listener;
     }
 
-    private static final DiffUtil.ItemCallback<MusicTrack> DIFF_CALLBACK =
-            new DiffUtil.ItemCallback<MusicTrack>() {
+    /**
+     * Show BPMs with their decimals (127.5) instead of rounded (128)
+     */
+    public void setShowDecimalBpm(boolean showDecimalBpm) {
+        if (this.showDecimalBpm != showDecimalBpm) {
+            this.showDecimalBpm = showDecimalBpm;
+            notifyDataSetChanged();
+        }
+    }
+
+    private static final DiffUtil.ItemCallback<TrackListItem> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<TrackListItem>() {
                 @Override
-                public boolean areItemsTheSame(@NonNull MusicTrack oldItem, @NonNull MusicTrack newItem) {
+                public boolean areItemsTheSame(@NonNull TrackListItem oldItem, @NonNull TrackListItem newItem) {
                     return oldItem.getId() == newItem.getId();
                 }
 
                 @Override
-                public boolean areContentsTheSame(@NonNull MusicTrack oldItem, @NonNull MusicTrack newItem) {
+                public boolean areContentsTheSame(@NonNull TrackListItem oldItem, @NonNull TrackListItem newItem) {
                     return oldItem.getTitle().equals(newItem.getTitle()) &&
-                            oldItem.getBpm() == newItem.getBpm() &&
-                            (oldItem.getArtist() != null ? oldItem.getArtist().equals(newItem.getArtist()) : newItem.getArtist() == null);
+                            oldItem.getBpmCenti() == newItem.getBpmCenti() &&
+                            Objects.equals(oldItem.getArtist(), newItem.getArtist()) &&
+                            Objects.equals(oldItem.getPlatform(), newItem.getPlatform()) &&
+                            Objects.equals(oldItem.getAlbumArtUrl(), newItem.getAlbumArtUrl());
                 }
             };
 
@@ -52,8 +69,12 @@ public class MusicAdapter extends ListAdapter<MusicTrack, MusicAdapter.TrackView
 
     @Override
     public void onBindViewHolder(@NonNull TrackViewHolder holder, int position) {
-        MusicTrack track = getItem(position);
-        holder.bind(track, listener);
+        TrackListItem track = getItem(position);
+        if (track == null) {
+            holder.bindPlaceholder();
+        } else {
+            holder.bind(track, listener, showDecimalBpm);
+        }
     }
 
     static class TrackViewHolder extends RecyclerView.ViewHolder {
@@ -75,7 +96,21 @@ public class MusicAdapter extends ListAdapter<MusicTrack, MusicAdapter.TrackView
             btnDelete = itemView.findViewById(R.id.btn_delete);
         }
 
-        public void bind(MusicTrack track, OnTrackInteractionListener listener) {
+        /**
+         * Show an empty row until the page holding this position is loaded
+         */
+        public void bindPlaceholder() {
+            tvTitle.setText("");
+            tvArtist.setVisibility(View.GONE);
+            tvBpm.setText("");
+            tvPlatform.setVisibility(View.GONE);
+            itemView.setOnClickListener(null);
+            itemView.setOnLongClickListener(null);
+            tvBpm.setOnClickListener(null);
+            btnDelete.setOnClickListener(null);
+        }
+
+        public void bind(TrackListItem track, OnTrackInteractionListener listener, boolean showDecimalBpm) {
             // Define o título
             tvTitle.setText(track.getTitle());
 
@@ -88,7 +123,7 @@ public class MusicAdapter extends ListAdapter<MusicTrack, MusicAdapter.TrackView
             }
 
             // Define o BPM
-            tvBpm.setText(track.getBpm() + " BPM");
+            tvBpm.setText(FixedBpm.format(track.getBpmCenti(), showDecimalBpm) + " BPM");
 
             // Define a plataforma
             String platformName = PlatformDetector.getPlatformDisplayName(track.getPlatform());
@@ -111,6 +146,13 @@ public class MusicAdapter extends ListAdapter<MusicTrack, MusicAdapter.TrackView
                 }
             });
 
+            // BPM badge listener - click track to check the BPM by ear
+            tvBpm.setOnClickListener(v -> {
+                if (listener != null) {
+                    listener.onTrackBpmClick(track);
+                }
+            });
+
             // Delete button listener
             btnDelete.setOnClickListener(v -> {
                 if (listener != null) {
@@ -132,8 +174,9 @@ public class MusicAdapter extends ListAdapter<MusicTrack, MusicAdapter.TrackView
      * Interface para callbacks de interação com tracks
      */
     public interface OnTrackInteractionListener {
-        void onTrackClick(MusicTrack track);
-        void onTrackDelete(MusicTrack track);
-        void onTrackEdit(MusicTrack track);
+        void onTrackClick(TrackListItem track);
+        void onTrackDelete(TrackListItem track);
+        void onTrackEdit(TrackListItem track);
+        void onTrackBpmClick(TrackListItem track);
     }
 }
\ No newline at end of file
@@ -1,7 +1,10 @@
 package com.example.musicbpm.ui.settings;
 
+import android.app.Activity;
 import android.content.DialogInterface;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -9,15 +12,29 @@ import androidx.appcompat.widget.SwitchCompat;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.Fragment;
 
 import com.example.musicbpm.R;
+import com.example.musicbpm.data.backup.LibraryBackup;
+import com.example.musicbpm.data.backup.LibrarySnapshot;
+import com.example.musicbpm.data.database.AnalysisJob;
 import com.example.musicbpm.data.repository.MusicRepository;
+import com.example.musicbpm.jobs.AnalysisScheduler;
+import com.example.musicbpm.jobs.TrackTasks;
 import com.example.musicbpm.utils.PreferencesManager;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
 /**
  * Fragment for app settings and preferences.
  * Allows users to configure app behavior.
@@ -26,17 +43,67 @@ public class SettingsFragment extends Fragment {
 
     private PreferencesManager preferencesManager;
     private MusicRepository repository;
+    private AnalysisScheduler analysisScheduler;
 
     private SwitchCompat switchVibration;
+    private SwitchCompat switchBpmDecimal;
+    private SwitchCompat switchJitterMode;
+    private SwitchCompat switchRecordTaps;
     private TextView tvResetTimeout;
     private View btnDeleteAll;
+    private View btnExportJson;
+    private View btnExportCsv;
+    private View btnImportLibrary;
+    private View btnSaveSnapshot;
+    private View btnRestoreSnapshot;
+    private TextView tvBackupStatus;
+    private View btnJobBpmCheck;
+    private View btnJobSpotifyRefresh;
+    private View btnJobPlatformBackfill;
+    private TextView tvJobStatus;
     private TextView tvAbout;
 
+    private final ActivityResultLauncher<String> createJsonBackup =
+            registerForActivityResult(new ActivityResultContracts.CreateDocument(LibraryBackup.MIME_JSON), uri -> {
+                if (uri != null) {
+                    exportLibrary(uri, LibraryBackup.FORMAT_JSON);
+                }
+            });
+
+    private final ActivityResultLauncher<String> createCsvBackup =
+            registerForActivityResult(new ActivityResultContracts.CreateDocument(LibraryBackup.MIME_CSV), uri -> {
+                if (uri != null) {
+                    exportLibrary(uri, LibraryBackup.FORMAT_CSV);
+                }
+            });
+
+    private final ActivityResultLauncher<String> createSnapshot =
+            registerForActivityResult(new ActivityResultContracts.CreateDocument(LibrarySnapshot.MIME_TYPE), uri -> {
+                if (uri != null) {
+                    saveSnapshot(uri);
+                }
+            });
+
+    private final ActivityResultLauncher<String[]> openSnapshot =
+            registerForActivityResult(new ActivityResultContracts.OpenDocument(), uri -> {
+                if (uri != null) {
+                    showRestoreSnapshotDialog(uri);
+                }
+            });
+
+    private final ActivityResultLauncher<String[]> openBackup =
+            registerForActivityResult(new ActivityResultContracts.OpenDocument(), uri -> {
+                if (uri != null) {
+                    importLibrary(uri);
+                }
+            });
+
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         preferencesManager = new PreferencesManager(requireContext());
-        repository = new MusicRepository(requireActivity().getApplication());
+        repository = MusicRepository.getInstance(requireActivity().getApplication());
+        analysisScheduler = new AnalysisScheduler(requireContext());
     }
 
     @Nullable
@@ -48,14 +115,28 @@ public class SettingsFragment extends Fragment {
         initializeViews(view);
         setupListeners();
         loadCurrentSettings();
+        observeJobs();
 
         return view;
     }
 
     private void initializeViews(View view) {
         switchVibration = view.findViewById(R.id.switch_vibration);
+        switchBpmDecimal = view.findViewById(R.id.switch_bpm_decimal);
+        switchJitterMode = view.findViewById(R.id.switch_jitter_mode);
+        switchRecordTaps = view.findViewById(R.id.switch_record_taps);
         tvResetTimeout = view.findViewById(R.id.tv_reset_timeout);
         btnDeleteAll = view.findViewById(R.id.btn_delete_all);
+        btnExportJson = view.findViewById(R.id.btn_export_json);
+        btnExportCsv = view.findViewById(R.id.btn_export_csv);
+        btnImportLibrary = view.findViewById(R.id.btn_import_library);
+        btnSaveSnapshot = view.findViewById(R.id.btn_save_snapshot);
+        btnRestoreSnapshot = view.findViewById(R.id.btn_restore_snapshot);
+        tvBackupStatus = view.findViewById(R.id.tv_backup_status);
+        btnJobBpmCheck = view.findViewById(R.id.btn_job_bpm_check);
+        btnJobSpotifyRefresh = view.findViewById(R.id.btn_job_spotify_refresh);
+        btnJobPlatformBackfill = view.findViewById(R.id.btn_job_platform_backfill);
+        tvJobStatus = view.findViewById(R.id.tv_job_status);
         tvAbout = view.findViewById(R.id.tv_about);
     }
 
@@ -64,19 +145,253 @@ public class SettingsFragment extends Fragment {
             preferencesManager.setVibrationEnabled(isChecked);
         });
 
+        switchBpmDecimal.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            preferencesManager.setBpmDecimalEnabled(isChecked);
+        });
+
+        switchJitterMode.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            preferencesManager.setJitterModeEnabled(isChecked);
+        });
+
+        switchRecordTaps.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            preferencesManager.setTapRecordingEnabled(isChecked);
+        });
+
         tvResetTimeout.setOnClickListener(v -> showResetTimeoutDialog());
 
         btnDeleteAll.setOnClickListener(v -> showDeleteAllDialog());
 
+        btnExportJson.setOnClickListener(v -> createJsonBackup.launch(backupFileName(LibraryBackup.FORMAT_JSON)));
+        btnExportCsv.setOnClickListener(v -> createCsvBackup.launch(backupFileName(LibraryBackup.FORMAT_CSV)));
+        // Some file managers report CSV as text/plain or the older comma-separated-values type
+        btnImportLibrary.setOnClickListener(v -> openBackup.launch(new String[]{
+                LibraryBackup.MIME_JSON, LibraryBackup.MIME_CSV, "text/comma-separated-values", "text/plain"}));
+        btnSaveSnapshot.setOnClickListener(v -> createSnapshot.launch(
+                backupFileName(LibrarySnapshot.FILE_EXTENSION)));
+        btnRestoreSnapshot.setOnClickListener(v -> openSnapshot.launch(new String[]{"*/*"}));
+
+        btnJobBpmCheck.setOnClickListener(v -> startJob(TrackTasks.BPM_CHECK));
+        btnJobSpotifyRefresh.setOnClickListener(v -> startJob(TrackTasks.SPOTIFY_REFRESH));
+        btnJobPlatformBackfill.setOnClickListener(v -> startJob(TrackTasks.PLATFORM_BACKFILL));
+
         tvAbout.setOnClickListener(v -> showAboutDialog());
     }
 
     private void loadCurrentSettings() {
         switchVibration.setChecked(preferencesManager.isVibrationEnabled());
+        switchBpmDecimal.setChecked(preferencesManager.isBpmDecimalEnabled());
+        switchJitterMode.setChecked(preferencesManager.isJitterModeEnabled());
+        switchRecordTaps.setChecked(preferencesManager.isTapRecordingEnabled());
         int timeout = preferencesManager.getResetTimeout();
         tvResetTimeout.setText(String.format("Auto-reset after %d seconds", timeout / 1000));
     }
 
+    private void observeJobs() {
+        analysisScheduler.getLatestJob().observe(getViewLifecycleOwner(), job -> {
+            if (job == null) {
+                tvJobStatus.setVisibility(View.GONE);
+                return;
+            }
+            tvJobStatus.setVisibility(View.VISIBLE);
+            tvJobStatus.setText(formatJob(job));
+        });
+    }
+
+    private String formatJob(AnalysisJob job) {
+        String name = TrackTasks.getDisplayName(job.getTask());
+        switch (job.getStatus()) {
+            case AnalysisJob.STATUS_DONE:
+                return String.format("%s: done, %d changed, %d failed",
+                        name, job.getChanged(), job.getFailed());
+            case AnalysisJob.STATUS_FAILED:
+                return String.format("%s: failed (%s)", name, job.getError());
+            case AnalysisJob.STATUS_PAUSED:
+                return String.format("%s: paused at %d / %d (waiting for battery or cooling)",
+                        name, job.getProcessed(), job.getTotal());
+            case AnalysisJob.STATUS_RUNNING:
+                return String.format("%s: %d / %d (%d changed)",
+                        name, job.getProcessed(), job.getTotal(), job.getChanged());
+            default:
+                return String.format("%s: queued", name);
+        }
+    }
+
+    private void startJob(String task) {
+        analysisScheduler.enqueue(task, new MusicRepository.OnOperationCompleteListener() {
+            @Override
+            public void onSuccess(long id) {
+                requireActivity().runOnUiThread(() -> {
+                    Toast.makeText(requireContext(), TrackTasks.getDisplayName(task) + " started", Toast.LENGTH_SHORT).show();
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                requireActivity().runOnUiThread(() -> {
+                    Toast.makeText(requireContext(), "Error: " + error, Toast.LENGTH_SHORT).show();
+                });
+            }
+        });
+    }
+
+    private String backupFileName(String format) {
+        String date = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date());
+        return "musicbpm-library-" + date + "." + format;
+    }
+
+    private void exportLibrary(Uri uri, String format) {
+        OutputStream out;
+        try {
+            out = requireContext().getContentResolver().openOutputStream(uri, "wt");
+        } catch (Exception e) {
+            out = null;
+        }
+        if (out == null) {
+            Toast.makeText(requireContext(), "Could not create the backup file", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        setBackupRunning(true, "Exporting...");
+        repository.exportLibrary(out, format,
+                (done, total) -> runIfShown(() -> tvBackupStatus.setText(
+                        String.format("Exporting: %d / %d", done, total))),
+                new MusicRepository.OnOperationCompleteListener() {
+                    @Override
+                    public void onSuccess(long count) {
+                        runIfShown(() -> setBackupRunning(false, String.format("Exported %d tracks", count)));
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        runIfShown(() -> setBackupRunning(false, "Export failed: " + error));
+                    }
+                });
+    }
+
+    private void importLibrary(Uri uri) {
+        InputStream in;
+        try {
+            in = requireContext().getContentResolver().openInputStream(uri);
+        } catch (Exception e) {
+            in = null;
+        }
+        if (in == null) {
+            Toast.makeText(requireContext(), "Could not open the backup file", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        setBackupRunning(true, "Importing...");
+        repository.importLibrary(in,
+                (done, total) -> runIfShown(() -> tvBackupStatus.setText(
+                        String.format("Importing: %d tracks", done))),
+                new MusicRepository.OnOperationCompleteListener() {
+                    @Override
+                    public void onSuccess(long count) {
+                        runIfShown(() -> setBackupRunning(false, String.format("Imported %d tracks", count)));
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        // Batches committed before the error stay in the library
+                        runIfShown(() -> setBackupRunning(false, "Import stopped: " + error));
+                    }
+                });
+    }
+
+    private void saveSnapshot(Uri uri) {
+        FileChannel channel;
+        try {
+            ParcelFileDescriptor descriptor = requireContext().getContentResolver().openFileDescriptor(uri, "wt");
+            // Closing the channel closes the descriptor too
+            channel = descriptor != null
+                    ? new ParcelFileDescriptor.AutoCloseOutputStream(descriptor).getChannel() : null;
+        } catch (Exception e) {
+            channel = null;
+        }
+        if (channel == null) {
+            Toast.makeText(requireContext(), "Could not create the snapshot file", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        setBackupRunning(true, "Saving snapshot...");
+        repository.exportSnapshot(channel,
+                (done, total) -> runIfShown(() -> tvBackupStatus.setText(
+                        String.format("Saving snapshot: %d / %d", done, total))),
+                new MusicRepository.OnOperationCompleteListener() {
+                    @Override
+                    public void onSuccess(long count) {
+                        runIfShown(() -> setBackupRunning(false, String.format("Saved %d tracks", count)));
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        runIfShown(() -> setBackupRunning(false, "Snapshot failed: " + error));
+                    }
+                });
+    }
+
+    private void showRestoreSnapshotDialog(Uri uri) {
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Restore Snapshot")
+                .setMessage("This replaces every track in the library with the snapshot. Continue?")
+                .setPositiveButton("Restore", (dialog, which) -> restoreSnapshot(uri))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void restoreSnapshot(Uri uri) {
+        FileChannel channel;
+        try {
+            ParcelFileDescriptor descriptor = requireContext().getContentResolver().openFileDescriptor(uri, "r");
+            channel = descriptor != null
+                    ? new ParcelFileDescriptor.AutoCloseInputStream(descriptor).getChannel() : null;
+        } catch (Exception e) {
+            channel = null;
+        }
+        if (channel == null) {
+            Toast.makeText(requireContext(), "Could not open the snapshot file", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        setBackupRunning(true, "Restoring snapshot...");
+        repository.restoreSnapshot(channel,
+                (done, total) -> runIfShown(() -> tvBackupStatus.setText(
+                        String.format("Restoring: %d / %d", done, total))),
+                new MusicRepository.OnOperationCompleteListener() {
+                    @Override
+                    public void onSuccess(long count) {
+                        runIfShown(() -> setBackupRunning(false, String.format("Restored %d tracks", count)));
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        // The restore is one transaction, nothing was changed
+                        runIfShown(() -> setBackupRunning(false, "Restore failed, library unchanged: " + error));
+                    }
+                });
+    }
+
+    private void setBackupRunning(boolean running, String status) {
+        btnExportJson.setEnabled(!running);
+        btnExportCsv.setEnabled(!running);
+        btnImportLibrary.setEnabled(!running);
+        btnSaveSnapshot.setEnabled(!running);
+        btnRestoreSnapshot.setEnabled(!running);
+        tvBackupStatus.setVisibility(View.VISIBLE);
+        tvBackupStatus.setText(status);
+    }
+
+    /**
+     * Post to the UI thread, dropped if the screen is gone; exports and imports can outlive it
+     */
+    private void runIfShown(Runnable action) {
+        Activity activity = getActivity();
+        if (activity == null) {
+            return;
+        }
+        activity.runOnUiThread(() -> {
+            if (getView() != null) {
+                action.run();
+            }
+        });
+    }
+
     private void showResetTimeoutDialog() {
         String[] options = {"2 seconds", "3 seconds", "4 seconds", "5 seconds"};
         int[] values = {2000, 3000, 4000, 5000};
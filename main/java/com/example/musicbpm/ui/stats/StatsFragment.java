@@ -0,0 +1,136 @@
+package com.example.musicbpm.ui.stats;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+
+import com.example.musicbpm.R;
+import com.example.musicbpm.data.database.LibraryStat;
+import com.example.musicbpm.data.database.LibraryStats;
+import com.example.musicbpm.data.database.TagCount;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fragment showing library statistics: BPM histogram, tracks per platform,
+ * most used tags and tracks added per month, each as a list of bars.
+ */
+public class StatsFragment extends Fragment {
+
+    // The tag list is cut here; the rest are rarely used tags
+    private static final int MAX_TAGS = 20;
+
+    private StatsViewModel viewModel;
+
+    private TextView tvTotal;
+    private LinearLayout containerBpmHistogram;
+    private LinearLayout containerPlatforms;
+    private LinearLayout containerTags;
+    private LinearLayout containerMonths;
+
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        viewModel = new ViewModelProvider(this).get(StatsViewModel.class);
+    }
+
+    @Nullable
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
+                             @Nullable Bundle savedInstanceState) {
+        View view = inflater.inflate(R.layout.fragment_stats, container, false);
+
+        tvTotal = view.findViewById(R.id.tv_stats_total);
+        containerBpmHistogram = view.findViewById(R.id.container_bpm_histogram);
+        containerPlatforms = view.findViewById(R.id.container_platforms);
+        containerTags = view.findViewById(R.id.container_tags);
+        containerMonths = view.findViewById(R.id.container_months);
+
+        observeStats();
+
+        return view;
+    }
+
+    private void observeStats() {
+        viewModel.getTrackCount().observe(getViewLifecycleOwner(), count ->
+                tvTotal.setText(String.format("%d tracks", count != null ? count : 0)));
+
+        viewModel.getBpmHistogram().observe(getViewLifecycleOwner(), stats -> {
+            List<String> labels = new ArrayList<>();
+            List<Integer> counts = new ArrayList<>();
+            for (LibraryStat stat : stats) {
+                int start = Integer.parseInt(stat.getBucket());
+                labels.add(start + "–" + (start + LibraryStats.BPM_BUCKET_WIDTH - 1));
+                counts.add(stat.getTrackCount());
+            }
+            showBars(containerBpmHistogram, labels, counts);
+        });
+
+        viewModel.getPlatformCounts().observe(getViewLifecycleOwner(), stats -> {
+            List<String> labels = new ArrayList<>();
+            List<Integer> counts = new ArrayList<>();
+            for (LibraryStat stat : stats) {
+                labels.add(stat.getBucket().isEmpty() ? "Other" : stat.getBucket());
+                counts.add(stat.getTrackCount());
+            }
+            showBars(containerPlatforms, labels, counts);
+        });
+
+        viewModel.getTagCounts().observe(getViewLifecycleOwner(), tags -> {
+            List<String> labels = new ArrayList<>();
+            List<Integer> counts = new ArrayList<>();
+            for (TagCount tag : tags.subList(0, Math.min(MAX_TAGS, tags.size()))) {
+                labels.add(tag.getName());
+                counts.add(tag.getTrackCount());
+            }
+            showBars(containerTags, labels, counts);
+        });
+
+        viewModel.getMonthlyAdditions().observe(getViewLifecycleOwner(), stats -> {
+            List<String> labels = new ArrayList<>();
+            List<Integer> counts = new ArrayList<>();
+            for (LibraryStat stat : stats) {
+                labels.add(stat.getBucket());
+                counts.add(stat.getTrackCount());
+            }
+            showBars(containerMonths, labels, counts);
+        });
+    }
+
+    /**
+     * Replace the rows of a section with one bar per value, scaled to the largest
+     */
+    private void showBars(LinearLayout container, List<String> labels, List<Integer> counts) {
+        container.removeAllViews();
+        if (labels.isEmpty()) {
+            TextView empty = new TextView(requireContext());
+            empty.setText("No tracks yet");
+            container.addView(empty);
+            return;
+        }
+        int max = 1;
+        for (int count : counts) {
+            max = Math.max(max, count);
+        }
+        LayoutInflater inflater = getLayoutInflater();
+        for (int i = 0; i < labels.size(); i++) {
+            View row = inflater.inflate(R.layout.item_stat_row, container, false);
+            ((TextView) row.findViewById(R.id.tv_stat_label)).setText(labels.get(i));
+            ProgressBar bar = row.findViewById(R.id.progress_stat);
+            bar.setMax(max);
+            bar.setProgress(counts.get(i));
+            ((TextView) row.findViewById(R.id.tv_stat_count)).setText(String.valueOf(counts.get(i)));
+            container.addView(row);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.musicbpm.ui.stats;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+
+import com.example.musicbpm.data.database.LibraryStat;
+import com.example.musicbpm.data.database.TagCount;
+import com.example.musicbpm.data.repository.MusicRepository;
+
+import java.util.List;
+
+/**
+ * Library statistics for StatsFragment. Every value is read from library_stats, so the screen
+ * costs the same for any library size and refreshes itself after each write.
+ */
+public class StatsViewModel extends AndroidViewModel {
+
+    private final LiveData<Integer> trackCount;
+    private final LiveData<List<LibraryStat>> bpmHistogram;
+    private final LiveData<List<LibraryStat>> platformCounts;
+    private final LiveData<List<TagCount>> tagCounts;
+    private final LiveData<List<LibraryStat>> monthlyAdditions;
+
+    public StatsViewModel(@NonNull Application application) {
+        super(application);
+        MusicRepository repository = MusicRepository.getInstance(application);
+        trackCount = repository.getTrackCount();
+        bpmHistogram = repository.getBpmHistogram();
+        platformCounts = repository.getPlatformCounts();
+        tagCounts = repository.getTagCounts();
+        monthlyAdditions = repository.getMonthlyAdditions();
+    }
+
+    public LiveData<Integer> getTrackCount() {
+        return trackCount;
+    }
+
+    public LiveData<List<LibraryStat>> getBpmHistogram() {
+        return bpmHistogram;
+    }
+
+    public LiveData<List<LibraryStat>> getPlatformCounts() {
+        return platformCounts;
+    }
+
+    public LiveData<List<TagCount>> getTagCounts() {
+        return tagCounts;
+    }
+
+    public LiveData<List<LibraryStat>> getMonthlyAdditions() {
+        return monthlyAdditions;
+    }
+}
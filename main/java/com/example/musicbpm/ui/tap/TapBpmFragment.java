@@ -1,6 +1,9 @@
 package com.example.musicbpm.ui.tap;
 
+import android.Manifest;
+import android.annotation.SuppressLint;
 import android.content.Context;
+import android.content.pm.PackageManager;
 import android.os.Bundle;
 import android.os.VibrationEffect;
 import android.os.Vibrator;
@@ -9,14 +12,21 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.TextView;
+import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 
 import com.example.musicbpm.R;
+import com.example.musicbpm.analysis.AudioRecordPcmSource;
+import com.example.musicbpm.utils.FixedBpm;
 import com.example.musicbpm.utils.PreferencesManager;
+import com.example.musicbpm.utils.TapTouchListener;
 
 /**
  * Fragment for the Tap BPM screen.
@@ -29,12 +39,24 @@ public class TapBpmFragment extends Fragment {
 
     private Button btnTap;
     private Button btnReset;
+    private Button btnListen;
+    private Button btnClick;
     private TextView tvBpm;
     private TextView tvTapCount;
     private TextView tvInstruction;
+    private TextView tvJitter;
 
     private Vibrator vibrator;
 
+    private final ActivityResultLauncher<String> requestRecordAudio =
+            registerForActivityResult(new ActivityResultContracts.RequestPermission(), granted -> {
+                if (granted) {
+                    startListening();
+                } else {
+                    Toast.makeText(requireContext(), "Microphone permission is needed to listen", Toast.LENGTH_SHORT).show();
+                }
+            });
+
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -59,14 +81,19 @@ public class TapBpmFragment extends Fragment {
     private void initializeViews(View view) {
         btnTap = view.findViewById(R.id.btn_tap);
         btnReset = view.findViewById(R.id.btn_reset);
+        btnListen = view.findViewById(R.id.btn_listen);
+        btnClick = view.findViewById(R.id.btn_click);
         tvBpm = view.findViewById(R.id.tv_bpm);
         tvTapCount = view.findViewById(R.id.tv_tap_count);
         tvInstruction = view.findViewById(R.id.tv_instruction);
+        tvJitter = view.findViewById(R.id.tv_jitter);
     }
 
     private void setupListeners() {
-        btnTap.setOnClickListener(v -> {
-            viewModel.onTap();
+        // Timestamp taps on ACTION_DOWN; haptics and UI updates only run after that.
+        // The click listener covers keyboard and accessibility clicks
+        TapTouchListener tapListener = new TapTouchListener((eventTimeNanos, dispatchLatencyNanos) -> {
+            viewModel.onTap(eventTimeNanos, dispatchLatencyNanos);
 
             // Vibrate if enabled
             if (preferencesManager.isVibrationEnabled() && vibrator != null) {
@@ -77,14 +104,53 @@ public class TapBpmFragment extends Fragment {
                 }
             }
         });
+        btnTap.setOnTouchListener(tapListener);
+        btnTap.setOnClickListener(tapListener);
 
         btnReset.setOnClickListener(v -> viewModel.reset());
+
+        btnListen.setOnClickListener(v -> {
+            Boolean listening = viewModel.getIsListening().getValue();
+            if (listening != null && listening) {
+                viewModel.stopListening();
+            } else if (ContextCompat.checkSelfPermission(requireContext(), Manifest.permission.RECORD_AUDIO)
+                    == PackageManager.PERMISSION_GRANTED) {
+                startListening();
+            } else {
+                requestRecordAudio.launch(Manifest.permission.RECORD_AUDIO);
+            }
+        });
+
+        btnClick.setOnClickListener(v -> {
+            if (viewModel.getLastBpm() <= 0 && !Boolean.TRUE.equals(viewModel.getIsClicking().getValue())) {
+                Toast.makeText(requireContext(), "Tap or listen first to get a BPM", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            viewModel.toggleMetronome();
+        });
+    }
+
+    @SuppressLint("MissingPermission")
+    private void startListening() {
+        try {
+            viewModel.startListening(new AudioRecordPcmSource());
+        } catch (Exception e) {
+            Toast.makeText(requireContext(), "Cannot open microphone", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+        // Never keep the microphone or the click running in the background
+        viewModel.stopListening();
+        viewModel.stopMetronome();
     }
 
     private void observeViewModel() {
         viewModel.getCurrentBpm().observe(getViewLifecycleOwner(), bpm -> {
             if (bpm > 0) {
-                tvBpm.setText(String.valueOf(bpm));
+                tvBpm.setText(FixedBpm.format(bpm, preferencesManager.isBpmDecimalEnabled()));
                 tvBpm.setTextSize(72);
             } else {
                 tvBpm.setText("--");
@@ -113,5 +179,33 @@ public class TapBpmFragment extends Fragment {
                 btnTap.setAlpha(0.8f);
             }
         });
+
+        viewModel.getDispatchLatency().observe(getViewLifecycleOwner(), report -> {
+            if (report != null && preferencesManager.isJitterModeEnabled()) {
+                tvJitter.setText(report);
+                tvJitter.setVisibility(View.VISIBLE);
+            } else {
+                tvJitter.setVisibility(View.GONE);
+            }
+        });
+
+        viewModel.getIsListening().observe(getViewLifecycleOwner(), isListening -> {
+            if (isListening) {
+                btnListen.setText("Stop");
+                tvInstruction.setText("Listening...");
+            } else {
+                btnListen.setText("Listen");
+            }
+        });
+
+        viewModel.getIsClicking().observe(getViewLifecycleOwner(), isClicking -> {
+            btnClick.setText(isClicking ? "Stop Click" : "Click");
+        });
+
+        viewModel.getIsLocked().observe(getViewLifecycleOwner(), isLocked -> {
+            if (isLocked) {
+                tvInstruction.setText("Locked");
+            }
+        });
     }
 }
\ No newline at end of file
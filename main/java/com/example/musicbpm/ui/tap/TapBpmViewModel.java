@@ -1,14 +1,26 @@
 package com.example.musicbpm.ui.tap;
 
 import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import com.example.musicbpm.analysis.LiveBpmDetector;
+import com.example.musicbpm.analysis.PcmSource;
+import com.example.musicbpm.metronome.Metronome;
 import com.example.musicbpm.utils.BpmCalculator;
+import com.example.musicbpm.utils.DispatchLatencyStats;
+import com.example.musicbpm.utils.FixedBpm;
 import com.example.musicbpm.utils.PreferencesManager;
+import com.example.musicbpm.utils.TapTouchListener;
+import com.example.musicbpm.utils.tempo.replay.TapSessionRecorder;
+
+import java.io.File;
 
 /**
  * ViewModel for the Tap BPM screen.
@@ -16,12 +28,26 @@ import com.example.musicbpm.utils.PreferencesManager;
  */
 public class TapBpmViewModel extends AndroidViewModel {
 
+    private static final String TAG = "TapBpmViewModel";
+
     private BpmCalculator bpmCalculator;
+    private DispatchLatencyStats latencyStats = new DispatchLatencyStats();
+    private LiveBpmDetector liveDetector;
+    // Bumped on every start and stop, so estimates from a stopped detector are dropped
+    private int listenSession;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Metronome metronome;
+    private TapSessionRecorder tapRecorder;
     private PreferencesManager preferencesManager;
 
+    // Hundredths of a BPM, see FixedBpm
     private MutableLiveData<Integer> currentBpm = new MutableLiveData<>(0);
     private MutableLiveData<Integer> tapCount = new MutableLiveData<>(0);
     private MutableLiveData<Boolean> isCalculating = new MutableLiveData<>(false);
+    private MutableLiveData<Boolean> isLocked = new MutableLiveData<>(false);
+    private MutableLiveData<String> dispatchLatency = new MutableLiveData<>();
+    private MutableLiveData<Boolean> isListening = new MutableLiveData<>(false);
+    private MutableLiveData<Boolean> isClicking = new MutableLiveData<>(false);
 
     public TapBpmViewModel(@NonNull Application application) {
         super(application);
@@ -38,34 +64,194 @@ public class TapBpmViewModel extends AndroidViewModel {
 
         // Set reset listener
         bpmCalculator.setOnResetListener(() -> {
+            finishTapSession();
             currentBpm.postValue(0);
             tapCount.postValue(0);
             isCalculating.postValue(false);
+            isLocked.postValue(false);
         });
     }
 
     /**
      * Handle tap event
+     * @param eventTimeNanos Time of the touch event on the monotonic clock
+     * @param dispatchLatencyNanos Delay between the touch event and this call, or
+     *                             TapTouchListener.OnTapListener.LATENCY_UNKNOWN
      */
-    public void onTap() {
-        int bpm = bpmCalculator.onTap();
+    public void onTap(long eventTimeNanos, long dispatchLatencyNanos) {
+        // Tapping takes over from listen mode
+        if (liveDetector != null) {
+            stopListening();
+        }
+
+        int bpm = bpmCalculator.onTap(eventTimeNanos);
+
+        TapSessionRecorder recorder = getTapRecorder();
+        if (recorder != null) {
+            recorder.onTap(eventTimeNanos, bpmCalculator.getRawBpm());
+        }
+
+        if (preferencesManager.isJitterModeEnabled()
+                && dispatchLatencyNanos != TapTouchListener.OnTapListener.LATENCY_UNKNOWN) {
+            latencyStats.add(dispatchLatencyNanos);
+            String report = latencyStats.format();
+            Log.d(TAG, "Tap " + latencyStats.getCount() + ": " + report);
+            dispatchLatency.setValue(report);
+        }
+
         currentBpm.setValue(bpm);
+        followBpm(bpm);
         tapCount.setValue(bpmCalculator.getTapCount());
         isCalculating.setValue(bpmCalculator.hasEnoughTaps());
+        isLocked.setValue(bpmCalculator.isLocked());
+    }
+
+    /**
+     * Start detecting the BPM from live audio (listen mode)
+     * @param source Audio to analyze, e.g. the microphone; closed when listening stops
+     */
+    public void startListening(PcmSource source) {
+        stopListening();
+        reset();
+
+        int session = ++listenSession;
+        liveDetector = new LiveBpmDetector(source, new LiveBpmDetector.OnTempoListener() {
+            @Override
+            public void onTempo(double bpm, double confidence) {
+                if (bpm <= 0) {
+                    return;
+                }
+                int bpmCenti = FixedBpm.fromDouble(bpm);
+                // Called on the analysis thread; the metronome is only driven from the main thread
+                mainHandler.post(() -> {
+                    if (session == listenSession) {
+                        currentBpm.setValue(bpmCenti);
+                        followBpm(bpmCenti);
+                    }
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "Listen mode failed: " + error);
+                mainHandler.post(() -> {
+                    if (session == listenSession) {
+                        stopListening();
+                    }
+                });
+            }
+        });
+        liveDetector.start();
+        isListening.setValue(true);
+    }
+
+    /**
+     * Stop listen mode and release the audio source
+     */
+    public void stopListening() {
+        listenSession++;
+        releaseDetector();
+        isListening.setValue(false);
+    }
+
+    /**
+     * Stop the detector off the main thread: stop() waits for the capture and analysis threads,
+     * and the capture thread can be blocked in a read for a whole buffer
+     */
+    private void releaseDetector() {
+        if (liveDetector != null) {
+            new Thread(liveDetector::stop, "LiveBpmStop").start();
+            liveDetector = null;
+        }
+    }
+
+    /**
+     * Start or stop the click track at the current BPM.
+     * While it plays it follows new tap or listen estimates.
+     */
+    public void toggleMetronome() {
+        if (metronome != null && metronome.isPlaying()) {
+            stopMetronome();
+            return;
+        }
+        int bpm = getLastBpm();
+        if (bpm <= 0) {
+            return;
+        }
+        if (metronome == null) {
+            metronome = new Metronome();
+        }
+        metronome.start(FixedBpm.toDouble(bpm));
+        isClicking.setValue(true);
+    }
+
+    public void stopMetronome() {
+        if (metronome != null) {
+            metronome.stop();
+        }
+        isClicking.setValue(false);
+    }
+
+    private void followBpm(int bpmCenti) {
+        if (metronome != null && metronome.isPlaying() && bpmCenti > 0) {
+            metronome.setBpm(FixedBpm.toDouble(bpmCenti));
+        }
+    }
+
+    /**
+     * Get the tap session recorder, or null if recording is turned off in settings
+     */
+    private TapSessionRecorder getTapRecorder() {
+        if (!preferencesManager.isTapRecordingEnabled()) {
+            if (tapRecorder != null) {
+                tapRecorder.close();
+                tapRecorder = null;
+            }
+            return null;
+        }
+        if (tapRecorder == null) {
+            File file = new File(getApplication().getFilesDir(), TapSessionRecorder.DEFAULT_FILE_NAME);
+            tapRecorder = new TapSessionRecorder(file, 0);
+        }
+        return tapRecorder;
+    }
+
+    private void finishTapSession() {
+        if (tapRecorder != null) {
+            tapRecorder.finishSession();
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        if (tapRecorder != null) {
+            tapRecorder.close();
+        }
+        listenSession++;
+        mainHandler.removeCallbacksAndMessages(null);
+        releaseDetector();
+        if (metronome != null) {
+            metronome.stop();
+        }
     }
 
     /**
      * Manually reset the calculator
      */
     public void reset() {
+        finishTapSession();
         bpmCalculator.reset();
+        latencyStats.reset();
+        dispatchLatency.setValue(null);
         currentBpm.setValue(0);
         tapCount.setValue(0);
         isCalculating.setValue(false);
+        isLocked.setValue(false);
     }
 
     /**
-     * Get current BPM value
+     * Get current BPM value in hundredths
      */
     public LiveData<Integer> getCurrentBpm() {
         return currentBpm;
@@ -86,7 +272,35 @@ public class TapBpmViewModel extends AndroidViewModel {
     }
 
     /**
-     * Get the last calculated BPM value (for passing to add music screen)
+     * Get locked state (estimate is stable enough to be final)
+     */
+    public LiveData<Boolean> getIsLocked() {
+        return isLocked;
+    }
+
+    /**
+     * Get listen mode state
+     */
+    public LiveData<Boolean> getIsListening() {
+        return isListening;
+    }
+
+    /**
+     * Get click track state
+     */
+    public LiveData<Boolean> getIsClicking() {
+        return isClicking;
+    }
+
+    /**
+     * Get the dispatch latency report (jitter measurement mode only)
+     */
+    public LiveData<String> getDispatchLatency() {
+        return dispatchLatency;
+    }
+
+    /**
+     * Get the last calculated BPM value in hundredths (for passing to add music screen)
      */
     public int getLastBpm() {
         Integer bpm = currentBpm.getValue();
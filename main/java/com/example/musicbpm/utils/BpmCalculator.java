@@ -3,103 +3,227 @@ package com.example.musicbpm.utils;
 import android.os.Handler;
 import android.os.Looper;
 
-import java.util.ArrayList;
-import java.util.List;
+import com.example.musicbpm.utils.tempo.TempoEstimator;
+import com.example.musicbpm.utils.tempo.TempoOctaveResolver;
+import com.example.musicbpm.utils.tempo.TrimmedMeanTempoEstimator;
 
 /**
  * Utility class for calculating BPM based on tap tempo.
  * Handles tap timestamps, calculates average intervals, and manages auto-reset.
+ *
+ * Taps are timestamped in nanoseconds on the monotonic clock shared by
+ * {@link System#nanoTime()} and input events (see {@link TapTouchListener}).
+ * Timestamps are kept in a fixed-size primitive ring buffer together with a
+ * running sum of the intervals between them, so each tap is O(1) and allocates nothing.
+ * The reported BPM comes from a pluggable {@link TempoEstimator} (trimmed mean of the
+ * intervals by default), which also provides a confidence value for the UI.
+ * {@link #onTap(long)} reports it in hundredths of a BPM (see {@link FixedBpm}).
  */
 public class BpmCalculator {
 
-    private static final int MAX_TAPS = 10;
+    public static final int DEFAULT_MAX_TAPS = 10;
     private static final long DEFAULT_RESET_TIMEOUT = 3000; // 3 seconds
     private static final int MIN_BPM = 40;
     private static final int MAX_BPM = 220;
+    private static final long NANOS_PER_MS = 1_000_000L;
+    private static final double NANOS_PER_MINUTE = 60e9;
+
+    // Ring buffer of tap timestamps (ns); head points to the oldest entry
+    private final long[] tapTimestamps;
+    private int head;
+    private int size;
+    private long intervalSum;
+
+    private long maxTapGapNanos;
+
+    private TempoEstimator estimator;
 
-    private List<Long> tapTimestamps;
     private Handler resetHandler;
     private Runnable resetRunnable;
     private long resetTimeout;
     private OnResetListener resetListener;
 
     public BpmCalculator() {
-        this.tapTimestamps = new ArrayList<>();
-        this.resetHandler = new Handler(Looper.getMainLooper());
+        this(DEFAULT_MAX_TAPS);
+    }
+
+    /**
+     * @param maxTaps Number of most recent taps used for the calculation
+     */
+    public BpmCalculator(int maxTaps) {
+        // In TapReplayHarness it converges more often than the median, with as few gross errors
+        this(maxTaps, new TrimmedMeanTempoEstimator(maxTaps - 1));
+    }
+
+    /**
+     * @param maxTaps Number of most recent taps kept for the plain average
+     * @param estimator Estimator used for the reported BPM
+     */
+    public BpmCalculator(int maxTaps, TempoEstimator estimator) {
+        if (maxTaps < 2) {
+            throw new IllegalArgumentException("maxTaps must be at least 2");
+        }
+        this.tapTimestamps = new long[maxTaps];
         this.resetTimeout = DEFAULT_RESET_TIMEOUT;
+        this.estimator = estimator;
     }
 
     /**
-     * Records a tap and returns the calculated BPM
-     * @return Current BPM or 0 if not enough taps
+     * Records a tap at the current time and returns the calculated BPM.
+     * Prefer {@link #onTap(long)} with the input event time when it is available.
+     * @return Current BPM in hundredths or 0 if not enough taps
      */
     public int onTap() {
-        long currentTime = System.currentTimeMillis();
-        tapTimestamps.add(currentTime);
+        return onTap(System.nanoTime());
+    }
 
-        // Limit number of stored taps
-        if (tapTimestamps.size() > MAX_TAPS) {
-            tapTimestamps.remove(0);
+    /**
+     * Records a tap at the given time and returns the calculated BPM
+     * @param timestampNanos Tap time on the monotonic clock, in nanoseconds
+     * @return Current BPM in hundredths or 0 if not enough taps
+     */
+    public int onTap(long timestampNanos) {
+        // A long pause starts a new tapping session
+        if (maxTapGapNanos > 0 && size > 0 && timestampNanos - getLastTapTime() > maxTapGapNanos) {
+            clearTaps();
         }
 
+        addTimestamp(timestampNanos);
+        estimator.addTap(timestampNanos);
+
         // Reset the auto-reset timer
-        resetHandler.removeCallbacks(resetRunnable);
         if (resetRunnable != null) {
+            resetHandler.removeCallbacks(resetRunnable);
             resetHandler.postDelayed(resetRunnable, resetTimeout);
         }
 
         return calculateBpm();
     }
 
+    private void addTimestamp(long timestampNanos) {
+        int capacity = tapTimestamps.length;
+
+        if (size > 0) {
+            intervalSum += timestampNanos - getLastTapTime();
+        }
+
+        // Limit number of stored taps: drop the oldest interval from the running sum
+        if (size == capacity) {
+            long oldest = tapTimestamps[head];
+            long secondOldest = tapTimestamps[(head + 1) % capacity];
+            intervalSum -= secondOldest - oldest;
+            tapTimestamps[head] = timestampNanos;
+            head = (head + 1) % capacity;
+        } else {
+            tapTimestamps[(head + size) % capacity] = timestampNanos;
+            size++;
+        }
+    }
+
     /**
      * Calculates BPM based on stored tap timestamps
-     * @return BPM value or 0 if less than 2 taps
+     * @return BPM in hundredths or 0 if less than 2 taps
      */
     private int calculateBpm() {
-        if (tapTimestamps.size() < 2) {
+        if (size < 2) {
             return 0;
         }
 
-        // Calculate intervals between taps
-        List<Long> intervals = new ArrayList<>();
-        for (int i = 1; i < tapTimestamps.size(); i++) {
-            intervals.add(tapTimestamps.get(i) - tapTimestamps.get(i - 1));
+        // Bring tapped subdivisions or every-other-beat taps into the realistic range by
+        // octaves; clamping would report a tempo the user never tapped
+        return FixedBpm.fromDouble(TempoOctaveResolver.fold(getRawBpm(), MIN_BPM, MAX_BPM));
+    }
+
+    /**
+     * Get the unclamped BPM from the tempo estimator
+     * @return BPM value or 0 if less than 2 taps
+     */
+    public double getRawBpm() {
+        if (size < 2) {
+            return 0;
         }
+        return estimator.getBpm();
+    }
 
-        // Calculate average interval
-        long sum = 0;
-        for (long interval : intervals) {
-            sum += interval;
+    /**
+     * Get the BPM from the plain average of the stored intervals
+     * @return BPM value or 0 if less than 2 taps
+     */
+    public double getMeanBpm() {
+        if (size < 2 || intervalSum <= 0) {
+            return 0;
         }
-        double averageInterval = (double) sum / intervals.size();
+        // Convert to BPM: ns per minute / average interval in ns
+        return NANOS_PER_MINUTE * (size - 1) / intervalSum;
+    }
+
+    /**
+     * Get the confidence of the current estimate
+     * @return Value between 0 and 1
+     */
+    public double getConfidence() {
+        return estimator.getConfidence();
+    }
+
+    /**
+     * Check if the estimate is stable enough to be considered final
+     */
+    public boolean isLocked() {
+        return estimator.isLocked();
+    }
+
+    /**
+     * Replace the tempo estimator. Recorded taps are discarded.
+     */
+    public void setEstimator(TempoEstimator estimator) {
+        this.estimator = estimator;
+        reset();
+    }
+
+    public TempoEstimator getEstimator() {
+        return estimator;
+    }
 
-        // Convert to BPM: 60000 ms per minute / average interval in ms
-        int bpm = (int) Math.round(60000.0 / averageInterval);
+    /**
+     * Get the timestamp of the most recent tap
+     * @return Timestamp in nanoseconds or 0 if there are no taps
+     */
+    public long getLastTapTime() {
+        if (size == 0) {
+            return 0;
+        }
+        return tapTimestamps[(head + size - 1) % tapTimestamps.length];
+    }
 
-        // Clamp to realistic BPM range
-        return Math.max(MIN_BPM, Math.min(MAX_BPM, bpm));
+    private void clearTaps() {
+        head = 0;
+        size = 0;
+        intervalSum = 0;
+        estimator.reset();
     }
 
     /**
      * Manually reset all taps
      */
     public void reset() {
-        tapTimestamps.clear();
-        resetHandler.removeCallbacks(resetRunnable);
+        clearTaps();
+        if (resetRunnable != null) {
+            resetHandler.removeCallbacks(resetRunnable);
+        }
     }
 
     /**
      * Get number of taps recorded
      */
     public int getTapCount() {
-        return tapTimestamps.size();
+        return size;
     }
 
     /**
      * Check if enough taps have been recorded to calculate BPM
      */
     public boolean hasEnoughTaps() {
-        return tapTimestamps.size() >= 2;
+        return size >= 2;
     }
 
     /**
@@ -110,11 +234,23 @@ public class BpmCalculator {
         this.resetTimeout = timeoutMs;
     }
 
+    /**
+     * Set the maximum pause between two taps of the same session.
+     * A longer pause discards the previous taps. 0 disables the check.
+     * @param gapMs Maximum gap in milliseconds
+     */
+    public void setMaxTapGap(long gapMs) {
+        this.maxTapGapNanos = gapMs * NANOS_PER_MS;
+    }
+
     /**
      * Set callback for auto-reset events
      */
     public void setOnResetListener(OnResetListener listener) {
         this.resetListener = listener;
+        if (resetHandler == null) {
+            resetHandler = new Handler(Looper.getMainLooper());
+        }
         this.resetRunnable = () -> {
             reset();
             if (resetListener != null) {
@@ -129,4 +265,4 @@ public class BpmCalculator {
     public interface OnResetListener {
         void onReset();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,79 @@
+package com.example.musicbpm.utils;
+
+import java.util.Locale;
+
+/**
+ * Running statistics of the delay between a touch event and its delivery to the app.
+ * Used by the jitter measurement mode of the Tap BPM screen.
+ */
+public class DispatchLatencyStats {
+
+    private static final double NANOS_PER_MS = 1e6;
+
+    private int count;
+    private long lastNanos;
+    private long minNanos = Long.MAX_VALUE;
+    private long maxNanos;
+    private double mean;
+    private double m2;
+
+    /**
+     * Record the dispatch latency of one tap
+     * @param latencyNanos Latency in nanoseconds
+     */
+    public void add(long latencyNanos) {
+        count++;
+        lastNanos = latencyNanos;
+        minNanos = Math.min(minNanos, latencyNanos);
+        maxNanos = Math.max(maxNanos, latencyNanos);
+
+        // Welford's online mean/variance
+        double delta = latencyNanos - mean;
+        mean += delta / count;
+        m2 += delta * (latencyNanos - mean);
+    }
+
+    public void reset() {
+        count = 0;
+        lastNanos = 0;
+        minNanos = Long.MAX_VALUE;
+        maxNanos = 0;
+        mean = 0;
+        m2 = 0;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getLastMs() {
+        return lastNanos / NANOS_PER_MS;
+    }
+
+    public double getMinMs() {
+        return count > 0 ? minNanos / NANOS_PER_MS : 0;
+    }
+
+    public double getMaxMs() {
+        return maxNanos / NANOS_PER_MS;
+    }
+
+    public double getMeanMs() {
+        return mean / NANOS_PER_MS;
+    }
+
+    /**
+     * Standard deviation of the latency, i.e. the timing jitter the old onClick path added
+     */
+    public double getJitterMs() {
+        return count > 1 ? Math.sqrt(m2 / (count - 1)) / NANOS_PER_MS : 0;
+    }
+
+    /**
+     * Get a one-line summary for display
+     */
+    public String format() {
+        return String.format(Locale.US, "Dispatch %.1f ms (avg %.1f, jitter ±%.1f, max %.1f)",
+                getLastMs(), getMeanMs(), getJitterMs(), getMaxMs());
+    }
+}
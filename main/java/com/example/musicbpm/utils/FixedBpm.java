@@ -0,0 +1,91 @@
+package com.example.musicbpm.utils;
+
+/**
+ * Fixed-point BPM values in hundredths (12750 = 127.50 BPM).
+ * Stored BPMs, LiveData and range queries use this int form, so 127.5 and 128 stay
+ * distinct while comparisons and the bpm index work on plain integers.
+ */
+public final class FixedBpm {
+
+    /** Hundredths per BPM */
+    public static final int SCALE = 100;
+
+    private FixedBpm() {
+    }
+
+    /**
+     * Convert a measured BPM to fixed point
+     * @return BPM in hundredths, or 0 if the value is not positive
+     */
+    public static int fromDouble(double bpm) {
+        return bpm > 0 ? (int) Math.round(bpm * SCALE) : 0;
+    }
+
+    /**
+     * Convert a whole BPM to fixed point
+     */
+    public static int fromWhole(int bpm) {
+        return bpm * SCALE;
+    }
+
+    public static double toDouble(int centiBpm) {
+        return (double) centiBpm / SCALE;
+    }
+
+    /**
+     * Round to the nearest whole BPM
+     */
+    public static int toWhole(int centiBpm) {
+        return (centiBpm + SCALE / 2) / SCALE;
+    }
+
+    /**
+     * Format for display
+     * @param decimal true for up to two decimals ("127.5"), false for a whole number ("128")
+     */
+    public static String format(int centiBpm, boolean decimal) {
+        if (!decimal) {
+            return String.valueOf(toWhole(centiBpm));
+        }
+        int whole = centiBpm / SCALE;
+        int fraction = centiBpm % SCALE;
+        if (fraction == 0) {
+            return String.valueOf(whole);
+        }
+        if (fraction % 10 == 0) {
+            return whole + "." + fraction / 10;
+        }
+        return whole + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+
+    /**
+     * Parse user input such as "128", "127.5" or "127,25" without going through a double
+     * @return BPM in hundredths
+     * @throws NumberFormatException if the text is not a number with at most two decimals
+     */
+    public static int parse(String text) {
+        String value = text.trim();
+        if (value.startsWith("-")) {
+            throw new NumberFormatException("Negative BPM: " + text);
+        }
+        int separator = value.indexOf('.');
+        if (separator < 0) {
+            separator = value.indexOf(',');
+        }
+        if (separator < 0) {
+            return fromWhole(Integer.parseInt(value));
+        }
+
+        String wholePart = value.substring(0, separator);
+        String fractionPart = value.substring(separator + 1);
+        if (fractionPart.length() > 2 || fractionPart.startsWith("-") || fractionPart.startsWith("+")) {
+            throw new NumberFormatException("At most two decimals: " + text);
+        }
+        int whole = wholePart.isEmpty() ? 0 : Integer.parseInt(wholePart);
+        int fraction = fractionPart.isEmpty() ? 0 : Integer.parseInt(fractionPart);
+        if (fractionPart.length() == 1) {
+            fraction *= 10;
+        }
+        return whole * SCALE + fraction;
+    }
+}
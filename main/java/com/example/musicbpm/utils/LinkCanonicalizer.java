@@ -0,0 +1,236 @@
+package com.example.musicbpm.utils;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reduces a pasted music link to the (platform, external id) pair that identifies the song,
+ * so the same track shared with different tracking parameters, hosts or locales is saved once.
+ * Also gives back a clean URL for the link column.
+ */
+public class LinkCanonicalizer {
+
+    // Query parameters added by share sheets and campaigns; they never change what a link opens
+    private static final String[] TRACKING_PARAMS = {
+            "si", "utm_", "feature", "fbclid", "gclid", "igshid", "ref", "context", "nd", "app"
+    };
+
+    /**
+     * Canonicalize a link
+     * @param url Link as pasted, with or without scheme
+     * @return Platform as PlatformDetector detects it, external id and clean URL; never null.
+     *         A blank link identifies no song, so its external id is null
+     */
+    public static CanonicalLink canonicalize(String url) {
+        String trimmed = url != null ? url.trim() : "";
+        String platform = PlatformDetector.detectPlatform(trimmed);
+        if (trimmed.isEmpty()) {
+            return new CanonicalLink(platform, null, trimmed);
+        }
+
+        // Spotify app URIs: spotify:track:<id>
+        if (trimmed.regionMatches(true, 0, "spotify:", 0, 8)) {
+            String[] parts = trimmed.split(":");
+            if (parts.length == 3) {
+                return spotify(parts[1].toLowerCase(Locale.ROOT), parts[2]);
+            }
+        }
+
+        URI uri;
+        try {
+            uri = new URI(trimmed.contains("://") ? trimmed : "https://" + trimmed);
+        } catch (URISyntaxException e) {
+            return new CanonicalLink(platform, trimmed.toLowerCase(Locale.ROOT), trimmed);
+        }
+        String host = uri.getHost() != null ? stripHostPrefix(uri.getHost().toLowerCase(Locale.ROOT)) : "";
+        List<String> segments = segments(uri.getRawPath());
+        String query = uri.getRawQuery();
+
+        CanonicalLink link = null;
+        switch (platform) {
+            case PlatformDetector.PLATFORM_SPOTIFY:
+                int index = indexOfType(segments, "track", "album", "playlist", "artist", "episode", "show");
+                if (index >= 0 && index + 1 < segments.size()) {
+                    link = spotify(segments.get(index), segments.get(index + 1));
+                }
+                break;
+            case PlatformDetector.PLATFORM_YOUTUBE:
+                String videoId = youtubeVideoId(host, segments, query);
+                if (videoId != null) {
+                    link = new CanonicalLink(platform, videoId, "https://www.youtube.com/watch?v=" + videoId);
+                }
+                break;
+            case PlatformDetector.PLATFORM_DEEZER:
+                index = indexOfType(segments, "track", "album", "playlist");
+                if (index >= 0 && index + 1 < segments.size()) {
+                    String type = segments.get(index);
+                    String id = segments.get(index + 1);
+                    link = new CanonicalLink(platform, type + ":" + id, "https://www.deezer.com/" + type + "/" + id);
+                }
+                break;
+            case PlatformDetector.PLATFORM_TIDAL:
+                index = indexOfType(segments, "track", "album", "playlist");
+                if (index >= 0 && index + 1 < segments.size()) {
+                    String type = segments.get(index);
+                    String id = segments.get(index + 1);
+                    link = new CanonicalLink(platform, type + ":" + id, "https://tidal.com/browse/" + type + "/" + id);
+                }
+                break;
+            case PlatformDetector.PLATFORM_APPLE_MUSIC:
+                // album/<name>/<album id>?i=<song id> is the song, not the album
+                String songId = queryParam(query, "i");
+                index = indexOfType(segments, "song", "album", "playlist");
+                if (songId != null) {
+                    link = new CanonicalLink(platform, "song:" + songId, cleanUrl(host, segments, "i=" + songId));
+                } else if (index >= 0 && index + 1 < segments.size()) {
+                    link = new CanonicalLink(platform, segments.get(index) + ":" + segments.get(segments.size() - 1),
+                            cleanUrl(host, segments, null));
+                }
+                break;
+            default:
+                break;
+        }
+        if (link != null) {
+            return link;
+        }
+
+        // SoundCloud, Bandcamp and everything else: the page address without tracking noise.
+        // Their paths are names, so case does not matter
+        String cleanQuery = stripTracking(query);
+        String key = host + "/" + String.join("/", segments) + (cleanQuery != null ? "?" + cleanQuery : "");
+        return new CanonicalLink(platform, key.toLowerCase(Locale.ROOT), cleanUrl(host, segments, cleanQuery));
+    }
+
+    private static CanonicalLink spotify(String type, String id) {
+        return new CanonicalLink(PlatformDetector.PLATFORM_SPOTIFY, type + ":" + id,
+                "https://open.spotify.com/" + type + "/" + id);
+    }
+
+    private static String youtubeVideoId(String host, List<String> segments, String query) {
+        if (host.equals("youtu.be")) {
+            return segments.isEmpty() ? null : segments.get(0);
+        }
+        if (!segments.isEmpty() && segments.get(0).equals("watch")) {
+            return queryParam(query, "v");
+        }
+        int index = indexOfType(segments, "shorts", "embed", "live", "v");
+        return index >= 0 && index + 1 < segments.size() ? segments.get(index + 1) : null;
+    }
+
+    private static String stripHostPrefix(String host) {
+        for (String prefix : new String[]{"www.", "m."}) {
+            if (host.startsWith(prefix)) {
+                return host.substring(prefix.length());
+            }
+        }
+        return host;
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>();
+        if (path != null) {
+            for (String segment : path.split("/")) {
+                if (!segment.isEmpty()) {
+                    segments.add(segment);
+                }
+            }
+        }
+        return segments;
+    }
+
+    private static int indexOfType(List<String> segments, String... types) {
+        for (int i = 0; i < segments.size(); i++) {
+            for (String type : types) {
+                if (segments.get(i).equalsIgnoreCase(type)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static String queryParam(String query, String name) {
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0 && pair.substring(0, equals).equals(name) && equals + 1 < pair.length()) {
+                return pair.substring(equals + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Query without tracking parameters, or null if nothing is left
+     */
+    private static String stripTracking(String query) {
+        if (query == null) {
+            return null;
+        }
+        StringBuilder kept = new StringBuilder();
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty() || isTracking(pair)) {
+                continue;
+            }
+            if (kept.length() > 0) {
+                kept.append('&');
+            }
+            kept.append(pair);
+        }
+        return kept.length() > 0 ? kept.toString() : null;
+    }
+
+    private static boolean isTracking(String pair) {
+        int equals = pair.indexOf('=');
+        String name = (equals >= 0 ? pair.substring(0, equals) : pair).toLowerCase(Locale.ROOT);
+        for (String param : TRACKING_PARAMS) {
+            if (param.endsWith("_") ? name.startsWith(param) : name.equals(param)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String cleanUrl(String host, List<String> segments, String query) {
+        return "https://" + host + "/" + String.join("/", segments) + (query != null ? "?" + query : "");
+    }
+
+    /**
+     * A link reduced to what identifies the song
+     */
+    public static class CanonicalLink {
+        private final String platform;
+        private final String externalId;
+        private final String url;
+
+        CanonicalLink(String platform, String externalId, String url) {
+            this.platform = platform;
+            this.externalId = externalId;
+            this.url = url;
+        }
+
+        public String getPlatform() {
+            return platform;
+        }
+
+        /**
+         * Id of the song within its platform, e.g. "track:4uLU6hMCjMI75M1A2tKUQC" on Spotify;
+         * null for a blank link
+         */
+        public String getExternalId() {
+            return externalId;
+        }
+
+        /**
+         * Link without tracking parameters, in the platform's usual form
+         */
+        public String getUrl() {
+            return url;
+        }
+    }
+}
@@ -17,6 +17,8 @@ public class PreferencesManager {
     private static final String KEY_BPM_DECIMAL = "bpm_decimal";
     private static final String KEY_VIBRATION_ENABLED = "vibration_enabled";
     private static final String KEY_THEME_MODE = "theme_mode";
+    private static final String KEY_JITTER_MODE = "jitter_mode";
+    private static final String KEY_RECORD_TAP_SESSIONS = "record_tap_sessions";
 
     // Default values
     private static final int DEFAULT_TAP_COUNT = 4;
@@ -24,6 +26,8 @@ public class PreferencesManager {
     private static final boolean DEFAULT_BPM_DECIMAL = false;
     private static final boolean DEFAULT_VIBRATION = true;
     private static final int DEFAULT_THEME_MODE = 0; // System default
+    private static final boolean DEFAULT_JITTER_MODE = false;
+    private static final boolean DEFAULT_RECORD_TAP_SESSIONS = false;
 
     private SharedPreferences prefs;
 
@@ -76,6 +80,24 @@ public class PreferencesManager {
         return prefs.getInt(KEY_THEME_MODE, DEFAULT_THEME_MODE);
     }
 
+    // Jitter Measurement (show per-tap dispatch latency)
+    public void setJitterModeEnabled(boolean enabled) {
+        prefs.edit().putBoolean(KEY_JITTER_MODE, enabled).apply();
+    }
+
+    public boolean isJitterModeEnabled() {
+        return prefs.getBoolean(KEY_JITTER_MODE, DEFAULT_JITTER_MODE);
+    }
+
+    // Tap Session Recording (raw taps saved for estimator tuning)
+    public void setTapRecordingEnabled(boolean enabled) {
+        prefs.edit().putBoolean(KEY_RECORD_TAP_SESSIONS, enabled).apply();
+    }
+
+    public boolean isTapRecordingEnabled() {
+        return prefs.getBoolean(KEY_RECORD_TAP_SESSIONS, DEFAULT_RECORD_TAP_SESSIONS);
+    }
+
     // Clear all preferences
     public void clearAll() {
         prefs.edit().clear().apply();
@@ -0,0 +1,89 @@
+package com.example.musicbpm.utils;
+
+import android.os.Build;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * Touch listener that reports taps with the time the finger actually went down.
+ * Uses the input event timestamp of ACTION_DOWN instead of the time onClick runs,
+ * which comes after ACTION_UP and main-thread dispatch and jitters with UI load.
+ * The event time shares the monotonic clock of {@link System#nanoTime()}.
+ *
+ * Set it as the view's click listener too: clicks that do not come from a touch
+ * (keyboard, TalkBack, switch access) are then reported at the time onClick runs.
+ */
+public class TapTouchListener implements View.OnTouchListener, View.OnClickListener {
+
+    private static final long NANOS_PER_MS = 1_000_000L;
+
+    private final OnTapListener listener;
+    // The current touch was already reported on ACTION_DOWN, so its click is not a new tap
+    private boolean touchReported;
+
+    public TapTouchListener(OnTapListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public boolean onTouch(View v, MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                long eventTimeNanos = getEventTimeNanos(event);
+                long dispatchLatencyNanos = System.nanoTime() - eventTimeNanos;
+                touchReported = true;
+                listener.onTap(eventTimeNanos, dispatchLatencyNanos);
+                break;
+            case MotionEvent.ACTION_UP:
+                // The view clicks only when the finger lifts inside it; onClick drops that click
+                touchReported = isInside(v, event);
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                touchReported = false;
+                break;
+        }
+        // Let the view handle every event too, for the pressed state, click sound and accessibility
+        return false;
+    }
+
+    @Override
+    public void onClick(View v) {
+        if (touchReported) {
+            touchReported = false;
+            return;
+        }
+        // No input event to read the time from; uptime is the clock event times are on
+        listener.onTap(SystemClock.uptimeMillis() * NANOS_PER_MS, OnTapListener.LATENCY_UNKNOWN);
+    }
+
+    private static boolean isInside(View v, MotionEvent event) {
+        return event.getX() >= 0 && event.getX() < v.getWidth()
+                && event.getY() >= 0 && event.getY() < v.getHeight();
+    }
+
+    /**
+     * Get the event time in nanoseconds, at full precision where the platform provides it
+     */
+    public static long getEventTimeNanos(MotionEvent event) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
+            return event.getEventTimeNanos();
+        }
+        return event.getEventTime() * NANOS_PER_MS;
+    }
+
+    /**
+     * Interface for tap callbacks
+     */
+    public interface OnTapListener {
+        /** Dispatch latency of a tap that did not come from a touch event */
+        long LATENCY_UNKNOWN = -1;
+
+        /**
+         * @param eventTimeNanos Time of the ACTION_DOWN event on the monotonic clock
+         * @param dispatchLatencyNanos Time between the event and its delivery to the listener,
+         *                             or LATENCY_UNKNOWN
+         */
+        void onTap(long eventTimeNanos, long dispatchLatencyNanos);
+    }
+}
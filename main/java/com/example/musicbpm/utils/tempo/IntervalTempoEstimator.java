@@ -0,0 +1,40 @@
+package com.example.musicbpm.utils.tempo;
+
+/**
+ * Base class for estimators that work on the intervals between consecutive taps
+ * rather than on the raw timestamps.
+ */
+public abstract class IntervalTempoEstimator implements TempoEstimator {
+
+    private long lastTap;
+    private boolean hasLastTap;
+
+    @Override
+    public void addTap(long timestampNanos) {
+        if (hasLastTap) {
+            long interval = timestampNanos - lastTap;
+            if (interval > 0) {
+                onInterval(interval);
+            }
+        }
+        lastTap = timestampNanos;
+        hasLastTap = true;
+    }
+
+    @Override
+    public void reset() {
+        hasLastTap = false;
+        onReset();
+    }
+
+    /**
+     * Called for every positive interval between two consecutive taps
+     * @param intervalNanos Interval in nanoseconds
+     */
+    protected abstract void onInterval(long intervalNanos);
+
+    /**
+     * Called when the estimator is reset
+     */
+    protected abstract void onReset();
+}
@@ -0,0 +1,105 @@
+package com.example.musicbpm.utils.tempo;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size sliding window of tap intervals.
+ * Keeps the values both in arrival order (to know which one to evict) and sorted
+ * (for order statistics), using preallocated primitive arrays only.
+ */
+final class IntervalWindow {
+
+    private final long[] ring;
+    private final long[] sorted;
+    private int head;
+    private int size;
+    private long sum;
+
+    IntervalWindow(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.ring = new long[capacity];
+        this.sorted = new long[capacity];
+    }
+
+    void add(long value) {
+        if (size == ring.length) {
+            long evicted = ring[head];
+            ring[head] = value;
+            head = (head + 1) % ring.length;
+            removeSorted(evicted);
+            sum -= evicted;
+        } else {
+            ring[(head + size) % ring.length] = value;
+            size++;
+        }
+        insertSorted(value);
+        sum += value;
+    }
+
+    private void removeSorted(long value) {
+        int count = size;
+        int index = Arrays.binarySearch(sorted, 0, count, value);
+        System.arraycopy(sorted, index + 1, sorted, index, count - index - 1);
+    }
+
+    private void insertSorted(long value) {
+        // The sorted part holds size - 1 values at this point
+        int count = size - 1;
+        int index = Arrays.binarySearch(sorted, 0, count, value);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        System.arraycopy(sorted, index, sorted, index + 1, count - index);
+        sorted[index] = value;
+    }
+
+    void clear() {
+        head = 0;
+        size = 0;
+        sum = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long sum() {
+        return sum;
+    }
+
+    /**
+     * Get the i-th smallest interval in the window
+     */
+    long sortedAt(int index) {
+        return sorted[index];
+    }
+
+    double median() {
+        if (size == 0) {
+            return 0;
+        }
+        int mid = size / 2;
+        if (size % 2 == 1) {
+            return sorted[mid];
+        }
+        return (sorted[mid - 1] + sorted[mid]) / 2.0;
+    }
+
+    /**
+     * Sample variance of the intervals in the window (n - 1 denominator)
+     */
+    double variance() {
+        if (size < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double mean = (double) sum / size;
+        double squares = 0;
+        for (int i = 0; i < size; i++) {
+            double diff = sorted[i] - mean;
+            squares += diff * diff;
+        }
+        return squares / (size - 1);
+    }
+}
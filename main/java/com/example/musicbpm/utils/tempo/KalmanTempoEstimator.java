@@ -0,0 +1,113 @@
+package com.example.musicbpm.utils.tempo;
+
+/**
+ * Tracks the beat period with a one-dimensional Kalman filter.
+ * The measurement noise adapts to how steadily the user taps, so a precise tapper
+ * locks within a few taps. Intervals that fall far outside the predicted range are
+ * rejected, and a gap spanning several beats is split into single-beat measurements.
+ */
+public class KalmanTempoEstimator extends IntervalTempoEstimator {
+
+    private static final double NANOS_PER_MS = 1e6;
+    // Initial guess of the interval jitter (20 ms, as ns²)
+    private static final double INITIAL_MEASUREMENT_NOISE = square(20 * NANOS_PER_MS);
+    // Lower bound of the adapted interval jitter (2 ms, as ns²)
+    private static final double MIN_MEASUREMENT_NOISE = square(2 * NANOS_PER_MS);
+    // Allowed tempo drift per beat (1 ms, as ns²)
+    private static final double PROCESS_NOISE = square(NANOS_PER_MS);
+    // Weight of the latest innovation when adapting the measurement noise
+    private static final double NOISE_ADAPTATION = 0.3;
+    // Innovations beyond this many standard deviations are rejected as outliers
+    private static final double GATE_SIGMAS = 3.0;
+    private static final int MAX_REJECTED_STREAK = 3;
+    private static final int MAX_BEAT_STEP = 4;
+
+    private double period;
+    private double variance;
+    private double measurementNoise;
+    private int acceptedCount;
+    private int rejectedStreak;
+
+    public KalmanTempoEstimator() {
+        onReset();
+    }
+
+    private static double square(double value) {
+        return value * value;
+    }
+
+    @Override
+    protected void onInterval(long intervalNanos) {
+        if (acceptedCount == 0) {
+            period = intervalNanos;
+            variance = measurementNoise;
+            acceptedCount = 1;
+            return;
+        }
+
+        // A gap covering several beats (missed taps) counts as one beat per period
+        long beats = Math.max(1, Math.round(intervalNanos / period));
+        if (beats > MAX_BEAT_STEP) {
+            reject(intervalNanos);
+            return;
+        }
+        double measurement = (double) intervalNanos / beats;
+        double noise = measurementNoise / (beats * beats);
+
+        double predicted = variance + PROCESS_NOISE;
+        double innovation = measurement - period;
+        double innovationVariance = predicted + noise;
+
+        if (acceptedCount >= MIN_LOCK_INTERVALS
+                && innovation * innovation > GATE_SIGMAS * GATE_SIGMAS * innovationVariance) {
+            reject(intervalNanos);
+            return;
+        }
+        rejectedStreak = 0;
+
+        double gain = predicted / innovationVariance;
+        period += gain * innovation;
+        variance = (1 - gain) * predicted;
+        acceptedCount++;
+
+        // Adapt the measurement noise to the observed innovations
+        double observedNoise = innovation * innovation - predicted;
+        measurementNoise = Math.max(MIN_MEASUREMENT_NOISE,
+                (1 - NOISE_ADAPTATION) * measurementNoise + NOISE_ADAPTATION * observedNoise);
+    }
+
+    private void reject(long intervalNanos) {
+        if (++rejectedStreak >= MAX_REJECTED_STREAK) {
+            // Tapping has settled on a different tempo: restart from this interval
+            onReset();
+            onInterval(intervalNanos);
+        }
+    }
+
+    @Override
+    protected void onReset() {
+        period = 0;
+        variance = Double.POSITIVE_INFINITY;
+        measurementNoise = INITIAL_MEASUREMENT_NOISE;
+        acceptedCount = 0;
+        rejectedStreak = 0;
+    }
+
+    @Override
+    public double getBpm() {
+        return TempoMath.periodToBpm(period);
+    }
+
+    @Override
+    public double getVariance() {
+        if (acceptedCount == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return TempoMath.periodVarianceToBpm(period, variance);
+    }
+
+    @Override
+    public int getIntervalCount() {
+        return acceptedCount;
+    }
+}
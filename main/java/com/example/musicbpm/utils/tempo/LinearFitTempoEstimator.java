@@ -0,0 +1,198 @@
+package com.example.musicbpm.utils.tempo;
+
+/**
+ * Estimates the tempo with a least-squares line through (beat index, tap time).
+ * The slope of the line is the beat period. Unlike averaging intervals, the jitter
+ * of inner taps cancels out, so the estimate tightens faster as taps come in.
+ *
+ * Each tap is assigned a beat index from the current period estimate: a tap that
+ * arrives after a missed beat skips an index instead of producing a long interval,
+ * and a tap much closer than half a period (a double tap) is ignored.
+ * The regression sums are kept up to date as taps enter and leave the window, relative
+ * to the oldest tap in the window so they stay small and exact however long the session.
+ */
+public class LinearFitTempoEstimator implements TempoEstimator {
+
+    // Tap times are fitted in microseconds so the squared sums cannot overflow
+    private static final long NANOS_PER_MICRO = 1000;
+    // Number of consecutive rejected taps after which the tempo is assumed to have changed
+    private static final int MAX_REJECTED_STREAK = 3;
+    // Largest number of beats a single gap may skip
+    private static final int MAX_BEAT_STEP = 4;
+
+    private final long[] beatIndices;
+    private final long[] tapTimes;
+    private int head;
+    private int size;
+
+    // Session origin in ns; stored tap times are microseconds since this origin
+    private long baseTime;
+    private long lastIndex;
+    private long lastTime;
+    private int rejectedStreak;
+
+    // Origin of the sums below (the oldest tap in the window)
+    private long originIndex;
+    private long originTime;
+    private long sumK;
+    private long sumKK;
+    private long sumT;
+    private long sumKT;
+    private long sumTT;
+
+    /**
+     * @param windowSize Number of most recent taps considered
+     */
+    public LinearFitTempoEstimator(int windowSize) {
+        if (windowSize < 2) {
+            throw new IllegalArgumentException("windowSize must be at least 2");
+        }
+        this.beatIndices = new long[windowSize];
+        this.tapTimes = new long[windowSize];
+    }
+
+    @Override
+    public void addTap(long timestampNanos) {
+        if (size == 0) {
+            baseTime = timestampNanos;
+            push(0, 0);
+            return;
+        }
+
+        long time = (timestampNanos - baseTime) / NANOS_PER_MICRO;
+        long interval = time - lastTime;
+        if (interval <= 0) {
+            return;
+        }
+
+        long step = 1;
+        if (size >= 3) {
+            step = Math.round(interval / period());
+            if (step < 1 || step > MAX_BEAT_STEP) {
+                if (++rejectedStreak >= MAX_REJECTED_STREAK) {
+                    // Tapping has settled on a different tempo: start over from this tap
+                    reset();
+                    addTap(timestampNanos);
+                }
+                return;
+            }
+        }
+        rejectedStreak = 0;
+        push(lastIndex + step, time);
+    }
+
+    private void push(long index, long time) {
+        int capacity = tapTimes.length;
+        int slot;
+        if (size == capacity) {
+            slot = head;
+            long oldIndex = beatIndices[slot] - originIndex;
+            long oldTime = tapTimes[slot] - originTime;
+            sumK -= oldIndex;
+            sumKK -= oldIndex * oldIndex;
+            sumT -= oldTime;
+            sumKT -= oldIndex * oldTime;
+            sumTT -= oldTime * oldTime;
+            head = (head + 1) % capacity;
+        } else {
+            slot = (head + size) % capacity;
+            size++;
+        }
+
+        beatIndices[slot] = index;
+        tapTimes[slot] = time;
+        long k = index - originIndex;
+        long t = time - originTime;
+        sumK += k;
+        sumKK += k * k;
+        sumT += t;
+        sumKT += k * t;
+        sumTT += t * t;
+
+        lastIndex = index;
+        lastTime = time;
+
+        rebase(beatIndices[head], tapTimes[head]);
+    }
+
+    /**
+     * Move the origin of the sums to the given point without touching the stored taps
+     */
+    private void rebase(long newOriginIndex, long newOriginTime) {
+        long dk = newOriginIndex - originIndex;
+        long dt = newOriginTime - originTime;
+        if (dk == 0 && dt == 0) {
+            return;
+        }
+        long n = size;
+        // Expand sum((k - dk) * (t - dt)) etc. using the sums before the shift
+        sumKT = sumKT - dt * sumK - dk * sumT + n * dk * dt;
+        sumKK = sumKK - 2 * dk * sumK + n * dk * dk;
+        sumTT = sumTT - 2 * dt * sumT + n * dt * dt;
+        sumK -= n * dk;
+        sumT -= n * dt;
+        originIndex = newOriginIndex;
+        originTime = newOriginTime;
+    }
+
+    private double sxx() {
+        return sumKK - (double) sumK * sumK / size;
+    }
+
+    private double sxy() {
+        return sumKT - (double) sumK * sumT / size;
+    }
+
+    /**
+     * Slope of the fitted line, i.e. the beat period in microseconds
+     */
+    private double period() {
+        if (size < 2) {
+            return 0;
+        }
+        double sxx = sxx();
+        return sxx > 0 ? sxy() / sxx : 0;
+    }
+
+    @Override
+    public void reset() {
+        head = 0;
+        size = 0;
+        lastIndex = 0;
+        lastTime = 0;
+        rejectedStreak = 0;
+        originIndex = 0;
+        originTime = 0;
+        sumK = 0;
+        sumKK = 0;
+        sumT = 0;
+        sumKT = 0;
+        sumTT = 0;
+    }
+
+    @Override
+    public double getBpm() {
+        return TempoMath.periodToBpm(period() * NANOS_PER_MICRO);
+    }
+
+    @Override
+    public double getVariance() {
+        if (size < 3) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double sxx = sxx();
+        double sxy = sxy();
+        double syy = sumTT - (double) sumT * sumT / size;
+        double slope = sxy / sxx;
+
+        // Residual variance of the fit, then the variance of the slope (in ns²)
+        double residual = Math.max(0, syy - slope * sxy) / (size - 2);
+        double slopeVariance = residual / sxx * NANOS_PER_MICRO * NANOS_PER_MICRO;
+        return TempoMath.periodVarianceToBpm(slope * NANOS_PER_MICRO, slopeVariance);
+    }
+
+    @Override
+    public int getIntervalCount() {
+        return Math.max(0, size - 1);
+    }
+}
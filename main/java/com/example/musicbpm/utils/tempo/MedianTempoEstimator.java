@@ -0,0 +1,63 @@
+package com.example.musicbpm.utils.tempo;
+
+/**
+ * Estimates the tempo from the median interval of a sliding window.
+ * A single late, early or doubled tap cannot move the median, so the result
+ * stays put where a plain mean would jump by several BPM.
+ */
+public class MedianTempoEstimator extends IntervalTempoEstimator {
+
+    // Ratio between the interquartile range and the standard deviation of a normal distribution
+    private static final double IQR_TO_SIGMA = 1.349;
+
+    private final IntervalWindow window;
+
+    /**
+     * @param windowSize Number of most recent intervals considered
+     */
+    public MedianTempoEstimator(int windowSize) {
+        this.window = new IntervalWindow(windowSize);
+    }
+
+    @Override
+    protected void onInterval(long intervalNanos) {
+        window.add(intervalNanos);
+    }
+
+    @Override
+    protected void onReset() {
+        window.clear();
+    }
+
+    @Override
+    public double getBpm() {
+        return TempoMath.periodToBpm(window.median());
+    }
+
+    @Override
+    public double getVariance() {
+        int n = window.size();
+        if (n < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        // Robust spread from the interquartile range once there are enough samples
+        double sigmaSquared;
+        if (n >= 4) {
+            double iqr = window.sortedAt((3 * n) / 4) - window.sortedAt(n / 4);
+            double sigma = iqr / IQR_TO_SIGMA;
+            sigmaSquared = sigma * sigma;
+        } else {
+            sigmaSquared = window.variance();
+        }
+
+        // Asymptotic variance of the sample median: (pi / 2) * sigma² / n
+        double periodVariance = Math.PI / 2.0 * sigmaSquared / n;
+        return TempoMath.periodVarianceToBpm(window.median(), periodVariance);
+    }
+
+    @Override
+    public int getIntervalCount() {
+        return window.size();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.musicbpm.utils.tempo;
+
+/**
+ * Streaming tempo estimator fed with tap timestamps.
+ * Implementations update their state incrementally on every tap and never allocate,
+ * so they can be driven straight from the UI thread.
+ */
+public interface TempoEstimator {
+
+    /** Minimum number of accepted intervals before an estimate can be locked */
+    int MIN_LOCK_INTERVALS = 3;
+
+    /** Maximum standard error (in BPM) of a locked estimate */
+    double LOCK_STD_ERROR_BPM = 1.0;
+
+    /**
+     * Feed a tap into the estimator
+     * @param timestampNanos Tap time on a monotonic clock, in nanoseconds
+     */
+    void addTap(long timestampNanos);
+
+    /**
+     * Discard all taps and start a new session
+     */
+    void reset();
+
+    /**
+     * Get the current tempo estimate
+     * @return BPM value or 0 if there is no estimate yet
+     */
+    double getBpm();
+
+    /**
+     * Get the variance of the current estimate
+     * @return Variance in BPM², or {@link Double#POSITIVE_INFINITY} if unknown
+     */
+    double getVariance();
+
+    /**
+     * Get the number of intervals that currently contribute to the estimate
+     */
+    int getIntervalCount();
+
+    /**
+     * Get a confidence score for the current estimate
+     * @return Value between 0 (no idea) and 1 (perfectly steady)
+     */
+    default double getConfidence() {
+        double variance = getVariance();
+        if (getIntervalCount() == 0 || Double.isInfinite(variance) || Double.isNaN(variance)) {
+            return 0;
+        }
+        return 1.0 / (1.0 + Math.sqrt(variance));
+    }
+
+    /**
+     * Check if the estimate is stable enough to be shown as final
+     */
+    default boolean isLocked() {
+        return getIntervalCount() >= MIN_LOCK_INTERVALS
+                && Math.sqrt(getVariance()) <= LOCK_STD_ERROR_BPM;
+    }
+}
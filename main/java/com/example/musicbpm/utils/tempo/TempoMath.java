@@ -0,0 +1,35 @@
+package com.example.musicbpm.utils.tempo;
+
+/**
+ * Conversions between beat periods and BPM shared by the estimators.
+ */
+final class TempoMath {
+
+    static final double NANOS_PER_MINUTE = 60e9;
+
+    private TempoMath() {
+    }
+
+    /**
+     * Convert a beat period to BPM
+     * @param periodNanos Beat period in nanoseconds
+     * @return BPM value or 0 if the period is not positive
+     */
+    static double periodToBpm(double periodNanos) {
+        return periodNanos > 0 ? NANOS_PER_MINUTE / periodNanos : 0;
+    }
+
+    /**
+     * Propagate the variance of a period estimate to BPM (first-order delta method)
+     * @param periodNanos Beat period in nanoseconds
+     * @param periodVariance Variance of the period in ns²
+     * @return Variance in BPM²
+     */
+    static double periodVarianceToBpm(double periodNanos, double periodVariance) {
+        if (periodNanos <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double derivative = NANOS_PER_MINUTE / (periodNanos * periodNanos);
+        return derivative * derivative * periodVariance;
+    }
+}
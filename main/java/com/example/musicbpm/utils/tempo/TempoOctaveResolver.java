@@ -0,0 +1,357 @@
+package com.example.musicbpm.utils.tempo;
+
+import com.example.musicbpm.utils.FixedBpm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Resolves half-time / double-time (and 3:2) ambiguity of a measured tempo.
+ * The measured value and its related tempos (x0.5, x2/3, x1, x3/2, x2) are scored against
+ * a tempo prior picked from the genre tags, the steadiness of the taps that produced
+ * the value and, when available, how strongly the audio onsets repeat at each tempo.
+ * The most likely candidate is suggested; the other plausible ones are kept as alternates
+ * so that BPM range queries can also find the track under its other felt tempo.
+ */
+public class TempoOctaveResolver {
+
+    /** Tempo ratios considered for every measurement, the measured value itself included */
+    public static final double[] MULTIPLIERS = {0.5, 2.0 / 3.0, 1.0, 1.5, 2.0};
+
+    /** Slowest and fastest tempo a candidate may have */
+    public static final double MIN_TEMPO = 30;
+    public static final double MAX_TEMPO = 300;
+
+    /** Candidates below this probability are not kept as alternates */
+    public static final double ALTERNATE_MIN_PROBABILITY = 0.1;
+
+    // Prior probability of each multiplier before any evidence: the measurement is usually right,
+    // octave errors are much more common than 3:2 errors
+    private static final double[] MULTIPLIER_PRIORS = {0.15, 0.04, 0.62, 0.04, 0.15};
+    // Tempo prior used when no tag names a known genre (same as the audio tracker)
+    private static final double DEFAULT_CENTER_BPM = 120;
+    private static final double DEFAULT_WIDTH_OCTAVES = 1.0;
+    // Extra weight of a candidate that matches steady taps (times the tap confidence)
+    private static final double TAP_WEIGHT = 4.0;
+    // Candidates within this many octaves of the tapped tempo count as matching it
+    private static final double TAP_TOLERANCE_OCTAVES = 0.05;
+    // Onset salience added to every candidate so a silent lag does not veto it outright
+    private static final double ONSET_FLOOR = 0.05;
+
+    private static final GenrePrior[] GENRES = {
+            new GenrePrior(172, 0.25, "drum and bass", "drum & bass", "drum n bass", "dnb", "jungle", "neurofunk"),
+            new GenrePrior(140, 0.25, "dubstep", "grime", "riddim"),
+            new GenrePrior(140, 0.6, "trap"),
+            new GenrePrior(150, 0.2, "hardstyle", "hardcore", "gabber"),
+            new GenrePrior(138, 0.2, "trance", "psytrance"),
+            new GenrePrior(130, 0.25, "techno"),
+            new GenrePrior(124, 0.2, "house", "deep house", "tech house"),
+            new GenrePrior(128, 0.3, "edm", "electro", "big room", "bachata"),
+            new GenrePrior(118, 0.25, "disco", "nu disco"),
+            new GenrePrior(105, 0.35, "funk", "afrobeat", "afrobeats"),
+            new GenrePrior(112, 0.15, "amapiano"),
+            new GenrePrior(95, 0.2, "reggaeton", "dembow"),
+            new GenrePrior(90, 0.4, "hip hop", "hip-hop", "rap", "boom bap"),
+            new GenrePrior(95, 0.5, "r&b", "rnb", "soul"),
+            new GenrePrior(80, 0.3, "lo-fi", "lofi"),
+            new GenrePrior(75, 0.4, "reggae", "dub", "dancehall"),
+            new GenrePrior(88, 0.2, "kizomba", "zouk", "tarraxinha"),
+            new GenrePrior(70, 0.4, "ballad", "balada"),
+            new GenrePrior(90, 0.6, "ambient", "chill", "chillout"),
+            new GenrePrior(115, 0.5, "pop"),
+            new GenrePrior(125, 0.5, "rock", "indie"),
+            new GenrePrior(170, 0.4, "punk", "ska"),
+            new GenrePrior(130, 0.6, "metal"),
+            new GenrePrior(130, 0.8, "jazz", "swing"),
+            new GenrePrior(95, 0.6, "blues"),
+            new GenrePrior(110, 0.5, "country", "folk")
+    };
+
+    /**
+     * Resolve a tempo from the measured value and the genre tags only
+     * @param measuredBpm Tempo as measured (Spotify, taps, audio analysis or typed)
+     * @param tags Comma separated tags of the track, may be null
+     * @return Resolution, empty if the measured tempo is not positive
+     */
+    public Resolution resolve(double measuredBpm, String tags) {
+        return resolve(measuredBpm, tags, null, null);
+    }
+
+    /**
+     * Resolve a tempo using every piece of evidence available
+     * @param measuredBpm Tempo as measured (Spotify, taps, audio analysis or typed)
+     * @param tags Comma separated tags of the track, may be null
+     * @param taps Estimator that received the user's taps for this track, may be null
+     * @param onsets Onset periodicity of the track's audio, may be null
+     * @return Resolution, empty if the measured tempo is not positive
+     */
+    public Resolution resolve(double measuredBpm, String tags, TempoEstimator taps, OnsetSalience onsets) {
+        List<Candidate> candidates = new ArrayList<>(MULTIPLIERS.length);
+        if (!(measuredBpm > 0)) {
+            return new Resolution(measuredBpm, candidates);
+        }
+
+        List<GenrePrior> genres = matchGenres(tags);
+
+        double tapBpm = 0;
+        double tapTrust = 0;
+        if (taps != null && taps.getIntervalCount() >= TempoEstimator.MIN_LOCK_INTERVALS) {
+            tapBpm = taps.getBpm();
+            tapTrust = taps.getConfidence();
+        }
+
+        double total = 0;
+        for (int i = 0; i < MULTIPLIERS.length; i++) {
+            double bpm = measuredBpm * MULTIPLIERS[i];
+            if (bpm < MIN_TEMPO || bpm > MAX_TEMPO) {
+                continue;
+            }
+
+            double score = MULTIPLIER_PRIORS[i] * genrePrior(genres, bpm);
+            if (tapBpm > 0 && Math.abs(octaves(bpm, tapBpm)) <= TAP_TOLERANCE_OCTAVES) {
+                score *= 1 + TAP_WEIGHT * tapTrust;
+            }
+            if (onsets != null) {
+                score *= ONSET_FLOOR + Math.max(0, onsets.getSalience(bpm));
+            }
+
+            candidates.add(new Candidate(bpm, MULTIPLIERS[i], score));
+            total += score;
+        }
+
+        if (total > 0) {
+            for (Candidate candidate : candidates) {
+                candidate.probability /= total;
+            }
+        }
+        Collections.sort(candidates, (a, b) -> Double.compare(b.probability, a.probability));
+        return new Resolution(measuredBpm, candidates);
+    }
+
+    /**
+     * Bring a tempo into [minBpm, maxBpm] by halving or doubling it, instead of clamping
+     * @return Folded tempo, or the input unchanged if it is not positive
+     */
+    public static double fold(double bpm, double minBpm, double maxBpm) {
+        if (!(bpm > 0) || maxBpm < 2 * minBpm) {
+            return bpm;
+        }
+        while (bpm > maxBpm) {
+            bpm /= 2;
+        }
+        while (bpm < minBpm) {
+            bpm *= 2;
+        }
+        return bpm;
+    }
+
+    private static double octaves(double bpm, double reference) {
+        return Math.log(bpm / reference) / Math.log(2);
+    }
+
+    private static double gaussian(double octaves, double width) {
+        double z = octaves / width;
+        return Math.exp(-0.5 * z * z);
+    }
+
+    private static double genrePrior(List<GenrePrior> genres, double bpm) {
+        if (genres.isEmpty()) {
+            return gaussian(octaves(bpm, DEFAULT_CENTER_BPM), DEFAULT_WIDTH_OCTAVES);
+        }
+        // Tracks tagged with several genres take whichever genre explains the tempo best
+        double best = 0;
+        for (GenrePrior genre : genres) {
+            best = Math.max(best, gaussian(octaves(bpm, genre.centerBpm), genre.widthOctaves));
+        }
+        return best;
+    }
+
+    private static List<GenrePrior> matchGenres(String tags) {
+        List<GenrePrior> matches = new ArrayList<>();
+        if (tags == null || tags.trim().isEmpty()) {
+            return matches;
+        }
+        String text = tags.toLowerCase(Locale.ROOT);
+        for (GenrePrior genre : GENRES) {
+            for (String keyword : genre.keywords) {
+                if (containsWord(text, keyword)) {
+                    matches.add(genre);
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Check for a keyword that is not part of a longer word ("dub" must not match "dubstep")
+     */
+    private static boolean containsWord(String text, String keyword) {
+        int from = 0;
+        int index;
+        while ((index = text.indexOf(keyword, from)) >= 0) {
+            int end = index + keyword.length();
+            boolean startOk = index == 0 || !Character.isLetterOrDigit(text.charAt(index - 1));
+            boolean endOk = end == text.length() || !Character.isLetterOrDigit(text.charAt(end));
+            if (startOk && endOk) {
+                return true;
+            }
+            from = index + 1;
+        }
+        return false;
+    }
+
+    /**
+     * How strongly the audio onsets repeat at a given tempo
+     */
+    public interface OnsetSalience {
+        /**
+         * @return Value between 0 (no periodicity at this tempo) and 1
+         */
+        double getSalience(double bpm);
+    }
+
+    private static final class GenrePrior {
+        final double centerBpm;
+        final double widthOctaves;
+        final String[] keywords;
+
+        GenrePrior(double centerBpm, double widthOctaves, String... keywords) {
+            this.centerBpm = centerBpm;
+            this.widthOctaves = widthOctaves;
+            this.keywords = keywords;
+        }
+    }
+
+    /**
+     * One candidate tempo and its probability
+     */
+    public static class Candidate {
+        private final double bpm;
+        private final double multiplier;
+        private double probability;
+
+        Candidate(double bpm, double multiplier, double score) {
+            this.bpm = bpm;
+            this.multiplier = multiplier;
+            this.probability = score;
+        }
+
+        public double getBpm() {
+            return bpm;
+        }
+
+        /**
+         * Get the tempo in hundredths of a BPM, see {@link FixedBpm}
+         */
+        public int getBpmCenti() {
+            return FixedBpm.fromDouble(bpm);
+        }
+
+        /**
+         * Get the ratio to the measured tempo (0.5 = half time, 2 = double time)
+         */
+        public double getMultiplier() {
+            return multiplier;
+        }
+
+        public double getProbability() {
+            return probability;
+        }
+    }
+
+    /**
+     * Outcome of a resolution: candidates sorted from most to least likely
+     */
+    public static class Resolution {
+        private final double measuredBpm;
+        private final List<Candidate> candidates;
+
+        Resolution(double measuredBpm, List<Candidate> candidates) {
+            this.measuredBpm = measuredBpm;
+            this.candidates = Collections.unmodifiableList(candidates);
+        }
+
+        public double getMeasuredBpm() {
+            return measuredBpm;
+        }
+
+        public List<Candidate> getCandidates() {
+            return candidates;
+        }
+
+        /**
+         * Get the most likely tempo
+         * @return BPM value or 0 if there is no candidate
+         */
+        public double getBpm() {
+            return candidates.isEmpty() ? 0 : candidates.get(0).getBpm();
+        }
+
+        /**
+         * Get the most likely tempo in hundredths of a BPM
+         */
+        public int getBpmCenti() {
+            return FixedBpm.fromDouble(getBpm());
+        }
+
+        /**
+         * Get the probability of the most likely tempo
+         */
+        public double getConfidence() {
+            return candidates.isEmpty() ? 0 : candidates.get(0).getProbability();
+        }
+
+        /**
+         * Check if the most likely tempo differs from the measured one
+         */
+        public boolean isCorrected() {
+            return !candidates.isEmpty() && candidates.get(0).getMultiplier() != 1.0;
+        }
+
+        /**
+         * Check if one of the candidates is within 1 BPM of the given tempo
+         * @param bpmCenti Tempo in hundredths of a BPM
+         */
+        public boolean contains(int bpmCenti) {
+            for (Candidate candidate : candidates) {
+                if (Math.abs(candidate.getBpmCenti() - bpmCenti) <= FixedBpm.SCALE) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Get the most likely plausible alternate slower than the chosen tempo
+         * @param bpmCenti Tempo that is stored for the track, in hundredths of a BPM
+         * @return Alternate in hundredths of a BPM or 0 if there is none
+         */
+        public int getAlternateBelow(int bpmCenti) {
+            for (Candidate candidate : candidates) {
+                if (candidate.getProbability() >= ALTERNATE_MIN_PROBABILITY
+                        && candidate.getBpmCenti() < bpmCenti - FixedBpm.SCALE) {
+                    return candidate.getBpmCenti();
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Get the most likely plausible alternate faster than the chosen tempo
+         * @param bpmCenti Tempo that is stored for the track, in hundredths of a BPM
+         * @return Alternate in hundredths of a BPM or 0 if there is none
+         */
+        public int getAlternateAbove(int bpmCenti) {
+            for (Candidate candidate : candidates) {
+                if (candidate.getProbability() >= ALTERNATE_MIN_PROBABILITY
+                        && candidate.getBpmCenti() > bpmCenti + FixedBpm.SCALE) {
+                    return candidate.getBpmCenti();
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.musicbpm.utils.tempo;
+
+/**
+ * Estimates the tempo from the trimmed mean of a sliding window of intervals.
+ * The shortest and longest intervals are discarded before averaging, which rejects
+ * outliers like the median while keeping most of the mean's precision.
+ */
+public class TrimmedMeanTempoEstimator extends IntervalTempoEstimator {
+
+    public static final double DEFAULT_TRIM_FRACTION = 0.25;
+
+    private final IntervalWindow window;
+    private final double trimFraction;
+
+    /**
+     * @param windowSize Number of most recent intervals considered
+     */
+    public TrimmedMeanTempoEstimator(int windowSize) {
+        this(windowSize, DEFAULT_TRIM_FRACTION);
+    }
+
+    /**
+     * @param windowSize Number of most recent intervals considered
+     * @param trimFraction Fraction of intervals dropped at each end (0 to 0.5 exclusive)
+     */
+    public TrimmedMeanTempoEstimator(int windowSize, double trimFraction) {
+        if (trimFraction < 0 || trimFraction >= 0.5) {
+            throw new IllegalArgumentException("trimFraction must be in [0, 0.5)");
+        }
+        this.window = new IntervalWindow(windowSize);
+        this.trimFraction = trimFraction;
+    }
+
+    @Override
+    protected void onInterval(long intervalNanos) {
+        window.add(intervalNanos);
+    }
+
+    @Override
+    protected void onReset() {
+        window.clear();
+    }
+
+    private int trimCount() {
+        return (int) (window.size() * trimFraction);
+    }
+
+    private double trimmedMean() {
+        int n = window.size();
+        if (n == 0) {
+            return 0;
+        }
+        int k = trimCount();
+        long sum = window.sum();
+        for (int i = 0; i < k; i++) {
+            sum -= window.sortedAt(i) + window.sortedAt(n - 1 - i);
+        }
+        return (double) sum / (n - 2 * k);
+    }
+
+    @Override
+    public double getBpm() {
+        return TempoMath.periodToBpm(trimmedMean());
+    }
+
+    @Override
+    public double getVariance() {
+        int n = window.size();
+        if (n < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int k = trimCount();
+        long low = window.sortedAt(k);
+        long high = window.sortedAt(n - 1 - k);
+
+        // Winsorized variance: trimmed values are clamped to the remaining extremes
+        double winsorizedSum = 0;
+        for (int i = 0; i < n; i++) {
+            winsorizedSum += Math.max(low, Math.min(high, window.sortedAt(i)));
+        }
+        double winsorizedMean = winsorizedSum / n;
+        double squares = 0;
+        for (int i = 0; i < n; i++) {
+            double diff = Math.max(low, Math.min(high, window.sortedAt(i))) - winsorizedMean;
+            squares += diff * diff;
+        }
+        double winsorizedVariance = squares / (n - 1);
+
+        // Standard error of the trimmed mean: s_w² * n / h², with h kept values
+        int kept = n - 2 * k;
+        double periodVariance = winsorizedVariance * n / ((double) kept * kept);
+        return TempoMath.periodVarianceToBpm(trimmedMean(), periodVariance);
+    }
+
+    @Override
+    public int getIntervalCount() {
+        return window.size();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.musicbpm.utils.tempo.replay;
+
+/**
+ * One recorded tapping session: the raw tap times, the BPM that was shown when the
+ * session ended and, if the user later saved a different value, that correction.
+ */
+public class TapSession {
+
+    private final long id;
+    private final long[] timestamps;
+    private final double finalBpm;
+    private double correctedBpm;
+
+    /**
+     * @param id Wall-clock time the session was recorded, in milliseconds; also identifies it
+     * @param timestamps Tap times on the monotonic clock, in nanoseconds
+     * @param finalBpm BPM accepted at the end of the session
+     */
+    public TapSession(long id, long[] timestamps, double finalBpm) {
+        this.id = id;
+        this.timestamps = timestamps;
+        this.finalBpm = finalBpm;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    public int getTapCount() {
+        return timestamps.length;
+    }
+
+    public double getFinalBpm() {
+        return finalBpm;
+    }
+
+    /**
+     * Get the BPM the user corrected the session to
+     * @return BPM value or 0 if the session was never corrected
+     */
+    public double getCorrectedBpm() {
+        return correctedBpm;
+    }
+
+    public void setCorrectedBpm(double correctedBpm) {
+        this.correctedBpm = correctedBpm;
+    }
+
+    /**
+     * Get the best known true tempo: the correction if there is one, else the final BPM
+     */
+    public double getReferenceBpm() {
+        return correctedBpm > 0 ? correctedBpm : finalBpm;
+    }
+}
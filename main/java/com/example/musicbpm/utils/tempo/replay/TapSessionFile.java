@@ -0,0 +1,168 @@
+package com.example.musicbpm.utils.tempo.replay;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact append-only binary format for tap sessions.
+ *
+ * The file starts with the magic bytes {@code TAPS} and a version byte, followed by records:
+ * <pre>
+ * SESSION    (1): varint id, varint tapCount, int64 first timestamp,
+ *                 (tapCount - 1) varint deltas in ns, varint final BPM in hundredths
+ * CORRECTION (2): varint session id, varint corrected BPM in hundredths
+ * </pre>
+ * Tap deltas are a few hundred million ns, so a tap costs four or five bytes.
+ * Corrections are appended later instead of rewriting the session.
+ */
+public final class TapSessionFile {
+
+    static final byte[] MAGIC = {'T', 'A', 'P', 'S'};
+    static final int VERSION = 1;
+
+    private static final int RECORD_SESSION = 1;
+    private static final int RECORD_CORRECTION = 2;
+
+    private TapSessionFile() {
+    }
+
+    /**
+     * Encode the file header, written once when the file is created
+     */
+    public static byte[] encodeHeader() {
+        byte[] header = new byte[MAGIC.length + 1];
+        System.arraycopy(MAGIC, 0, header, 0, MAGIC.length);
+        header[MAGIC.length] = VERSION;
+        return header;
+    }
+
+    /**
+     * Encode a session record
+     */
+    public static byte[] encodeSession(TapSession session) {
+        long[] timestamps = session.getTimestamps();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + 5 * timestamps.length);
+        out.write(RECORD_SESSION);
+        writeVarint(out, session.getId());
+        writeVarint(out, timestamps.length);
+        if (timestamps.length > 0) {
+            long first = timestamps[0];
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (first >>> shift) & 0xFF);
+            }
+            for (int i = 1; i < timestamps.length; i++) {
+                writeVarint(out, Math.max(0, timestamps[i] - timestamps[i - 1]));
+            }
+        }
+        writeVarint(out, toHundredths(session.getFinalBpm()));
+        return out.toByteArray();
+    }
+
+    /**
+     * Encode a correction of an earlier session
+     */
+    public static byte[] encodeCorrection(long sessionId, double correctedBpm) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16);
+        out.write(RECORD_CORRECTION);
+        writeVarint(out, sessionId);
+        writeVarint(out, toHundredths(correctedBpm));
+        return out.toByteArray();
+    }
+
+    /**
+     * Read every session of a file, with the corrections applied
+     * @param in Stream positioned at the header; not closed
+     * @throws IOException if the header is wrong; a truncated last record is ignored
+     */
+    public static List<TapSession> read(InputStream in) throws IOException {
+        for (byte b : MAGIC) {
+            if (in.read() != b) {
+                throw new IOException("Not a tap session file");
+            }
+        }
+        int version = in.read();
+        if (version != VERSION) {
+            throw new IOException("Unsupported tap session file version " + version);
+        }
+
+        Map<Long, TapSession> sessions = new LinkedHashMap<>();
+        int type;
+        while ((type = in.read()) >= 0) {
+            try {
+                if (type == RECORD_SESSION) {
+                    TapSession session = readSession(in);
+                    sessions.put(session.getId(), session);
+                } else if (type == RECORD_CORRECTION) {
+                    long id = readVarint(in);
+                    double bpm = readVarint(in) / 100.0;
+                    TapSession session = sessions.get(id);
+                    if (session != null) {
+                        session.setCorrectedBpm(bpm);
+                    }
+                } else {
+                    throw new IOException("Unknown record type " + type);
+                }
+            } catch (EOFException e) {
+                // The app was killed halfway through an append: keep what was complete
+                break;
+            }
+        }
+        return new ArrayList<>(sessions.values());
+    }
+
+    private static TapSession readSession(InputStream in) throws IOException {
+        long id = readVarint(in);
+        int count = (int) readVarint(in);
+        long[] timestamps = new long[count];
+        if (count > 0) {
+            long first = 0;
+            for (int i = 0; i < 8; i++) {
+                first = (first << 8) | readByte(in);
+            }
+            timestamps[0] = first;
+            for (int i = 1; i < count; i++) {
+                timestamps[i] = timestamps[i - 1] + readVarint(in);
+            }
+        }
+        double finalBpm = readVarint(in) / 100.0;
+        return new TapSession(id, timestamps, finalBpm);
+    }
+
+    private static long toHundredths(double bpm) {
+        return bpm > 0 ? Math.round(bpm * 100) : 0;
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        return b;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.musicbpm.utils.tempo.replay;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Records tap sessions to a {@link TapSessionFile} for offline tuning of the estimators.
+ * Taps are buffered in memory; a session is appended to the file on a background thread
+ * when it ends, so the tap path only stores a long.
+ */
+public class TapSessionRecorder {
+
+    public static final String DEFAULT_FILE_NAME = "tap_sessions.bin";
+
+    // Serializes appends from every recorder writing to the same file
+    private static final Object FILE_LOCK = new Object();
+
+    private final File file;
+    private final long maxTapGapNanos;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    private long[] timestamps = new long[32];
+    private int count;
+    private double lastBpm;
+
+    /**
+     * @param file File to append to; created with a header if missing
+     * @param maxTapGapNanos A longer pause ends the session, 0 to only end it explicitly
+     */
+    public TapSessionRecorder(File file, long maxTapGapNanos) {
+        this.file = file;
+        this.maxTapGapNanos = maxTapGapNanos;
+    }
+
+    /**
+     * Record a tap
+     * @param timestampNanos Tap time on the monotonic clock
+     * @param bpm BPM shown after this tap
+     */
+    public void onTap(long timestampNanos, double bpm) {
+        if (maxTapGapNanos > 0 && count > 0 && timestampNanos - timestamps[count - 1] > maxTapGapNanos) {
+            finishSession();
+        }
+        if (count == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, count * 2);
+        }
+        timestamps[count++] = timestampNanos;
+        lastBpm = bpm;
+    }
+
+    /**
+     * End the current session and append it to the file
+     * @return Session id for a later {@link #correct}, or -1 if there were fewer than two taps
+     */
+    public long finishSession() {
+        if (count < 2 || lastBpm <= 0) {
+            count = 0;
+            return -1;
+        }
+        TapSession session = new TapSession(System.currentTimeMillis(),
+                Arrays.copyOf(timestamps, count), lastBpm);
+        count = 0;
+        lastBpm = 0;
+        append(TapSessionFile.encodeSession(session));
+        return session.getId();
+    }
+
+    /**
+     * Record that the user settled on a different BPM for a finished session
+     */
+    public void correct(long sessionId, double bpm) {
+        if (sessionId >= 0 && bpm > 0) {
+            append(TapSessionFile.encodeCorrection(sessionId, bpm));
+        }
+    }
+
+    /**
+     * Finish the current session and release the writer once pending records are written
+     */
+    public void close() {
+        finishSession();
+        writer.shutdown();
+    }
+
+    private void append(byte[] record) {
+        writer.execute(() -> {
+            synchronized (FILE_LOCK) {
+                boolean isNew = !file.exists() || file.length() == 0;
+                try (OutputStream out = new FileOutputStream(file, true)) {
+                    if (isNew) {
+                        out.write(TapSessionFile.encodeHeader());
+                    }
+                    out.write(record);
+                } catch (IOException e) {
+                    // Recording is best effort and must never disturb tapping
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.musicbpm.metronome;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ClickRendererTest {
+
+    private static final int SAMPLE_RATE = 48000;
+    private static final long HOURS = 3;
+    private static final int[] BLOCK_SIZES = {192, 256, 441, 960, 1023, 4096};
+    // Tempos in hundredths of a BPM, as stored; most give a fractional period
+    private static final int[] TEMPOS = {12000, 9713, 13333, 17450, 8990, 6000, 14437};
+    private static final long TEMPO_CHANGE_FRAMES = 10L * 60 * SAMPLE_RATE;
+    private static final MathContext EXACT = new MathContext(40);
+
+    /**
+     * Every click must start at round(anchor + n * period), with the anchor and period
+     * worked out exactly here rather than taken from the renderer.
+     */
+    @Test
+    public void clicksStayOnTheGridForHoursAcrossTempoChanges() {
+        ClickRenderer renderer = new ClickRenderer(SAMPLE_RATE, TEMPOS[0] / 100.0);
+        float[] buffer = new float[BLOCK_SIZES[BLOCK_SIZES.length - 1]];
+
+        // Expected grid: beat n starts at anchor + (n - anchorBeat) * period
+        BigDecimal anchor = BigDecimal.ZERO;
+        long anchorBeat = 0;
+        BigDecimal period = period(TEMPOS[0]);
+        // Tempo changes not yet reached: {beat, tempo}
+        Deque<long[]> changes = new ArrayDeque<>();
+
+        long totalFrames = HOURS * 60 * 60 * SAMPLE_RATE;
+        long rendered = 0;
+        long nextTempoChange = TEMPO_CHANGE_FRAMES;
+        int tempoIndex = 0;
+        int blockIndex = 0;
+        long beat = 0;
+        float previous = 0f;
+
+        while (rendered < totalFrames) {
+            if (rendered >= nextTempoChange) {
+                tempoIndex = (tempoIndex + 1) % TEMPOS.length;
+                renderer.setBpm(TEMPOS[tempoIndex] / 100.0);
+                changes.add(new long[]{renderer.getBeatCount(), TEMPOS[tempoIndex]});
+                nextTempoChange += TEMPO_CHANGE_FRAMES;
+            }
+
+            int frames = BLOCK_SIZES[blockIndex++ % BLOCK_SIZES.length];
+            renderer.render(buffer, 0, frames);
+
+            for (int i = 0; i < frames; i++) {
+                // A click's first sample is sin(0) = 0 and all the rest are non-zero, so
+                // the sample before the first non-zero one after silence is its start
+                if (buffer[i] != 0f && previous == 0f) {
+                    long start = rendered + i - 1;
+                    if (!changes.isEmpty() && changes.peek()[0] == beat) {
+                        anchor = anchor.add(period.multiply(BigDecimal.valueOf(beat - anchorBeat)));
+                        anchorBeat = beat;
+                        period = period((int) changes.remove()[1]);
+                    }
+                    BigDecimal exact = anchor.add(period.multiply(BigDecimal.valueOf(beat - anchorBeat)));
+                    long expected = exact.setScale(0, RoundingMode.HALF_UP).longValueExact();
+                    assertEquals("Start of beat " + beat, expected, start);
+                    beat++;
+                }
+                previous = buffer[i];
+            }
+            rendered += frames;
+        }
+
+        assertTrue("Only " + beat + " clicks in " + HOURS + " hours", beat > HOURS * 60 * 60);
+        // The last beat may have started on the final frame with its first sample still silent
+        assertTrue(renderer.getBeatCount() - beat <= 1);
+    }
+
+    private static BigDecimal period(int bpmCenti) {
+        return BigDecimal.valueOf(SAMPLE_RATE * 60L * 100).divide(BigDecimal.valueOf(bpmCenti), EXACT);
+    }
+}